@@ -0,0 +1,476 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * This datatype represents a binary mask over a <code>width</code>-by-<code>height</code>
+ * image, using one bit per pixel.
+ * <p>
+ * Each row is packed into an array of <code>long</code> words, so a mask uses
+ * ~ <em>W H</em> / 8 bytes, 32 times less than an {@link Image}. Morphological and
+ * boolean operations work on whole words and therefore process 64 pixels at a time.
+ * <p>
+ * Morphology uses a square structuring element of side <code>2 * radius + 1</code>,
+ * and only pixels inside the mask take part: erosion with radius 1 clears a pixel
+ * if it or any of its (up to 8) neighbours is clear, the binary analogue of
+ * {@code ImageTransformer.weather()}.
+ */
+public final class BitMask {
+    private static final int WORD_BITS = 64;
+
+    private final int width, height;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+    private final long[][] bits;
+
+    /*
+        Abstraction Function:
+            Pixel (col, row) is set iff bit (col % 64) of bits[row][col / 64] is 1.
+
+        Representation Invariant:
+            width >= 1, height >= 1
+            wordsPerRow == ceil(width / 64)
+            bits.length == height and bits[row].length == wordsPerRow
+            bits in the last word of every row that lie beyond width are 0
+     */
+
+    /**
+     * Creates a {@code width}-by-{@code height} mask in which no pixel is set.
+     *
+     * @param width  the width of the mask, > 0
+     * @param height the height of the mask, > 0
+     */
+    public BitMask(int width, int height) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be positive");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + WORD_BITS - 1) / WORD_BITS;
+        int tail = width % WORD_BITS;
+        lastWordMask = tail == 0 ? -1L : (1L << tail) - 1;
+        bits = new long[height][wordsPerRow];
+    }
+
+    /**
+     * Creates a new mask that is a deep copy of the argument mask.
+     *
+     * @param mask the mask to copy, is not null
+     */
+    public BitMask(BitMask mask) {
+        this(mask.width, mask.height);
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(mask.bits[row], 0, bits[row], 0, wordsPerRow);
+        }
+    }
+
+    /**
+     * Create a mask of the pixels of {@code image} whose monochrome luminance
+     * (see {@link Image#intensity(Color)}) is greater than {@code threshold}.
+     * The image produced by {@link #toImage()} maps back to the same mask for
+     * any threshold between 0 and 254.
+     *
+     * @param image     the image to threshold, is not null
+     * @param threshold the luminance threshold, between 0 and 255
+     * @return the thresholded mask
+     */
+    public static BitMask fromImage(Image image, int threshold) {
+        BitMask mask = new BitMask(image.width(), image.height());
+        int[] rgbs = new int[image.width()];
+        for (int row = 0; row < mask.height; row++) {
+            image.getRGBRow(row, rgbs);
+            long[] words = mask.bits[row];
+            for (int col = 0; col < mask.width; col++) {
+                int rgb = rgbs[col];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                // 0.299 r + 0.587 g + 0.114 b > threshold, in integer arithmetic
+                if (299 * r + 587 * g + 114 * b > 1000 * threshold) {
+                    words[col >>> 6] |= 1L << col;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Create a mask of the pixels of {@code image} that exactly match {@code colour}.
+     *
+     * @param image  the image to scan, is not null
+     * @param colour the colour to match, is not null
+     * @return the mask of matching pixels
+     */
+    public static BitMask fromImage(Image image, Color colour) {
+        BitMask mask = new BitMask(image.width(), image.height());
+        int target = colour.getRGB() & 0xFFFFFF;
+        int[] rgbs = new int[image.width()];
+        for (int row = 0; row < mask.height; row++) {
+            image.getRGBRow(row, rgbs);
+            long[] words = mask.bits[row];
+            for (int col = 0; col < mask.width; col++) {
+                if ((rgbs[col] & 0xFFFFFF) == target) {
+                    words[col >>> 6] |= 1L << col;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Render this mask as an image with set pixels white and clear pixels black.
+     *
+     * @return a new image of the same dimensions as the mask
+     */
+    public Image toImage() {
+        Image image = new Image(width, height);
+        int[] rgbs = new int[width];
+        for (int row = 0; row < height; row++) {
+            long[] words = bits[row];
+            for (int col = 0; col < width; col++) {
+                rgbs[col] = ((words[col >>> 6] >>> col) & 1L) != 0 ? 0xFFFFFFFF : 0xFF000000;
+            }
+            image.setRGBRow(row, rgbs);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the width of the mask.
+     *
+     * @return the width of the mask (in pixels)
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the mask.
+     *
+     * @return the height of the mask (in pixels)
+     */
+    public int height() {
+        return height;
+    }
+
+    private void validate(int col, int row) {
+        if (col < 0 || col >= width || row < 0 || row >= height) {
+            throw new IllegalArgumentException(
+                "pixel (" + col + ", " + row + ") is outside the " + width + "-by-" + height + " mask");
+        }
+    }
+
+    /**
+     * Check if pixel ({@code col}, {@code row}) is set.
+     *
+     * @param col the column index, 0 <= col < width
+     * @param row the row index, 0 <= row < height
+     * @return true if the pixel is set and false otherwise
+     */
+    public boolean get(int col, int row) {
+        validate(col, row);
+        return ((bits[row][col >>> 6] >>> col) & 1L) != 0;
+    }
+
+    /**
+     * Set or clear pixel ({@code col}, {@code row}).
+     *
+     * @param col   the column index, 0 <= col < width
+     * @param row   the row index, 0 <= row < height
+     * @param value true to set the pixel, false to clear it
+     */
+    public void set(int col, int row, boolean value) {
+        validate(col, row);
+        if (value) {
+            bits[row][col >>> 6] |= 1L << col;
+        } else {
+            bits[row][col >>> 6] &= ~(1L << col);
+        }
+    }
+
+    /**
+     * Count the set pixels.
+     *
+     * @return the number of set pixels in the mask
+     */
+    public long count() {
+        long count = 0;
+        for (long[] words : bits) {
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the set pixels inside a region. As with {@code ImageTransformer.clip},
+     * the region includes its bottom-right corner.
+     *
+     * @param region the region to count in, is not null and lies within the mask
+     * @return the number of set pixels in {@code region}
+     */
+    public long count(Rectangle region) {
+        if (region.xBottomRight >= width || region.yBottomRight >= height) {
+            throw new IllegalArgumentException("region does not fit within the mask");
+        }
+        int firstWord = region.xTopLeft >>> 6;
+        int lastWord = region.xBottomRight >>> 6;
+        long first = -1L << region.xTopLeft;
+        long last = -1L >>> (WORD_BITS - 1 - (region.xBottomRight & 63));
+        long count = 0;
+        for (int row = region.yTopLeft; row <= region.yBottomRight; row++) {
+            long[] words = bits[row];
+            if (firstWord == lastWord) {
+                count += Long.bitCount(words[firstWord] & first & last);
+                continue;
+            }
+            count += Long.bitCount(words[firstWord] & first);
+            for (int k = firstWord + 1; k < lastWord; k++) {
+                count += Long.bitCount(words[k]);
+            }
+            count += Long.bitCount(words[lastWord] & last);
+        }
+        return count;
+    }
+
+    /**
+     * Find the smallest rectangle that contains every set pixel. The rectangle
+     * includes its bottom-right corner, matching {@code ImageTransformer.clip}.
+     *
+     * @return the bounding box of the set pixels, or {@code null} if the set pixels
+     * do not span at least two rows and two columns (a {@link Rectangle} cannot be empty
+     * or degenerate)
+     */
+    public Rectangle boundingBox() {
+        int minRow = -1;
+        int maxRow = -1;
+        long[] columns = new long[wordsPerRow];
+        for (int row = 0; row < height; row++) {
+            boolean any = false;
+            for (int k = 0; k < wordsPerRow; k++) {
+                columns[k] |= bits[row][k];
+                any |= bits[row][k] != 0;
+            }
+            if (any) {
+                if (minRow < 0) {
+                    minRow = row;
+                }
+                maxRow = row;
+            }
+        }
+        if (minRow < 0 || minRow == maxRow) {
+            return null;
+        }
+        int minCol = -1;
+        int maxCol = -1;
+        for (int k = 0; k < wordsPerRow; k++) {
+            if (columns[k] != 0) {
+                if (minCol < 0) {
+                    minCol = k * WORD_BITS + Long.numberOfTrailingZeros(columns[k]);
+                }
+                maxCol = k * WORD_BITS + WORD_BITS - 1 - Long.numberOfLeadingZeros(columns[k]);
+            }
+        }
+        if (minCol == maxCol) {
+            return null;
+        }
+        return new Rectangle(minCol, minRow, maxCol, maxRow);
+    }
+
+    /**
+     * Erode the mask with a square structuring element.
+     *
+     * @param radius the radius of the structuring element, >= 0
+     * @return a new mask in which a pixel is set iff every pixel of the mask within
+     * {@code radius} of it (in both directions) is set
+     */
+    public BitMask erode(int radius) {
+        return morph(radius, true);
+    }
+
+    /**
+     * Dilate the mask with a square structuring element.
+     *
+     * @param radius the radius of the structuring element, >= 0
+     * @return a new mask in which a pixel is set iff some pixel within
+     * {@code radius} of it (in both directions) is set
+     */
+    public BitMask dilate(int radius) {
+        return morph(radius, false);
+    }
+
+    /**
+     * Morphological opening (erosion then dilation): removes specks smaller
+     * than the structuring element.
+     *
+     * @param radius the radius of the structuring element, >= 0
+     * @return the opened mask
+     */
+    public BitMask open(int radius) {
+        return erode(radius).dilate(radius);
+    }
+
+    /**
+     * Morphological closing (dilation then erosion): fills holes smaller
+     * than the structuring element.
+     *
+     * @param radius the radius of the structuring element, >= 0
+     * @return the closed mask
+     */
+    public BitMask close(int radius) {
+        return dilate(radius).erode(radius);
+    }
+
+    /**
+     * @param other a mask with the same dimensions, is not null
+     * @return a new mask holding the pixels set in both masks
+     */
+    public BitMask and(BitMask other) {
+        return combine(other, 0);
+    }
+
+    /**
+     * @param other a mask with the same dimensions, is not null
+     * @return a new mask holding the pixels set in either mask
+     */
+    public BitMask or(BitMask other) {
+        return combine(other, 1);
+    }
+
+    /**
+     * @param other a mask with the same dimensions, is not null
+     * @return a new mask holding the pixels set in exactly one of the masks
+     */
+    public BitMask xor(BitMask other) {
+        return combine(other, 2);
+    }
+
+    /**
+     * @param other a mask with the same dimensions, is not null
+     * @return a new mask holding the pixels set in this mask but not in {@code other}
+     */
+    public BitMask andNot(BitMask other) {
+        return combine(other, 3);
+    }
+
+    /**
+     * @return a new mask holding the pixels that are clear in this mask
+     */
+    public BitMask not() {
+        BitMask result = new BitMask(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int k = 0; k < wordsPerRow; k++) {
+                result.bits[row][k] = ~bits[row][k];
+            }
+            result.bits[row][wordsPerRow - 1] &= lastWordMask;
+        }
+        return result;
+    }
+
+    private BitMask combine(BitMask other, int op) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("masks must have the same dimensions");
+        }
+        BitMask result = new BitMask(width, height);
+        for (int row = 0; row < height; row++) {
+            long[] a = bits[row];
+            long[] b = other.bits[row];
+            long[] out = result.bits[row];
+            for (int k = 0; k < wordsPerRow; k++) {
+                switch (op) {
+                    case 0:
+                        out[k] = a[k] & b[k];
+                        break;
+                    case 1:
+                        out[k] = a[k] | b[k];
+                        break;
+                    case 2:
+                        out[k] = a[k] ^ b[k];
+                        break;
+                    default:
+                        out[k] = a[k] & ~b[k];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Apply {@code radius} rounds of 3x3 erosion (or dilation). A square of side
+     * 2r + 1 is the r-fold Minkowski sum of 3x3 squares, so this is exact. Each
+     * round is separable: a horizontal pass using word shifts with carries between
+     * neighbouring words, then a vertical pass combining adjacent rows.
+     */
+    private BitMask morph(int radius, boolean erode) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("radius must be non-negative");
+        }
+        BitMask current = new BitMask(this);
+        long[] horizontal = new long[height * wordsPerRow];
+        // pixels outside the mask must not influence the result
+        long outside = erode ? -1L : 0L;
+        for (int round = 0; round < radius; round++) {
+            for (int row = 0; row < height; row++) {
+                long[] words = current.bits[row];
+                int base = row * wordsPerRow;
+                for (int k = 0; k < wordsPerRow; k++) {
+                    long w = padded(words, k, outside);
+                    long prev = k > 0 ? words[k - 1] : outside;
+                    long next = k + 1 < wordsPerRow ? padded(words, k + 1, outside) : outside;
+                    long left = (w << 1) | (prev >>> 63);
+                    long right = (w >>> 1) | (next << 63);
+                    horizontal[base + k] = erode ? (w & left & right) : (w | left | right);
+                }
+            }
+            for (int row = 0; row < height; row++) {
+                long[] out = current.bits[row];
+                int base = row * wordsPerRow;
+                for (int k = 0; k < wordsPerRow; k++) {
+                    long up = row > 0 ? horizontal[base - wordsPerRow + k] : outside;
+                    long down = row + 1 < height ? horizontal[base + wordsPerRow + k] : outside;
+                    long mid = horizontal[base + k];
+                    out[k] = erode ? (up & mid & down) : (up | mid | down);
+                }
+                out[wordsPerRow - 1] &= lastWordMask;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return word k of a row, with the bits beyond the width replaced by {@code outside}
+     */
+    private long padded(long[] words, int k, long outside) {
+        if (k == wordsPerRow - 1) {
+            return (words[k] & lastWordMask) | (outside & ~lastWordMask);
+        }
+        return words[k];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BitMask)) {
+            return false;
+        }
+        BitMask other = (BitMask) o;
+        return width == other.width && height == other.height
+            && Arrays.deepEquals(bits, other.bits);
+    }
+
+    /**
+     * This operation is not supported because masks are mutable.
+     *
+     * @return does not return a value
+     * @throws UnsupportedOperationException if called
+     */
+    @Override
+    public int hashCode() {
+        throw new UnsupportedOperationException(
+            "hashCode() is not supported because masks are mutable");
+    }
+}
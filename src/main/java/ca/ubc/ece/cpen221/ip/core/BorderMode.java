@@ -0,0 +1,41 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+/**
+ * Describes how a neighbourhood operation obtains pixel values that lie outside
+ * the image. For an image row <code>a b c d</code> with a border of two pixels:
+ * <ul>
+ *     <li>{@link #CLAMP} repeats the edge pixel: <code>a a | a b c d | d d</code></li>
+ *     <li>{@link #REFLECT} mirrors about the edge: <code>b a | a b c d | d c</code></li>
+ *     <li>{@link #WRAP} tiles the image: <code>c d | a b c d | a b</code></li>
+ *     <li>{@link #CONSTANT} uses a fixed colour: <code>k k | a b c d | k k</code></li>
+ * </ul>
+ */
+public enum BorderMode {
+    CLAMP, REFLECT, WRAP, CONSTANT;
+
+    /**
+     * Map a (possibly out of range) index onto the range [0, length).
+     *
+     * @param index  the index to map
+     * @param length the number of valid indices, > 0
+     * @return the mapped index, or -1 if this mode is {@link #CONSTANT} and
+     * {@code index} is out of range
+     */
+    public int map(int index, int length) {
+        if (index >= 0 && index < length) {
+            return index;
+        }
+        switch (this) {
+            case CLAMP:
+                return index < 0 ? 0 : length - 1;
+            case REFLECT:
+                int period = 2 * length;
+                int r = Math.floorMod(index, period);
+                return r < length ? r : period - 1 - r;
+            case WRAP:
+                return Math.floorMod(index, length);
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+/**
+ * Converts colours from packed RGB (as used by {@link Image#getRGB(int, int)}) to
+ * luma, YCbCr, HSV and CIE L*a*b*, one colour or a whole row of colours at a time.
+ * <p>
+ * All arithmetic is in fixed-point integers, and the per-channel products, the sRGB
+ * transfer curve and the cube root of L*a*b* come from tables computed once, so the
+ * conversions do no floating-point work per pixel. Apart from luma, which is exactly
+ * {@link Image#toGray}, each component is within 1 of the correctly rounded value of
+ * the floating-point formula.
+ * <p>
+ * Converted colours are packed like RGB colours, with three 8-bit components, except
+ * that the hue of HSV takes 9 bits:
+ * <ul>
+ *     <li>luma: the gray level, 0 to 255;</li>
+ *     <li>YCbCr: {@code Y << 16 | Cb << 8 | Cr}, full-range ITU-R BT.601 (as in JPEG),
+ *     with Y equal to the luma and Cb and Cr centred on 128;</li>
+ *     <li>HSV: {@code H << 16 | S << 8 | V}, with the hue H in degrees (0 to 359) and
+ *     the saturation S and value V from 0 to 255;</li>
+ *     <li>Lab: {@code L << 16 | a << 8 | b} for sRGB with the D65 white point, with
+ *     L = L* &times; 255 / 100, a = a* + 128 and b = b* + 128.</li>
+ * </ul>
+ * Alpha is ignored. The row methods take the colours to convert, an array for the
+ * results (which may be the same array) and the number of colours.
+ */
+public final class ColourConversion {
+    private static final int SHIFT = 16;
+    private static final int ONE = 1 << SHIFT;
+    private static final int HALF = ONE / 2;
+
+    /* luma: NTSC weights in thousandths, with the rounding constant in the blue table */
+    private static final int[] LUMA_RED = new int[256];
+    private static final int[] LUMA_GREEN = new int[256];
+    private static final int[] LUMA_BLUE = new int[256];
+
+    /* YCbCr chroma in 16-bit fixed point, with offset and rounding in the last table */
+    private static final int[] CB_RED = new int[256];
+    private static final int[] CB_GREEN = new int[256];
+    private static final int[] CB_BLUE = new int[256];
+    private static final int[] CR_RED = new int[256];
+    private static final int[] CR_GREEN = new int[256];
+    private static final int[] CR_BLUE = new int[256];
+
+    /* HSV: 255 / max and 60 / delta in 16-bit fixed point */
+    private static final int[] SATURATION = new int[256];
+    private static final int[] HUE = new int[256];
+
+    /*
+        Lab: linear light of each sRGB level in 16-bit fixed point; the sRGB to XYZ
+        matrix, divided by the white point, in 14-bit fixed point; and f(t) of CIE
+        L*a*b* in 16-bit fixed point, sampled at every (1 << CUBE_STEP_BITS) of t in
+        16-bit fixed point and interpolated linearly in between.
+     */
+    private static final int[] LINEAR = new int[256];
+    private static final int MATRIX_BITS = 14;
+    private static final int[] MATRIX = new int[9];
+    private static final int CUBE_STEP_BITS = 6;
+    private static final int[] CUBE_ROOT = new int[(ONE >> CUBE_STEP_BITS) + 2];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            LUMA_RED[v] = 299 * v;
+            LUMA_GREEN[v] = 587 * v;
+            LUMA_BLUE[v] = 114 * v + 500;
+
+            CB_RED[v] = (int) Math.round(-0.168736 * ONE * v);
+            CB_GREEN[v] = (int) Math.round(-0.331264 * ONE * v);
+            CB_BLUE[v] = (int) Math.round(0.5 * ONE * v) + (128 << SHIFT) + HALF;
+            CR_RED[v] = (int) Math.round(0.5 * ONE * v) + (128 << SHIFT) + HALF;
+            CR_GREEN[v] = (int) Math.round(-0.418688 * ONE * v);
+            CR_BLUE[v] = (int) Math.round(-0.081312 * ONE * v);
+
+            if (v > 0) {
+                SATURATION[v] = (int) Math.round(255.0 * ONE / v);
+                HUE[v] = (int) Math.round(60.0 * ONE / v);
+            }
+
+            double c = v / 255.0;
+            double linear = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+            LINEAR[v] = (int) Math.round(linear * ONE);
+        }
+        double[] matrix = {
+            0.4124564 / 0.95047, 0.3575761 / 0.95047, 0.1804375 / 0.95047,
+            0.2126729, 0.7151522, 0.0721750,
+            0.0193339 / 1.08883, 0.1191920 / 1.08883, 0.9503041 / 1.08883
+        };
+        for (int i = 0; i < 9; i++) {
+            MATRIX[i] = (int) Math.round(matrix[i] * (1 << MATRIX_BITS));
+        }
+        for (int i = 0; i < CUBE_ROOT.length; i++) {
+            CUBE_ROOT[i] = (int) Math.round(labF((double) (i << CUBE_STEP_BITS) / ONE) * ONE);
+        }
+    }
+
+    private ColourConversion() {
+    }
+
+    /**
+     * Obtain the luma (gray level) of a colour.
+     *
+     * @param rgb the colour
+     * @return the same gray level as {@link Image#toGray}, between 0 and 255
+     */
+    public static int toLuma(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int scaled = LUMA_RED[r] + LUMA_GREEN[g] + LUMA_BLUE[b];
+        int y = scaled / 1000;
+        if (y * 1000 == scaled) {
+            // exactly halfway between two levels: Image.intensity's roundoff decides
+            y = (int) Math.round(0.299 * r + 0.587 * g + 0.114 * b);
+        }
+        return y;
+    }
+
+    /**
+     * Obtain the luma of a row of colours.
+     *
+     * @param rgbs   the colours to convert
+     * @param out    receives the gray levels
+     * @param length the number of colours to convert
+     */
+    public static void toLuma(int[] rgbs, int[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = toLuma(rgbs[i]);
+        }
+    }
+
+    /**
+     * Convert a colour to YCbCr.
+     *
+     * @param rgb the colour
+     * @return the packed Y, Cb and Cr components
+     */
+    public static int toYCbCr(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int cb = clamp((CB_RED[r] + CB_GREEN[g] + CB_BLUE[b]) >> SHIFT);
+        int cr = clamp((CR_RED[r] + CR_GREEN[g] + CR_BLUE[b]) >> SHIFT);
+        return toLuma(rgb) << 16 | cb << 8 | cr;
+    }
+
+    /**
+     * Convert a row of colours to YCbCr.
+     *
+     * @param rgbs   the colours to convert
+     * @param out    receives the packed Y, Cb and Cr components
+     * @param length the number of colours to convert
+     */
+    public static void toYCbCr(int[] rgbs, int[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = toYCbCr(rgbs[i]);
+        }
+    }
+
+    /**
+     * Convert a colour to HSV. Grays have hue and saturation 0.
+     *
+     * @param rgb the colour
+     * @return the packed H, S and V components
+     */
+    public static int toHSV(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int max = Math.max(r, Math.max(g, b));
+        int delta = max - Math.min(r, Math.min(g, b));
+        if (delta == 0) {
+            return max;
+        }
+        int saturation = (delta * SATURATION[max] + HALF) >> SHIFT;
+        int sector;
+        int difference;
+        if (max == r) {
+            sector = 0;
+            difference = g - b;
+        } else if (max == g) {
+            sector = 120;
+            difference = b - r;
+        } else {
+            sector = 240;
+            difference = r - g;
+        }
+        int hue = sector + ((difference * HUE[delta] + HALF) >> SHIFT);
+        if (hue < 0) {
+            hue += 360;
+        } else if (hue >= 360) {
+            hue -= 360;
+        }
+        return hue << 16 | saturation << 8 | max;
+    }
+
+    /**
+     * Convert a row of colours to HSV.
+     *
+     * @param rgbs   the colours to convert
+     * @param out    receives the packed H, S and V components
+     * @param length the number of colours to convert
+     */
+    public static void toHSV(int[] rgbs, int[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = toHSV(rgbs[i]);
+        }
+    }
+
+    /**
+     * Convert a colour to CIE L*a*b*.
+     *
+     * @param rgb the colour
+     * @return the packed L, a and b components
+     */
+    public static int toLab(int rgb) {
+        int r = LINEAR[(rgb >> 16) & 0xFF];
+        int g = LINEAR[(rgb >> 8) & 0xFF];
+        int b = LINEAR[rgb & 0xFF];
+        int round = 1 << (MATRIX_BITS - 1);
+        int fx = cubeRoot((MATRIX[0] * r + MATRIX[1] * g + MATRIX[2] * b + round) >> MATRIX_BITS);
+        int fy = cubeRoot((MATRIX[3] * r + MATRIX[4] * g + MATRIX[5] * b + round) >> MATRIX_BITS);
+        int fz = cubeRoot((MATRIX[6] * r + MATRIX[7] * g + MATRIX[8] * b + round) >> MATRIX_BITS);
+        // L = (116 fy - 16) * 2.55, a = 500 (fx - fy) + 128, b = 200 (fy - fz) + 128
+        int lightness = clamp((int) ((29580L * fy - 4080L * ONE + 50L * ONE) / (100L * ONE)));
+        int a = clamp(((500 * (fx - fy) + HALF) >> SHIFT) + 128);
+        int bb = clamp(((200 * (fy - fz) + HALF) >> SHIFT) + 128);
+        return lightness << 16 | a << 8 | bb;
+    }
+
+    /**
+     * Convert a row of colours to CIE L*a*b*.
+     *
+     * @param rgbs   the colours to convert
+     * @param out    receives the packed L, a and b components
+     * @param length the number of colours to convert
+     */
+    public static void toLab(int[] rgbs, int[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = toLab(rgbs[i]);
+        }
+    }
+
+    /**
+     * @return f(t) of CIE L*a*b* for t in 16-bit fixed point, in 16-bit fixed point
+     */
+    private static int cubeRoot(int t) {
+        t = Math.max(0, Math.min(ONE, t));
+        int i = t >> CUBE_STEP_BITS;
+        int fraction = t & ((1 << CUBE_STEP_BITS) - 1);
+        return CUBE_ROOT[i]
+            + (((CUBE_ROOT[i + 1] - CUBE_ROOT[i]) * fraction) >> CUBE_STEP_BITS);
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+}
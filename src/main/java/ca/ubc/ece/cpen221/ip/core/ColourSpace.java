@@ -0,0 +1,19 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+/**
+ * The colour spaces in which two colours can be compared.
+ * <ul>
+ *     <li>{@link #RGB} measures the Euclidean distance between the red, green
+ *     and blue components.</li>
+ *     <li>{@link #YCBCR} measures the Euclidean distance between the chroma
+ *     (Cb, Cr) components of the ITU-R BT.601 YCbCr representation and ignores
+ *     luma, so a colour and a darker or brighter shade of it are close. This is
+ *     usually the better choice for keying unevenly lit screens.</li>
+ *     <li>{@link #LAB} measures the Euclidean distance in CIE L*a*b*, which is
+ *     close to perceived colour difference (see {@link ColourConversion#toLab(int)}).</li>
+ * </ul>
+ * All components are on a 0 to 255 scale.
+ */
+public enum ColourSpace {
+    RGB, YCBCR, LAB
+}
@@ -13,24 +13,18 @@ package ca.ubc.ece.cpen221.ip.core;
  ******************************************************************************/
 
 import javax.imageio.ImageIO;
-import javax.swing.ImageIcon;
-import javax.swing.JFrame;
-import javax.swing.JLabel;
-import javax.swing.JMenu;
-import javax.swing.JMenuBar;
-import javax.swing.JMenuItem;
-import javax.swing.JPanel;
-import javax.swing.KeyStroke;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.Color;
-import java.awt.FileDialog;
-import java.awt.Toolkit;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 
 /**
@@ -39,8 +33,9 @@ import java.net.URL;
  * is not currently supported.
  * The original image can be read from a {@code PNG}, {@code GIF},
  * or {@code JPEG} file or the user can create a blank image of a given dimension.
- * This class includes methods for displaying the image in a window on
- * the screen or saving it to a file.
+ * This class includes methods for saving the image to a file; displaying it
+ * in a window is left to {@link ImageViewer}, so that the class can be used
+ * without a display (for example with {@code java.awt.headless=true}).
  * <p>
  * Pixel (<em>col</em>, <em>row</em>) is column <em>col</em> and row <em>row</em>.
  * By default, the origin (0, 0) is the pixel in the top-left corner,
@@ -71,12 +66,20 @@ import java.net.URL;
  * <p>
  */
 
-public final class Image implements ActionListener {
+public final class Image {
+    private static final long FINGERPRINT_PRIME_1 = 0x9E3779B97F4A7C15L;
+    private static final long FINGERPRINT_PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+
     private final int width, height;           // width and height
     private BufferedImage image;               // the rasterized image
-    private JFrame frame;                      // on-screen view
+    private volatile Share share = new Share(); // the images sharing the raster
+    private ImageViewer viewer;                // on-screen view, if shown
     private String filename;                   // name of file
     private boolean isOriginUpperLeft = true;  // location of origin
+    private volatile boolean hasFingerprint;   // fingerprint matches the pixels
+    private long fingerprint;                  // memoized content fingerprint
+    private volatile ImageStats stats;         // memoized statistics, null if stale
+    private volatile Dirty dirty = Dirty.NONE; // pixels changed since clearDirtyRegion()
 
     /**
      * Creates a {@code width}-by-{@code height} image, with {@code width} columns
@@ -101,7 +104,14 @@ public final class Image implements ActionListener {
     }
 
     /**
-     * Creates a new image that is a deep copy of the argument image.
+     * Creates a new image that is a copy of the argument image.
+     * <p>
+     * The copy is made lazily: the two images share their pixels until either
+     * of them is changed, and only then are the pixels duplicated. Copying an
+     * image that is only read, such as a defensive copy, therefore takes
+     * constant time. Only RGB rasters are shared; an image decoded into another
+     * raster type, such as a grayscale or palette PNG or a GIF, is copied at once
+     * into an RGB raster, so that the copy can hold any colour.
      *
      * @param image the image to copy
      * @throws IllegalArgumentException if {@code image} is {@code null}
@@ -113,14 +123,22 @@ public final class Image implements ActionListener {
 
         width = image.width();
         height = image.height();
-        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         filename = image.filename;
         isOriginUpperLeft = image.isOriginUpperLeft;
-        for (int col = 0; col < width(); col++) {
-            for (int row = 0; row < height(); row++) {
-                this.image.setRGB(col, row, image.image.getRGB(col, row));
+        synchronized (image) {
+            if (image.image.getType() == BufferedImage.TYPE_INT_RGB) {
+                this.image = image.image;
+                share = image.share;
+                share.owners.incrementAndGet();
+            } else {
+                this.image = rgbCopy(image.image);
             }
         }
+        if (image.hasFingerprint) {
+            fingerprint = image.fingerprint;
+            hasFingerprint = true;
+        }
+        stats = image.stats;
     }
 
     /**
@@ -198,6 +216,143 @@ public final class Image implements ActionListener {
         filename = file.getName();
     }
 
+    /**
+     * Creates an image by decoding only part of an image file. Pixels outside
+     * {@code region} are skipped by the decoder rather than read and discarded,
+     * so the memory used is proportional to the size of the region.
+     *
+     * @param file   the file
+     * @param region the part of the image to read, with inclusive corners;
+     *               {@code null} reads the whole image
+     * @throws IllegalArgumentException if cannot read image
+     * @throws IllegalArgumentException if {@code file} is {@code null}
+     * @throws IllegalArgumentException if {@code region} extends outside the image
+     */
+    public Image(File file, Rectangle region) {
+        this(file, region, 1, 1);
+    }
+
+    /**
+     * Creates a reduced image by decoding every {@code subsampling}-th pixel
+     * of every {@code subsampling}-th row of an image file.
+     *
+     * @param file        the file
+     * @param subsampling the distance between pixels that are read, >= 1
+     * @throws IllegalArgumentException if cannot read image
+     * @throws IllegalArgumentException if {@code file} is {@code null}
+     * @throws IllegalArgumentException if {@code subsampling} is not positive
+     */
+    public Image(File file, int subsampling) {
+        this(file, null, subsampling, subsampling);
+    }
+
+    /**
+     * Creates an image by decoding a subsampled region of an image file. Only the
+     * pixels at columns {@code region.xTopLeft + i * xSubsampling} and rows
+     * {@code region.yTopLeft + j * ySubsampling} are decoded into memory.
+     *
+     * @param file         the file
+     * @param region       the part of the image to read, with inclusive corners;
+     *                     {@code null} reads the whole image
+     * @param xSubsampling the distance between columns that are read, >= 1
+     * @param ySubsampling the distance between rows that are read, >= 1
+     * @throws IllegalArgumentException if cannot read image
+     * @throws IllegalArgumentException if {@code file} is {@code null}
+     * @throws IllegalArgumentException if {@code region} extends outside the image
+     * @throws IllegalArgumentException if a subsampling factor is not positive
+     */
+    public Image(File file, Rectangle region, int xSubsampling, int ySubsampling) {
+        this(decode(file, region, xSubsampling, ySubsampling, 0), file.getName());
+    }
+
+    /**
+     * Creates a thumbnail of an image file, subsampling it while it is decoded so
+     * that neither side is longer than {@code maximumSize}. The full-size image is
+     * never held in memory.
+     *
+     * @param file        the file
+     * @param maximumSize the largest width and height of the thumbnail, >= 1
+     * @return the thumbnail
+     * @throws IllegalArgumentException if cannot read image
+     * @throws IllegalArgumentException if {@code file} is {@code null}
+     * @throws IllegalArgumentException if {@code maximumSize} is not positive
+     */
+    public static Image thumbnail(File file, int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        return new Image(decode(file, null, 1, 1, maximumSize), file.getName());
+    }
+
+    /**
+     * Decode the first image of a file through an {@link ImageReader}, asking the
+     * reader to skip the pixels that are not wanted.
+     *
+     * @param maximumSize if positive, overrides the subsampling factors with the
+     *                    smallest factor that keeps both sides within this size
+     */
+    private static BufferedImage decode(File file, Rectangle region, int xSubsampling,
+                                        int ySubsampling, int maximumSize) {
+        if (file == null) {
+            throw new IllegalArgumentException("constructor argument is null");
+        }
+        if (xSubsampling < 1 || ySubsampling < 1) {
+            throw new IllegalArgumentException("subsampling must be positive");
+        }
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+            if (stream == null) {
+                throw new IllegalArgumentException("could not open file: " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("could not read file: " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (region != null) {
+                    if (region.xBottomRight >= sourceWidth || region.yBottomRight >= sourceHeight) {
+                        throw new IllegalArgumentException("region extends outside the image");
+                    }
+                    sourceWidth = region.xBottomRight - region.xTopLeft + 1;
+                    sourceHeight = region.yBottomRight - region.yTopLeft + 1;
+                    param.setSourceRegion(new java.awt.Rectangle(region.xTopLeft,
+                        region.yTopLeft, sourceWidth, sourceHeight));
+                }
+                if (maximumSize > 0) {
+                    xSubsampling = (Math.max(sourceWidth, sourceHeight) + maximumSize - 1)
+                        / maximumSize;
+                    ySubsampling = xSubsampling;
+                }
+                param.setSourceSubsampling(Math.min(xSubsampling, sourceWidth),
+                    Math.min(ySubsampling, sourceHeight), 0, 0);
+                return reader.read(0, param);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+        catch (IOException ioe) {
+            throw new IllegalArgumentException("could not open file: " + file, ioe);
+        }
+    }
+
+    /**
+     * Creates an image that takes ownership of a decoded raster.
+     *
+     * @param image    the raster, is not null and is not used by anyone else
+     * @param filename the name of the file the raster was read from, or null
+     */
+    Image(BufferedImage image, String filename) {
+        this.image = image;
+        this.filename = filename;
+        width = image.getWidth(null);
+        height = image.getHeight(null);
+    }
+
     /**
      * Returns the monochrome luminance of the given color as an intensity
      * between 0.0 and 255.0 using the NTSC formula
@@ -243,37 +398,12 @@ public final class Image implements ActionListener {
         return Math.abs(intensity(a) - intensity(b)) >= 128.0;
     }
 
-    /**
-     * Unit tests this {@code Image} data type.
-     * Reads a image specified by the command-line argument,
-     * and shows it in a window on the screen.
-     *
-     * @param args the command-line arguments
-     */
-    public static void main(String[] args) {
-        Image image = new Image(args[0]);
-        System.out.printf("%d-by-%d\n", image.width(), image.height());
-        image.show();
-    }
-
-    /**
-     * Returns a {@link JLabel} containing this image, for embedding in a {@link JPanel},
-     * {@link JFrame} or other GUI widget.
-     *
-     * @return the {@code JLabel}
-     */
-    public JLabel getJLabel() {
-        if (image == null) {
-            return null;         // no image available
-        }
-        ImageIcon icon = new ImageIcon(image);
-        return new JLabel(icon);
-    }
-
     /**
      * Sets the origin to be the upper left pixel. This is the default.
      */
     public void setOriginUpperLeft() {
+        changed();
+        markDirty(0, 0, width - 1, height - 1);
         isOriginUpperLeft = true;
     }
 
@@ -281,46 +411,39 @@ public final class Image implements ActionListener {
      * Sets the origin to be the lower left pixel.
      */
     public void setOriginLowerLeft() {
+        changed();
+        markDirty(0, 0, width - 1, height - 1);
         isOriginUpperLeft = false;
     }
 
     /**
-     * Displays the image in a window on the screen.
+     * Displays the image in a window on the screen, using an {@link ImageViewer}.
+     * Calling this method again redraws the window with the current pixels.
+     * This is the only method of {@code Image} that needs a display; none of the
+     * others load any user-interface classes.
      */
-
-    // getMenuShortcutKeyMask() deprecated in Java 10 but its replacement
-    // getMenuShortcutKeyMaskEx() is not available in Java 8
-    @SuppressWarnings("deprecation")
     public void show() {
-
-        // create the GUI for viewing the image if needed
-        if (frame == null) {
-            frame = new JFrame();
-
-            JMenuBar menuBar = new JMenuBar();
-            JMenu menu = new JMenu("File");
-            menuBar.add(menu);
-            JMenuItem menuItem1 = new JMenuItem(" Save...   ");
-            menuItem1.addActionListener(this);
-            menuItem1.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S,
-                Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
-            menu.add(menuItem1);
-            frame.setJMenuBar(menuBar);
-            frame.setContentPane(getJLabel());
-            // f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-            frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-            if (filename == null) {
-                frame.setTitle(width + "-by-" + height);
-            } else {
-                frame.setTitle(filename);
-            }
-            frame.setResizable(false);
-            frame.pack();
-            frame.setVisible(true);
+        if (viewer == null) {
+            viewer = new ImageViewer(this);
         }
+        viewer.show();
+    }
+
+    /**
+     * Returns the name of the file the image was last read from or saved to.
+     *
+     * @return the file name, or {@code null} if the image has not been read or saved
+     */
+    String filename() {
+        return filename;
+    }
 
-        // draw
-        frame.repaint();
+    /**
+     * Returns the raster holding the pixels, for display. The raster must not be changed,
+     * and is replaced when the image is first changed after being copied.
+     */
+    BufferedImage raster() {
+        return image;
     }
 
     /**
@@ -420,6 +543,10 @@ public final class Image implements ActionListener {
     public void setRGB(int col, int row, int rgb) {
         validateColumnIndex(col);
         validateRowIndex(row);
+        beforeWrite();
+        if (!dirty.contains(col, row)) {
+            markDirty(col, row, col, row);
+        }
         if (isOriginUpperLeft) {
             image.setRGB(col, row, rgb);
         } else {
@@ -427,6 +554,253 @@ public final class Image implements ActionListener {
         }
     }
 
+    /**
+     * Copies the colours of all pixels in row {@code row} into {@code rgbs}.
+     * This is the bulk counterpart of {@link #getRGB(int, int)} and avoids
+     * the per-pixel index validation when a whole row is needed.
+     *
+     * @param row  the row index
+     * @param rgbs the destination array, or {@code null} to allocate a new one;
+     *             if not null it must hold at least {@code width} entries
+     * @return the array holding the row, {@code rgbs[col]} is the colour of pixel ({@code col}, {@code row})
+     * @throws IllegalArgumentException unless {@code 0 <= row < height}
+     */
+    public int[] getRGBRow(int row, int[] rgbs) {
+        validateRowIndex(row);
+        if (rgbs == null) {
+            rgbs = new int[width];
+        } else if (rgbs.length < width) {
+            throw new IllegalArgumentException("row buffer is shorter than the image width");
+        }
+        int y = isOriginUpperLeft ? row : height - row - 1;
+        BufferedImage raster = image;
+        if (raster.getType() == BufferedImage.TYPE_INT_RGB) {
+            // the raster holds the colours themselves; copy them rather than
+            // converting every pixel through the colour model
+            raster.getRaster().getDataElements(0, y, width, 1, rgbs);
+            for (int col = 0; col < width; col++) {
+                rgbs[col] |= 0xFF000000;
+            }
+        } else {
+            raster.getRGB(0, y, width, 1, rgbs, 0, width);
+        }
+        return rgbs;
+    }
+
+    /**
+     * Sets the colours of all pixels in row {@code row} from {@code rgbs}.
+     *
+     * @param row  the row index
+     * @param rgbs the colours to write, holds at least {@code width} entries
+     * @throws IllegalArgumentException unless {@code 0 <= row < height}
+     * @throws IllegalArgumentException if {@code rgbs} is {@code null} or too short
+     */
+    public void setRGBRow(int row, int[] rgbs) {
+        validateRowIndex(row);
+        if (rgbs == null || rgbs.length < width) {
+            throw new IllegalArgumentException("row buffer is null or shorter than the image width");
+        }
+        beforeWrite();
+        markDirty(0, row, width - 1, row);
+        int y = isOriginUpperLeft ? row : height - row - 1;
+        image.setRGB(0, y, width, 1, rgbs, 0, width);
+    }
+
+    /**
+     * Returns a 64-bit fingerprint of the dimensions and pixels of this image.
+     * Equal images have equal fingerprints, and unequal images have equal
+     * fingerprints only with negligible probability, so the fingerprint can stand
+     * in for the content of the image, for example as a cache key.
+     * <p>
+     * The fingerprint is computed in one parallel pass over the image and
+     * remembered until a pixel or the origin is changed.
+     *
+     * @return the fingerprint of this image
+     */
+    public long fingerprint() {
+        if (!hasFingerprint) {
+            long[] rowHashes = new long[height];
+            int bands = Math.min(height, 4 * Runtime.getRuntime().availableProcessors());
+            IntStream.range(0, bands).parallel().forEach(band -> {
+                int[] rgbs = new int[width];
+                for (int row = band * height / bands; row < (band + 1) * height / bands; row++) {
+                    getRGBRow(row, rgbs);
+                    long hash = row;
+                    for (int col = 0; col < width; col++) {
+                        hash = Long.rotateLeft(hash ^ (rgbs[col] * FINGERPRINT_PRIME_1), 31)
+                            * FINGERPRINT_PRIME_2;
+                    }
+                    rowHashes[row] = hash;
+                }
+            });
+            long hash = ((long) width << 32) ^ height;
+            for (long rowHash : rowHashes) {
+                hash = Long.rotateLeft(hash ^ rowHash * FINGERPRINT_PRIME_1, 31)
+                    * FINGERPRINT_PRIME_2;
+            }
+            // final avalanche so that nearby images have unrelated fingerprints
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash ^= hash >>> 33;
+            hash *= 0xC4CEB9FE1A85EC53L;
+            hash ^= hash >>> 33;
+            fingerprint = hash;
+            hasFingerprint = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the per-channel histograms, extremes, sums, means and variances of the
+     * pixels of this image.
+     * <p>
+     * The statistics are computed in one parallel pass over the image and
+     * remembered until a pixel is changed.
+     *
+     * @return the statistics of this image
+     */
+    public ImageStats stats() {
+        ImageStats current = stats;
+        if (current == null) {
+            current = ImageStats.of(this);
+            stats = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the smallest rectangle containing every pixel changed through
+     * {@code set}, {@code setRGB} or {@code setRGBRow} since the image was created
+     * or {@link #clearDirtyRegion()} was last called. Changing the origin marks the
+     * whole image as changed. A copy made with {@link #Image(Image)} starts with
+     * no changed pixels.
+     * <p>
+     * Together with {@code ImageTransformer}'s incremental operations, this lets an
+     * interactive editor recompute only the part of a result affected by an edit.
+     *
+     * @return the changed region in (col, row) coordinates, or {@code null} if no
+     * pixel has changed
+     */
+    public java.awt.Rectangle dirtyRegion() {
+        Dirty region = dirty;
+        if (region == Dirty.NONE) {
+            return null;
+        }
+        return new java.awt.Rectangle(region.left, region.top,
+            region.right - region.left + 1, region.bottom - region.top + 1);
+    }
+
+    /**
+     * Forgets which pixels have changed, so that {@link #dirtyRegion()} reports
+     * only changes made after this call.
+     */
+    public synchronized void clearDirtyRegion() {
+        dirty = Dirty.NONE;
+    }
+
+    /**
+     * Grows the dirty region to include the given inclusive bounds. The region is
+     * replaced as a whole under the lock, so that readers of the volatile field,
+     * such as the check in {@link #setRGB(int, int, int)}, always see consistent
+     * bounds and a growth is never lost to a concurrent one or to a clear.
+     */
+    private synchronized void markDirty(int left, int top, int right, int bottom) {
+        Dirty region = dirty;
+        if (region == Dirty.NONE) {
+            dirty = new Dirty(left, top, right, bottom);
+        } else if (!region.contains(left, top) || !region.contains(right, bottom)) {
+            dirty = new Dirty(Math.min(region.left, left), Math.min(region.top, top),
+                Math.max(region.right, right), Math.max(region.bottom, bottom));
+        }
+    }
+
+    /**
+     * Forgets state derived from the pixels; called before every change.
+     */
+    private void changed() {
+        if (hasFingerprint) {
+            hasFingerprint = false;
+        }
+        if (stats != null) {
+            stats = null;
+        }
+    }
+
+    /**
+     * Prepares the raster for a change of its pixels: forgets derived state and,
+     * if the raster is shared with copies of this image, gives this image a
+     * raster of its own.
+     */
+    private void beforeWrite() {
+        changed();
+        if (share.owners.get() > 1) {
+            unshare();
+        }
+    }
+
+    private synchronized void unshare() {
+        Share current = share;
+        if (current.owners.get() > 1) {
+            image = rgbCopy(image);
+            current.owners.decrementAndGet();
+            share = new Share();
+        }
+    }
+
+    /**
+     * @return a new RGB raster with the pixels of {@code raster}, in the same layout
+     */
+    private static BufferedImage rgbCopy(BufferedImage raster) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        if (raster.getType() == BufferedImage.TYPE_INT_RGB) {
+            int[] from = ((DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+            int[] to = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+            System.arraycopy(from, 0, to, 0, to.length);
+        } else {
+            int[] rgbs = new int[width];
+            for (int y = 0; y < height; y++) {
+                raster.getRGB(0, y, width, 1, rgbs, 0, width);
+                copy.setRGB(0, y, width, 1, rgbs, 0, width);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Counts the images that use the same raster. The last image to hold a
+     * raster may change it in place; any other image copies it first.
+     * Images that are garbage collected without changing a shared raster are
+     * not subtracted, which at worst causes one unnecessary copy.
+     */
+    private static final class Share {
+        final AtomicInteger owners = new AtomicInteger(1);
+    }
+
+    /**
+     * The inclusive bounds of the changed pixels. Never changed once made.
+     */
+    private static final class Dirty {
+        static final Dirty NONE = new Dirty(Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1);
+
+        final int left;
+        final int top;
+        final int right;
+        final int bottom;
+
+        Dirty(int left, int top, int right, int bottom) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        boolean contains(int col, int row) {
+            return col >= left && col <= right && row >= top && row <= bottom;
+        }
+    }
+
     /**
      * Returns true if this image is equal to the argument image.
      *
@@ -524,8 +898,8 @@ public final class Image implements ActionListener {
             throw new IllegalArgumentException("argument to save() is null");
         }
         filename = file.getName();
-        if (frame != null) {
-            frame.setTitle(filename);
+        if (viewer != null) {
+            viewer.updateTitle();
         }
         String suffix = filename.substring(filename.lastIndexOf('.') + 1);
         if ("jpg".equalsIgnoreCase(suffix) || "png".equalsIgnoreCase(suffix)) {
@@ -541,17 +915,52 @@ public final class Image implements ActionListener {
     }
 
     /**
-     * Opens a save dialog box when the user selects "Save As" from the menu.
+     * Writes the image to a file in the given format. Unlike {@link #save(File)},
+     * failures are reported to the caller.
+     *
+     * @param file   the file to write, is not null
+     * @param format the informal name of the format, such as {@code "png"} or {@code "jpg"}
+     * @throws IOException if no writer supports {@code format} or the file cannot be written
      */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        FileDialog chooser = new FileDialog(frame,
-            "Use a .png or .jpg extension", FileDialog.SAVE);
-        chooser.setVisible(true);
-        if (chooser.getFile() != null) {
-            save(chooser.getDirectory() + File.separator + chooser.getFile());
+    public void write(File file, String format) throws IOException {
+        if (file == null || format == null) {
+            throw new IllegalArgumentException("arguments to write() cannot be null");
+        }
+        if (!ImageIO.write(image, format, file)) {
+            throw new IOException("no writer for format " + format);
         }
     }
 
-}
+    /**
+     * Writes the image to a file in the uncompressed raw raster format. Raw files
+     * are much faster to write and read than compressed formats and suit
+     * intermediate results passed between the stages of a job.
+     *
+     * @param file the file to write, is not null
+     * @throws IOException if the file cannot be written
+     * @see #mapRaw(File)
+     * @see RawConverter
+     */
+    public void saveRaw(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("argument to saveRaw() is null");
+        }
+        RawFormat.write(image, isOriginUpperLeft, file);
+    }
 
+    /**
+     * Reads an image written by {@link #saveRaw(File)} by mapping the file into
+     * memory. No decoding is needed: the pixels are copied in bulk from the
+     * mapped file, which the operating system caches across reads.
+     *
+     * @param file the raw file, is not null
+     * @return the image, indexed from the same origin as the image that was saved
+     * @throws IOException if the file cannot be read or is not a raw image file
+     */
+    public static Image mapRaw(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("argument to mapRaw() is null");
+        }
+        return RawFormat.read(file);
+    }
+}
@@ -0,0 +1,102 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the pages of an image file one at a time. Multi-page formats such as
+ * TIFF yield one {@link Image} per page; single-image formats (PNG, JPEG, GIF)
+ * yield a single image.
+ * <p>
+ * Pages are decoded only when they are requested and the underlying reader only
+ * seeks forward, so memory use does not grow with the number of pages.
+ * Callers must {@link #close()} the reader when they are done with it.
+ */
+public final class ImagePages implements Iterator<Image>, Closeable {
+    private final File file;
+    private final ImageInputStream stream;
+    private final ImageReader reader;
+    private int index;
+    private Image next;
+    private boolean finished;
+
+    /**
+     * Open a file for reading its pages.
+     *
+     * @param file the file to read, is not null
+     * @throws IOException if the file cannot be opened or has no known image format
+     */
+    public ImagePages(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+        this.file = file;
+        stream = ImageIO.createImageInputStream(file);
+        if (stream == null) {
+            throw new IOException("could not open file: " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            stream.close();
+            throw new IOException("unknown image format: " + file);
+        }
+        reader = readers.next();
+        reader.setInput(stream, true, true);
+    }
+
+    /**
+     * Obtain the number of pages returned so far.
+     *
+     * @return the zero-based index of the next page
+     */
+    public int pageIndex() {
+        return index;
+    }
+
+    /**
+     * @throws UncheckedIOException if the next page cannot be decoded
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = new Image(reader.read(index), file.getName());
+            }
+            catch (IndexOutOfBoundsException e) {
+                finished = true;
+            }
+            catch (IOException e) {
+                finished = true;
+                throw new UncheckedIOException("could not read page " + index + " of " + file, e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @throws UncheckedIOException if the next page cannot be decoded
+     */
+    @Override
+    public Image next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Image page = next;
+        next = null;
+        index++;
+        return page;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        stream.close();
+    }
+}
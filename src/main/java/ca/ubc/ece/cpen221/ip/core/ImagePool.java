@@ -0,0 +1,138 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of reusable images, kept apart by their dimensions.
+ * <p>
+ * Code that produces an image per frame, such as a video filter, can
+ * {@link #acquire(int, int)} its output from the pool and {@link #release(Image)} it
+ * when the frame has been consumed, so that once the pool holds enough images of each
+ * size no new image (and no new {@code BufferedImage}) is allocated. The contents of an
+ * acquired image are whatever its last user left in it. Shelves are found by a linear
+ * search, which needs no key objects and is fast for the handful of frame sizes a
+ * stream uses.
+ */
+public final class ImagePool {
+    private final int capacity;
+    private final List<Shelf> shelves = new ArrayList<>();
+    private long created;
+    private long reused;
+
+    /*
+        Abstraction Function:
+            The pool holds, for each shelf, the released images of dimensions
+            shelf.width x shelf.height that are waiting to be reused. created and reused
+            count the images acquire has allocated and handed out again.
+
+        Representation Invariant:
+            capacity >= 1
+            no two shelves have the same dimensions
+            every image on a shelf has the dimensions of the shelf
+            no shelf holds more than capacity images, or the same image twice
+     */
+
+    /**
+     * The released images of one size.
+     */
+    private static final class Shelf {
+        final int width;
+        final int height;
+        final ArrayDeque<Image> images = new ArrayDeque<>();
+
+        Shelf(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Create a pool that keeps up to 4 released images of each size.
+     */
+    public ImagePool() {
+        this(4);
+    }
+
+    /**
+     * Create a pool.
+     *
+     * @param capacity the number of released images of each size the pool keeps, >= 1;
+     *                 images released beyond that are left to the garbage collector
+     */
+    public ImagePool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Obtain an image of given dimensions, reusing a released one if there is any.
+     *
+     * @param width  the width of the image, > 0
+     * @param height the height of the image, > 0
+     * @return an image of the given dimensions that no one else holds
+     */
+    public Image acquire(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive");
+        }
+        synchronized (this) {
+            Image image = shelf(width, height).images.pollFirst();
+            if (image != null) {
+                reused++;
+                return image;
+            }
+            created++;
+        }
+        return new Image(width, height);
+    }
+
+    /**
+     * Return an image to the pool. It must not be used again by the caller.
+     *
+     * @param image the image, is not null
+     */
+    public synchronized void release(Image image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image cannot be null");
+        }
+        ArrayDeque<Image> images = shelf(image.width(), image.height()).images;
+        for (Image waiting : images) {
+            if (waiting == image) {
+                throw new IllegalArgumentException("image was released twice");
+            }
+        }
+        if (images.size() < capacity) {
+            images.addFirst(image);
+        }
+    }
+
+    /**
+     * @return the number of images acquire has allocated
+     */
+    public synchronized long created() {
+        return created;
+    }
+
+    /**
+     * @return the number of times acquire has handed out a released image
+     */
+    public synchronized long reused() {
+        return reused;
+    }
+
+    private Shelf shelf(int width, int height) {
+        for (int i = 0; i < shelves.size(); i++) {
+            Shelf shelf = shelves.get(i);
+            if (shelf.width == width && shelf.height == height) {
+                return shelf;
+            }
+        }
+        Shelf shelf = new Shelf(width, height);
+        shelves.add(shelf);
+        return shelf;
+    }
+}
@@ -0,0 +1,205 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.util.stream.IntStream;
+
+/**
+ * This datatype represents the per-channel statistics of an image: for each of the
+ * red, green and blue channels, the histogram of its values and the minimum, maximum,
+ * sum, sum of squares, mean and variance of those values.
+ * <p>
+ * The statistics are gathered in one parallel pass over the image, in which every band
+ * of rows fills histograms of its own; all the other statistics follow from the merged
+ * histograms. {@link Image#stats()} remembers the statistics of an image until one of
+ * its pixels changes, so code that needs them can ask the image every time.
+ */
+public final class ImageStats {
+    public static final int RED = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE = 2;
+
+    private static final int CHANNELS = 3;
+    private static final int LEVELS = 256;
+
+    private final long pixels;
+    private final long[][] histograms;
+    private final int[] min;
+    private final int[] max;
+    private final long[] sums;
+    private final long[] sumsOfSquares;
+
+    /*
+        Abstraction Function:
+            pixels is the number of pixels in the image.
+            histograms[c][v] is the number of pixels whose channel c has the value v.
+            min[c], max[c], sums[c] and sumsOfSquares[c] are the smallest and largest
+            value of channel c, the sum of its values and the sum of their squares.
+
+        Representation Invariant:
+            pixels > 0
+            histograms, min, max, sums and sumsOfSquares have one entry per channel
+            every histogram has 256 entries, which add up to pixels
+            min, max, sums and sumsOfSquares agree with the histograms
+     */
+
+    private ImageStats(long[][] histograms) {
+        this.histograms = histograms;
+        min = new int[CHANNELS];
+        max = new int[CHANNELS];
+        sums = new long[CHANNELS];
+        sumsOfSquares = new long[CHANNELS];
+        long count = 0;
+        for (long n : histograms[RED]) {
+            count += n;
+        }
+        pixels = count;
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            long[] histogram = histograms[ch];
+            min[ch] = LEVELS - 1;
+            for (int v = LEVELS - 1; v >= 0; v--) {
+                if (histogram[v] != 0) {
+                    min[ch] = v;
+                    max[ch] = Math.max(max[ch], v);
+                    sums[ch] += histogram[v] * v;
+                    sumsOfSquares[ch] += histogram[v] * v * v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the statistics of an image. {@link Image#stats()} is usually preferable,
+     * since it computes them only once for each version of the image.
+     *
+     * @param image the image, is not null
+     * @return the statistics of the pixels of {@code image}
+     */
+    public static ImageStats of(Image image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image cannot be null");
+        }
+        int width = image.width();
+        int height = image.height();
+        int bands = Math.min(height, 4 * Runtime.getRuntime().availableProcessors());
+        int[][] bandCounts = new int[bands][];
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            // red, green and blue counts side by side, so one pixel touches one array
+            int[] counts = new int[CHANNELS * LEVELS];
+            int[] rgbs = new int[width];
+            int end = (int) ((long) (band + 1) * height / bands);
+            for (int row = (int) ((long) band * height / bands); row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                for (int col = 0; col < width; col++) {
+                    int rgb = rgbs[col];
+                    counts[(rgb >> 16) & 0xFF]++;
+                    counts[LEVELS + ((rgb >> 8) & 0xFF)]++;
+                    counts[2 * LEVELS + (rgb & 0xFF)]++;
+                }
+            }
+            bandCounts[band] = counts;
+        });
+        long[][] histograms = new long[CHANNELS][LEVELS];
+        for (int[] counts : bandCounts) {
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                for (int v = 0; v < LEVELS; v++) {
+                    histograms[ch][v] += counts[ch * LEVELS + v];
+                }
+            }
+        }
+        return new ImageStats(histograms);
+    }
+
+    /**
+     * @return the number of pixels in the image
+     */
+    public long pixels() {
+        return pixels;
+    }
+
+    /**
+     * Obtain the histogram of a channel.
+     *
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @return a new array of 256 entries, where entry v is the number of pixels whose
+     * channel has the value v
+     */
+    public long[] histogram(int channel) {
+        validateChannel(channel);
+        return histograms[channel].clone();
+    }
+
+    /**
+     * Obtain the number of pixels whose channel has a given value.
+     *
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @param value   the value, between 0 and 255
+     * @return the number of pixels whose channel has the value
+     */
+    public long count(int channel, int value) {
+        validateChannel(channel);
+        if (value < 0 || value >= LEVELS) {
+            throw new IllegalArgumentException("value must be between 0 and 255");
+        }
+        return histograms[channel][value];
+    }
+
+    /**
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @return the smallest value of the channel
+     */
+    public int min(int channel) {
+        validateChannel(channel);
+        return min[channel];
+    }
+
+    /**
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @return the largest value of the channel
+     */
+    public int max(int channel) {
+        validateChannel(channel);
+        return max[channel];
+    }
+
+    /**
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @return the sum of the values of the channel over all pixels
+     */
+    public long sum(int channel) {
+        validateChannel(channel);
+        return sums[channel];
+    }
+
+    /**
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @return the sum of the squares of the values of the channel over all pixels
+     */
+    public long sumOfSquares(int channel) {
+        validateChannel(channel);
+        return sumsOfSquares[channel];
+    }
+
+    /**
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @return the mean value of the channel
+     */
+    public double mean(int channel) {
+        validateChannel(channel);
+        return (double) sums[channel] / pixels;
+    }
+
+    /**
+     * @param channel the channel: {@link #RED}, {@link #GREEN} or {@link #BLUE}
+     * @return the (population) variance of the values of the channel
+     */
+    public double variance(int channel) {
+        validateChannel(channel);
+        double mean = mean(channel);
+        return Math.max(0, (double) sumsOfSquares[channel] / pixels - mean * mean);
+    }
+
+    private void validateChannel(int channel) {
+        if (channel < 0 || channel >= CHANNELS) {
+            throw new IllegalArgumentException("channel must be RED, GREEN or BLUE");
+        }
+    }
+}
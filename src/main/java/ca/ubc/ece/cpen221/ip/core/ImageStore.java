@@ -0,0 +1,228 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Keeps decoded images in memory so that opening the same file again does not
+ * decode it again.
+ * <p>
+ * Images are cached by absolute path, together with the modification time and
+ * length the file had when it was decoded; if either has changed when the file is
+ * next requested, the file is decoded again. Once the cached images use more than
+ * the memory budget, the least recently used ones are dropped. When several threads
+ * request a file that is not cached at the same time, it is decoded once and all of
+ * them receive the result.
+ * <p>
+ * Callers receive their own {@link Image} copy of the cached image (see
+ * {@link Image#Image(Image)}), so changing an image they get cannot affect the cache
+ * or other callers. Instances are safe for use by multiple threads.
+ */
+public final class ImageStore {
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final long memoryBudget;
+    private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<File, CompletableFuture<Entry>> loading = new HashMap<>();
+    private long bytes;
+    private long hits, misses, evictions, invalidations;
+
+    /*
+        Abstraction Function:
+            The store maps the absolute path of each file in entries to the image decoded
+            from it, which is current as long as the file still has entry.lastModified
+            and entry.length. loading maps each file being decoded to the decode's result.
+
+        Representation Invariant:
+            bytes == the sum of the sizes of the entries
+            bytes <= memoryBudget, except when entries holds a single image
+            no key is in both entries and loading
+     */
+
+    /**
+     * A decoded image and the state of its file when it was decoded.
+     */
+    private static final class Entry {
+        final Image image;
+        final long lastModified;
+        final long length;
+        final long bytes;
+
+        Entry(Image image, long lastModified, long length) {
+            this.image = image;
+            this.lastModified = lastModified;
+            this.length = length;
+            bytes = ENTRY_OVERHEAD + 4L * image.width() * image.height();
+        }
+    }
+
+    /**
+     * Create an image store.
+     *
+     * @param memoryBudget the number of bytes of decoded images to keep, >= 0
+     */
+    public ImageStore(long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("memoryBudget cannot be negative");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Obtain the image in a file, decoding it only if it is not cached or the file
+     * has changed since it was decoded.
+     *
+     * @param name the name of the file (.png, .gif, or .jpg), is not null
+     * @return a copy of the image in the file
+     * @throws IllegalArgumentException if the file cannot be read
+     */
+    public Image get(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name cannot be null");
+        }
+        return get(new File(name));
+    }
+
+    /**
+     * Obtain the image in a file, decoding it only if it is not cached or the file
+     * has changed since it was decoded.
+     *
+     * @param file the file (.png, .gif, or .jpg), is not null
+     * @return a copy of the image in the file
+     * @throws IllegalArgumentException if the file cannot be read
+     */
+    public Image get(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+        File key = file.getAbsoluteFile();
+        long lastModified = key.lastModified();
+        long length = key.length();
+        CompletableFuture<Entry> load;
+        boolean decode = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.lastModified == lastModified && entry.length == length) {
+                    hits++;
+                    return new Image(entry.image);
+                }
+                entries.remove(key);
+                bytes -= entry.bytes;
+                invalidations++;
+            }
+            load = loading.get(key);
+            if (load == null) {
+                load = new CompletableFuture<>();
+                loading.put(key, load);
+                misses++;
+                decode = true;
+            }
+        }
+        if (decode) {
+            try {
+                Entry entry = new Entry(new Image(key), lastModified, length);
+                synchronized (this) {
+                    loading.remove(key);
+                    insert(key, entry);
+                }
+                load.complete(entry);
+            }
+            catch (RuntimeException e) {
+                synchronized (this) {
+                    loading.remove(key);
+                }
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return new Image(load.join().image);
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drop every cached image.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Obtain the number of requests answered from the cache.
+     *
+     * @return the number of hits so far
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Obtain the number of files decoded. Requests that waited for another
+     * thread's decode of the same file are not counted.
+     *
+     * @return the number of misses so far
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Obtain the number of images dropped to stay within the memory budget.
+     *
+     * @return the number of evictions so far
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Obtain the number of cached images dropped because their file changed.
+     *
+     * @return the number of invalidations so far
+     */
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Obtain the number of bytes used by the cached images.
+     *
+     * @return the estimated size of the cache
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d images, %d bytes: %d hits, %d misses, %d evictions,"
+            + " %d invalidations", entries.size(), bytes, hits, misses, evictions, invalidations);
+    }
+
+    private void insert(File key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += entry.bytes;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > memoryBudget && entries.size() > 1) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import javax.swing.ImageIcon;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import java.awt.FileDialog;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.io.File;
+
+/**
+ * This class displays an {@link Image} in a window on the screen, with a
+ * <em>File</em> menu for saving it.
+ * <p>
+ * All of the user-interface code for images lives here rather than in
+ * {@link Image}, so programs that never display an image do not load Swing.
+ */
+public final class ImageViewer implements ActionListener {
+    private final Image image;
+    private JFrame frame;
+    private JLabel label;
+
+    /**
+     * Creates a viewer for an image. No window is opened until {@link #show()} is called.
+     *
+     * @param image the image to display, is not null
+     */
+    public ImageViewer(Image image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image cannot be null");
+        }
+        this.image = image;
+    }
+
+    /**
+     * Reads an image specified by the command-line argument
+     * and shows it in a window on the screen.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        Image image = new Image(args[0]);
+        System.out.printf("%d-by-%d\n", image.width(), image.height());
+        image.show();
+    }
+
+    /**
+     * Returns a {@link JLabel} containing the image, for embedding in a {@link JPanel},
+     * {@link JFrame} or other GUI widget.
+     *
+     * @return the {@code JLabel}
+     */
+    public JLabel getJLabel() {
+        return new JLabel(new ImageIcon(image.raster()));
+    }
+
+    /**
+     * Displays the image in a window on the screen, creating the window the first
+     * time and redrawing it with the current pixels afterwards.
+     */
+
+    // getMenuShortcutKeyMask() deprecated in Java 10 but its replacement
+    // getMenuShortcutKeyMaskEx() is not available in Java 8
+    @SuppressWarnings("deprecation")
+    public void show() {
+
+        // create the GUI for viewing the image if needed
+        if (frame == null) {
+            frame = new JFrame();
+
+            JMenuBar menuBar = new JMenuBar();
+            JMenu menu = new JMenu("File");
+            menuBar.add(menu);
+            JMenuItem menuItem1 = new JMenuItem(" Save...   ");
+            menuItem1.addActionListener(this);
+            menuItem1.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S,
+                Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
+            menu.add(menuItem1);
+            frame.setJMenuBar(menuBar);
+            label = getJLabel();
+            frame.setContentPane(label);
+            frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+            updateTitle();
+            frame.setResizable(false);
+            frame.pack();
+            frame.setVisible(true);
+        } else {
+            // the image may have moved to a new raster since it was last shown
+            label.setIcon(new ImageIcon(image.raster()));
+        }
+
+        // draw
+        frame.repaint();
+    }
+
+    /**
+     * Sets the title of the window, if it is open, to the name of the image's file.
+     */
+    void updateTitle() {
+        if (frame != null) {
+            String filename = image.filename();
+            if (filename == null) {
+                frame.setTitle(image.width() + "-by-" + image.height());
+            } else {
+                frame.setTitle(filename);
+            }
+        }
+    }
+
+    /**
+     * Opens a save dialog box when the user selects "Save As" from the menu.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        FileDialog chooser = new FileDialog(frame,
+            "Use a .png or .jpg extension", FileDialog.SAVE);
+        chooser.setVisible(true);
+        if (chooser.getFile() != null) {
+            image.save(chooser.getDirectory() + File.separator + chooser.getFile());
+        }
+    }
+}
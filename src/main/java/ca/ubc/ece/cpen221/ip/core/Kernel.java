@@ -0,0 +1,249 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.util.Arrays;
+
+/**
+ * This datatype represents an <strong>immutable</strong> convolution kernel:
+ * a matrix of weights with an odd number of rows and columns, anchored at its
+ * centre entry.
+ * <p>
+ * A kernel is <em>separable</em> when it is the outer product of a column vector
+ * and a row vector. Separable kernels can be applied as a row pass followed by a
+ * column pass, which costs O(k) per pixel instead of O(k^2). Separability is
+ * detected when the kernel is created; the factory methods {@link #gaussian(double)}
+ * and {@link #box(int)} always produce separable kernels.
+ */
+public final class Kernel {
+    private final double[][] weights;
+    private final double[] rowWeights;
+    private final double[] columnWeights;
+    public final int columns;
+    public final int rows;
+
+    /*
+        Abstraction Function:
+            Represents the kernel whose weight at offset (dx, dy) from the anchor is
+            weights[rows / 2 + dy][columns / 2 + dx].
+            If rowWeights != null then the kernel is separable and
+            weights[i][j] == columnWeights[i] * rowWeights[j] (within DoubleMatrix.epsilon).
+
+        Representation Invariant:
+            rows and columns are odd and >= 1
+            weights.length == rows
+            weights[i].length == columns for all i
+            (rowWeights == null) == (columnWeights == null)
+            rowWeights != null implies rowWeights.length == columns and columnWeights.length == rows
+     */
+
+    /**
+     * Create a kernel from a matrix of weights.
+     *
+     * @param _weights is not null, is rectangular, and has an odd number of rows and columns
+     */
+    public Kernel(double[][] _weights) {
+        if (_weights == null || _weights.length == 0 || _weights[0] == null) {
+            throw new IllegalArgumentException("kernel weights cannot be null or empty");
+        }
+        rows = _weights.length;
+        columns = _weights[0].length;
+        if (rows % 2 == 0 || columns % 2 == 0) {
+            throw new IllegalArgumentException("kernel dimensions must be odd");
+        }
+        for (double[] row : _weights) {
+            if (row == null || row.length != columns) {
+                throw new IllegalArgumentException("kernel weights must be rectangular");
+            }
+        }
+        weights = Arrays.stream(_weights).map(double[]::clone).toArray(double[][]::new);
+
+        double[][] factors = factor(weights);
+        if (factors == null) {
+            columnWeights = null;
+            rowWeights = null;
+        } else {
+            columnWeights = factors[0];
+            rowWeights = factors[1];
+        }
+    }
+
+    private Kernel(double[] _columnWeights, double[] _rowWeights) {
+        rows = _columnWeights.length;
+        columns = _rowWeights.length;
+        if (rows % 2 == 0 || columns % 2 == 0) {
+            throw new IllegalArgumentException("kernel dimensions must be odd");
+        }
+        columnWeights = _columnWeights.clone();
+        rowWeights = _rowWeights.clone();
+        weights = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                weights[i][j] = columnWeights[i] * rowWeights[j];
+            }
+        }
+    }
+
+    /**
+     * Create a separable kernel that is the outer product of a column vector and a row vector.
+     *
+     * @param _columnWeights the vertical weights, is not null and has odd length
+     * @param _rowWeights    the horizontal weights, is not null and has odd length
+     * @return the kernel whose entry (i, j) is {@code _columnWeights[i] * _rowWeights[j]}
+     */
+    public static Kernel separable(double[] _columnWeights, double[] _rowWeights) {
+        if (_columnWeights == null || _rowWeights == null) {
+            throw new IllegalArgumentException("kernel weights cannot be null");
+        }
+        return new Kernel(_columnWeights, _rowWeights);
+    }
+
+    /**
+     * Create a normalized Gaussian blur kernel. The kernel extends three standard
+     * deviations from its centre in each direction.
+     *
+     * @param sigma the standard deviation in pixels, > 0
+     * @return a separable Gaussian kernel whose weights sum to 1
+     */
+    public static Kernel gaussian(double sigma) {
+        if (!(sigma > 0)) {
+            throw new IllegalArgumentException("sigma must be positive");
+        }
+        int radius = Math.max(1, (int) Math.ceil(3 * sigma));
+        double[] g = new double[2 * radius + 1];
+        double sum = 0;
+        for (int i = -radius; i <= radius; i++) {
+            g[i + radius] = Math.exp(-(i * i) / (2 * sigma * sigma));
+            sum += g[i + radius];
+        }
+        for (int i = 0; i < g.length; i++) {
+            g[i] /= sum;
+        }
+        return new Kernel(g, g);
+    }
+
+    /**
+     * Create a normalized box (mean) filter kernel.
+     *
+     * @param size the dimension of the square kernel, odd and >= 1
+     * @return a separable box kernel whose weights sum to 1
+     */
+    public static Kernel box(int size) {
+        if (size < 1 || size % 2 == 0) {
+            throw new IllegalArgumentException("box size must be odd and positive");
+        }
+        double[] b = new double[size];
+        Arrays.fill(b, 1.0 / size);
+        return new Kernel(b, b);
+    }
+
+    /**
+     * Create the 3x3 sharpening kernel
+     * <code>[0 -1 0; -1 5 -1; 0 -1 0]</code>.
+     *
+     * @return a sharpening kernel whose weights sum to 1
+     */
+    public static Kernel sharpen() {
+        return new Kernel(new double[][] {
+            {0, -1, 0},
+            {-1, 5, -1},
+            {0, -1, 0}
+        });
+    }
+
+    /**
+     * Return the weight at (row, col)
+     *
+     * @param row the row of the weight to return, 0 <= row < rows
+     * @param col the column of the weight to return, 0 <= col < columns
+     * @return the weight at location (row, col)
+     */
+    public double get(int row, int col) {
+        return weights[row][col];
+    }
+
+    /**
+     * Check if this kernel can be applied as a row pass followed by a column pass.
+     *
+     * @return true if the kernel is separable and false otherwise
+     */
+    public boolean isSeparable() {
+        return rowWeights != null;
+    }
+
+    /**
+     * Obtain the horizontal factor of a separable kernel.
+     *
+     * @return a copy of the row weights, of length {@code columns}
+     * @throws IllegalStateException if the kernel is not separable
+     */
+    public double[] getRowWeights() {
+        if (rowWeights == null) {
+            throw new IllegalStateException("kernel is not separable");
+        }
+        return rowWeights.clone();
+    }
+
+    /**
+     * Obtain the vertical factor of a separable kernel.
+     *
+     * @return a copy of the column weights, of length {@code rows}
+     * @throws IllegalStateException if the kernel is not separable
+     */
+    public double[] getColumnWeights() {
+        if (columnWeights == null) {
+            throw new IllegalStateException("kernel is not separable");
+        }
+        return columnWeights.clone();
+    }
+
+    /**
+     * Factor a matrix as the outer product of a column and a row vector,
+     * pivoting on the entry with the largest magnitude.
+     *
+     * @return {columnVector, rowVector} or null if the matrix does not have rank 1
+     */
+    private static double[][] factor(double[][] m) {
+        int pivotRow = 0;
+        int pivotCol = 0;
+        for (int i = 0; i < m.length; i++) {
+            for (int j = 0; j < m[i].length; j++) {
+                if (Math.abs(m[i][j]) > Math.abs(m[pivotRow][pivotCol])) {
+                    pivotRow = i;
+                    pivotCol = j;
+                }
+            }
+        }
+        double pivot = m[pivotRow][pivotCol];
+        if (pivot == 0) {
+            return null;
+        }
+        double[] column = new double[m.length];
+        double[] row = m[pivotRow].clone();
+        for (int i = 0; i < m.length; i++) {
+            column[i] = m[i][pivotCol] / pivot;
+        }
+        double tolerance = DoubleMatrix.epsilon * Math.max(1, Math.abs(pivot));
+        for (int i = 0; i < m.length; i++) {
+            for (int j = 0; j < m[i].length; j++) {
+                if (Math.abs(column[i] * row[j] - m[i][j]) > tolerance) {
+                    return null;
+                }
+            }
+        }
+        return new double[][] {column, row};
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Kernel)) {
+            return false;
+        }
+        Kernel other = (Kernel) o;
+        return rows == other.rows && columns == other.columns
+            && Arrays.deepEquals(weights, other.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(weights);
+    }
+}
@@ -0,0 +1,216 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.util.stream.IntStream;
+
+/**
+ * This datatype represents a <code>width</code>-by-<code>height</code> image whose
+ * colour channels are stored separately, as one array of 8-bit samples per channel.
+ * <p>
+ * An {@link Image} keeps each pixel as a packed RGB integer, so an operation that
+ * treats the channels independently has to split every pixel it reads and merge
+ * every pixel it writes. A planar image holds the channels already split: it is
+ * converted from an image once, any number of operations can then work on its
+ * planes directly, and it is converted back at the end.
+ * <p>
+ * A planar image has either three channels ({@link #RED}, {@link #GREEN} and
+ * {@link #BLUE}) or a single gray channel. Images have no transparency, so there is
+ * no alpha plane. A new planar image is black.
+ */
+public final class PlanarImage {
+    public static final int RED = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE = 2;
+    public static final int GRAY = 0;
+
+    private final int width;
+    private final int height;
+    private final byte[][] planes;
+
+    /*
+        Abstraction Function:
+            Channel c of pixel (col, row) has the value planes[c][row * width + col] & 0xFF.
+            With one channel the image is gray; with three, channel RED, GREEN and BLUE
+            hold the red, green and blue components.
+
+        Representation Invariant:
+            width > 0 and height > 0
+            planes.length is 1 or 3
+            every plane has width * height samples
+     */
+
+    /**
+     * Create a black planar image.
+     *
+     * @param width    the width of the image, > 0
+     * @param height   the height of the image, > 0
+     * @param channels the number of channels: 1 for a gray image, 3 for a colour image
+     */
+    public PlanarImage(int width, int height, int channels) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be positive");
+        }
+        if (channels != 1 && channels != 3) {
+            throw new IllegalArgumentException("a planar image has 1 or 3 channels");
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("image is too large for a planar image");
+        }
+        this.width = width;
+        this.height = height;
+        planes = new byte[channels][width * height];
+    }
+
+    /**
+     * Split an image into red, green and blue planes.
+     *
+     * @param image the image to convert, is not null
+     * @return a three-channel planar image with the same pixels as {@code image}
+     */
+    public static PlanarImage of(Image image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image cannot be null");
+        }
+        int width = image.width();
+        PlanarImage planar = new PlanarImage(width, image.height(), 3);
+        byte[] red = planar.planes[RED];
+        byte[] green = planar.planes[GREEN];
+        byte[] blue = planar.planes[BLUE];
+        planar.forEachBand((start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                int base = row * width;
+                for (int col = 0; col < width; col++) {
+                    int rgb = rgbs[col];
+                    red[base + col] = (byte) (rgb >> 16);
+                    green[base + col] = (byte) (rgb >> 8);
+                    blue[base + col] = (byte) rgb;
+                }
+            }
+        });
+        return planar;
+    }
+
+    /**
+     * Merge the planes into an image. A gray planar image becomes an image whose
+     * pixels have equal red, green and blue components.
+     *
+     * @return a new image with the same pixels as this planar image
+     */
+    public Image toImage() {
+        Image image = new Image(width, height);
+        byte[] red = planes[0];
+        byte[] green = planes[planes.length == 3 ? GREEN : GRAY];
+        byte[] blue = planes[planes.length == 3 ? BLUE : GRAY];
+        forEachBand((start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                int base = row * width;
+                for (int col = 0; col < width; col++) {
+                    rgbs[col] = 0xFF000000 | (red[base + col] & 0xFF) << 16
+                        | (green[base + col] & 0xFF) << 8 | (blue[base + col] & 0xFF);
+                }
+                image.setRGBRow(row, rgbs);
+            }
+        });
+        return image;
+    }
+
+    /**
+     * @return the width of the image (in pixels)
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return the height of the image (in pixels)
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the number of channels, 1 or 3
+     */
+    public int channels() {
+        return planes.length;
+    }
+
+    /**
+     * Obtain the samples of one channel, stored row by row: the sample of pixel
+     * ({@code col}, {@code row}) is at index {@code row * width + col}, as an
+     * unsigned byte. The array is the plane itself, not a copy, so changing it
+     * changes this image.
+     *
+     * @param channel the channel, 0 <= channel < channels()
+     * @return the plane of the channel
+     */
+    public byte[] plane(int channel) {
+        validateChannel(channel);
+        return planes[channel];
+    }
+
+    /**
+     * Obtain one sample.
+     *
+     * @param channel the channel, 0 <= channel < channels()
+     * @param col     the column index, 0 <= col < width
+     * @param row     the row index, 0 <= row < height
+     * @return the value of the sample, between 0 and 255
+     */
+    public int get(int channel, int col, int row) {
+        validateChannel(channel);
+        validatePixel(col, row);
+        return planes[channel][row * width + col] & 0xFF;
+    }
+
+    /**
+     * Change one sample.
+     *
+     * @param channel the channel, 0 <= channel < channels()
+     * @param col     the column index, 0 <= col < width
+     * @param row     the row index, 0 <= row < height
+     * @param value   the new value of the sample, between 0 and 255
+     */
+    public void set(int channel, int col, int row, int value) {
+        validateChannel(channel);
+        validatePixel(col, row);
+        if (value < 0 || value > 255) {
+            throw new IllegalArgumentException("sample must be between 0 and 255");
+        }
+        planes[channel][row * width + col] = (byte) value;
+    }
+
+    /**
+     * Work applied to the rows [rowStart, rowEnd) of an image.
+     */
+    @FunctionalInterface
+    private interface Band {
+        void run(int rowStart, int rowEnd);
+    }
+
+    /**
+     * Run {@code band} over disjoint bands of rows covering the image, in parallel.
+     */
+    private void forEachBand(Band band) {
+        int bands = Math.min(height, 4 * Runtime.getRuntime().availableProcessors());
+        IntStream.range(0, bands).parallel().forEach(b ->
+            band.run((int) ((long) b * height / bands), (int) ((long) (b + 1) * height / bands)));
+    }
+
+    private void validateChannel(int channel) {
+        if (channel < 0 || channel >= planes.length) {
+            throw new IllegalArgumentException("channel must be between 0 and " + (planes.length - 1));
+        }
+    }
+
+    private void validatePixel(int col, int row) {
+        if (col < 0 || col >= width) {
+            throw new IllegalArgumentException("column index must be between 0 and " + (width - 1));
+        }
+        if (row < 0 || row >= height) {
+            throw new IllegalArgumentException("row index must be between 0 and " + (height - 1));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts images between the raw raster format (see {@link Image#saveRaw(File)})
+ * and the compressed formats supported by {@link javax.imageio.ImageIO}.
+ * <p>
+ * The direction is chosen from the file names: a <code>.raw</code> input is
+ * written in the format named by the extension of the output (<code>png</code>,
+ * <code>jpg</code>, ...), and any other input is written as a raw file.
+ */
+public final class RawConverter {
+    public static final String EXTENSION = ".raw";
+
+    private RawConverter() {
+    }
+
+    /**
+     * Convert an image file.
+     *
+     * @param input  the file to read, is not null
+     * @param output the file to write, is not null
+     * @throws IOException if either file cannot be accessed or is not a supported format
+     */
+    public static void convert(File input, File output) throws IOException {
+        if (isRaw(input)) {
+            String name = output.getName();
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                throw new IOException("output has no format extension: " + output);
+            }
+            Image.mapRaw(input).write(output, name.substring(dot + 1).toLowerCase());
+        } else {
+            Image image;
+            try {
+                image = new Image(input);
+            }
+            catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e.getCause());
+            }
+            image.saveRaw(output);
+        }
+    }
+
+    /**
+     * @return true if {@code file} is named as a raw raster file
+     */
+    public static boolean isRaw(File file) {
+        return file.getName().toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Convert images from the command line.
+     * Usage: <code>RawConverter input output [input output ...]</code>
+     *
+     * @param args pairs of input and output files
+     * @throws IOException if a file cannot be converted
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 != 0) {
+            System.out.println("usage: RawConverter input output [input output ...]");
+            return;
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            convert(new File(args[i]), new File(args[i + 1]));
+        }
+    }
+}
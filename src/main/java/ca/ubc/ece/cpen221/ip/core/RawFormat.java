@@ -0,0 +1,112 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the uncompressed raw raster format used for intermediate images.
+ * <p>
+ * A raw file is a 32-byte header followed by the pixels, all little-endian:
+ * <blockquote><pre>
+ *  offset  0: magic   0x57415249 ("IRAW")
+ *  offset  4: version 1
+ *  offset  8: width
+ *  offset 12: height
+ *  offset 16: layout  1 = one packed ARGB int per pixel
+ *  offset 20: origin  0 = upper left, 1 = lower left
+ *  offset 24: reserved (0)
+ *  offset 32: width * height ints, row by row from the top of the raster
+ * </pre></blockquote>
+ * The origin records how the image was being indexed when it was saved; it does not
+ * change the order of the rows. Because the pixels need no decoding and are aligned,
+ * a raw file is read by mapping it into memory and copying the pixels in bulk, and
+ * files shared between stages or processes are served from the OS page cache.
+ */
+final class RawFormat {
+    static final int MAGIC = 0x57415249;
+    static final int VERSION = 1;
+    static final int LAYOUT_ARGB = 1;
+    static final int HEADER_BYTES = 32;
+
+    private RawFormat() {
+    }
+
+    /**
+     * Write a raster to a raw file, replacing the file if it exists.
+     *
+     * @param image           the raster, is not null
+     * @param originUpperLeft true if the image is indexed from the upper left
+     * @param file            the file to write, is not null
+     * @throws IOException if the file cannot be written or the image is too large to map
+     */
+    static void write(BufferedImage image, boolean originUpperLeft, File file) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long size = HEADER_BYTES + 4L * width * height;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("image is too large for a raw file: " + width + "x" + height);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height)
+                .putInt(LAYOUT_ARGB).putInt(originUpperLeft ? 0 : 1).putLong(0);
+            IntBuffer pixels = buffer.asIntBuffer();
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                pixels.put(row);
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Read a raw file by mapping it into memory.
+     *
+     * @param file the file to read, is not null
+     * @return the image stored in {@code file}, indexed from the origin it was saved with
+     * @throws IOException if the file cannot be read or is not a valid raw file
+     */
+    static Image read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("not a raw image file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a raw image file: " + file);
+            }
+            int version = buffer.getInt();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int layout = buffer.getInt();
+            int origin = buffer.getInt();
+            if (version != VERSION || layout != LAYOUT_ARGB || (origin != 0 && origin != 1)) {
+                throw new IOException("unsupported raw image file: " + file);
+            }
+            if (width <= 0 || height <= 0 || size != HEADER_BYTES + 4L * width * height) {
+                throw new IOException("truncated or corrupt raw image file: " + file);
+            }
+            buffer.position(HEADER_BYTES);
+            BufferedImage raster = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            buffer.asIntBuffer().get(((DataBufferInt) raster.getRaster().getDataBuffer()).getData());
+            Image image = new Image(raster, file.getName());
+            if (origin == 1) {
+                image.setOriginLowerLeft();
+            }
+            return image;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This datatype represents a <code>width</code>-by-<code>height</code> image that
+ * is too large to hold in memory.
+ * <p>
+ * The image is cut into square tiles of <code>tileSize</code> pixels on a side, which
+ * are stored in a backing file. Tiles are read into memory when a pixel in them is
+ * accessed and kept in a least-recently-used cache; when the cache would exceed the
+ * memory budget, the least recently used tile is written back (if it was changed)
+ * and dropped. The memory used by an instance is therefore bounded by its budget
+ * however large the image is, and operations that visit the image tile by tile,
+ * such as those of {@code TiledTransformer}, read each tile about once.
+ * <p>
+ * Pixels use the same packed RGB encoding as {@link Image}; a new image is black.
+ * Methods that access pixels throw {@link UncheckedIOException} if the backing file
+ * cannot be read or written. Instances are safe for use by multiple threads.
+ */
+public final class TiledImage implements Closeable {
+    private static final int OPAQUE = 0xFF000000;
+
+    private final int width, height;
+    private final int tileSize;
+    private final int tileColumns, tileRows;
+    private final long memoryBudget;
+    private final int maxCachedTiles;
+    private final FileChannel channel;
+    private final ByteBuffer transfer;
+    private final LinkedHashMap<Integer, Tile> cache;
+    private long tileReads;
+    private long tileWrites;
+    private boolean closed;
+
+    /*
+        Abstraction Function:
+            Pixel (col, row) lies in tile t = (row / tileSize) * tileColumns + col / tileSize,
+            at index i = (row % tileSize) * tileSize + col % tileSize of the tile.
+            Its colour is cache.get(t).pixels[i] if tile t is cached, and otherwise the
+            int at byte offset 4 * (t * tileSize * tileSize + i) of the backing file
+            (0 if the file is shorter than that).
+
+        Representation Invariant:
+            width, height >= 1, tileSize >= 16
+            tileColumns == ceil(width / tileSize), tileRows == ceil(height / tileSize)
+            1 <= cache.size() <= maxCachedTiles, except when no pixel has been accessed
+            every cached tile holds tileSize * tileSize pixels
+            a cached tile that is not dirty matches the backing file
+     */
+
+    /**
+     * A tile held in memory.
+     */
+    private static final class Tile {
+        final int[] pixels;
+        boolean dirty;
+
+        Tile(int[] pixels) {
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * Creates a black {@code width}-by-{@code height} image backed by a temporary
+     * file, which is deleted when the image is closed.
+     *
+     * @param width        the width of the image, > 0
+     * @param height       the height of the image, > 0
+     * @param tileSize     the side of the square tiles, between 16 and 4096
+     * @param memoryBudget the number of bytes of tiles to keep in memory; at least
+     *                     one tile is always kept
+     * @throws IOException if the backing file cannot be created
+     */
+    public TiledImage(int width, int height, int tileSize, long memoryBudget) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be positive");
+        }
+        if (tileSize < 16 || tileSize > 4096) {
+            throw new IllegalArgumentException("tileSize must be between 16 and 4096");
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.memoryBudget = memoryBudget;
+        tileColumns = (width + tileSize - 1) / tileSize;
+        tileRows = (height + tileSize - 1) / tileSize;
+        int tileBytes = 4 * tileSize * tileSize;
+        maxCachedTiles = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / tileBytes));
+        channel = FileChannel.open(Files.createTempFile("tiles", ".tmp"), StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        transfer = ByteBuffer.allocate(tileBytes).order(ByteOrder.nativeOrder());
+        cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Creates a tiled copy of an image.
+     *
+     * @param image        the image to copy, is not null
+     * @param tileSize     the side of the square tiles, between 16 and 4096
+     * @param memoryBudget the number of bytes of tiles to keep in memory
+     * @return a tiled image with the same pixels as {@code image}
+     * @throws IOException if the backing file cannot be created
+     */
+    public static TiledImage fromImage(Image image, int tileSize, long memoryBudget)
+        throws IOException {
+        TiledImage tiled = new TiledImage(image.width(), image.height(), tileSize, memoryBudget);
+        int[] rgbs = new int[image.width()];
+        for (int row = 0; row < image.height(); row++) {
+            tiled.setRGBs(0, row, image.width(), image.getRGBRow(row, rgbs), 0);
+        }
+        return tiled;
+    }
+
+    /**
+     * Creates a tiled image by decoding an image file one band of tiles at a time,
+     * so that the whole image is never held in memory.
+     *
+     * @param file         the file (.png, .gif, .jpg, .tif, ...), is not null
+     * @param tileSize     the side of the square tiles, between 16 and 4096
+     * @param memoryBudget the number of bytes of tiles to keep in memory
+     * @return a tiled image of the first image in {@code file}
+     * @throws IOException if the file cannot be read or the backing file cannot be created
+     */
+    public static TiledImage read(File file, int tileSize, long memoryBudget) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+            if (stream == null) {
+                throw new IOException("could not open file: " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("unknown image format: " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, false, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                TiledImage tiled = new TiledImage(width, height, tileSize, memoryBudget);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int[] rgbs = new int[width];
+                for (int top = 0; top < height; top += tileSize) {
+                    int bandHeight = Math.min(tileSize, height - top);
+                    param.setSourceRegion(new java.awt.Rectangle(0, top, width, bandHeight));
+                    BufferedImage band = reader.read(0, param);
+                    for (int y = 0; y < bandHeight; y++) {
+                        band.getRGB(0, y, width, 1, rgbs, 0, width);
+                        tiled.setRGBs(0, top + y, width, rgbs, 0);
+                    }
+                }
+                return tiled;
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return the width of the image (in pixels)
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return the height of the image (in pixels)
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the side of the square tiles.
+     *
+     * @return the width and height of a tile (in pixels)
+     */
+    public int tileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the number of columns of tiles.
+     *
+     * @return ceil(width / tileSize)
+     */
+    public int tileColumns() {
+        return tileColumns;
+    }
+
+    /**
+     * Returns the number of rows of tiles.
+     *
+     * @return ceil(height / tileSize)
+     */
+    public int tileRows() {
+        return tileRows;
+    }
+
+    /**
+     * Returns the memory budget this image was created with.
+     *
+     * @return the number of bytes of tiles kept in memory
+     */
+    public long memoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Returns the number of tiles read from the backing file so far, which measures
+     * how well an access pattern suits the tile cache.
+     *
+     * @return the number of tiles read from the backing file
+     */
+    public synchronized long tileReads() {
+        return tileReads;
+    }
+
+    /**
+     * Returns the number of changed tiles written back to the backing file so far.
+     *
+     * @return the number of tiles written to the backing file
+     */
+    public synchronized long tileWrites() {
+        return tileWrites;
+    }
+
+    /**
+     * Returns the color of pixel ({@code col}, {@code row}) as an {@code int}.
+     *
+     * @param col the column index
+     * @param row the row index
+     * @return the 24-bit integer representation of the color of pixel ({@code col}, {@code row})
+     * @throws IllegalArgumentException unless both {@code 0 <= col < width} and {@code 0 <= row < height}
+     */
+    public synchronized int getRGB(int col, int row) {
+        validate(col, row, 1);
+        return tile(col, row).pixels[(row % tileSize) * tileSize + col % tileSize] | OPAQUE;
+    }
+
+    /**
+     * Sets the color of pixel ({@code col}, {@code row}) to the given color.
+     *
+     * @param col the column index
+     * @param row the row index
+     * @param rgb the integer representation of the color
+     * @throws IllegalArgumentException unless both {@code 0 <= col < width} and {@code 0 <= row < height}
+     */
+    public synchronized void setRGB(int col, int row, int rgb) {
+        validate(col, row, 1);
+        Tile tile = tile(col, row);
+        tile.pixels[(row % tileSize) * tileSize + col % tileSize] = rgb;
+        tile.dirty = true;
+    }
+
+    /**
+     * Copies the colours of {@code length} consecutive pixels of row {@code row},
+     * starting at column {@code col}, into {@code rgbs} starting at {@code offset}.
+     *
+     * @param col    the column of the first pixel
+     * @param row    the row index
+     * @param length the number of pixels, the span must lie inside the image
+     * @param rgbs   the destination array, with room for {@code length} entries after {@code offset}
+     * @param offset the index in {@code rgbs} of the first pixel
+     */
+    public synchronized void getRGBs(int col, int row, int length, int[] rgbs, int offset) {
+        validate(col, row, length);
+        int inTileRow = (row % tileSize) * tileSize;
+        for (int end = col + length; col < end; ) {
+            int span = Math.min(end, (col / tileSize + 1) * tileSize) - col;
+            int[] pixels = tile(col, row).pixels;
+            int from = inTileRow + col % tileSize;
+            for (int i = 0; i < span; i++) {
+                rgbs[offset + i] = pixels[from + i] | OPAQUE;
+            }
+            col += span;
+            offset += span;
+        }
+    }
+
+    /**
+     * Sets the colours of {@code length} consecutive pixels of row {@code row},
+     * starting at column {@code col}, from {@code rgbs} starting at {@code offset}.
+     *
+     * @param col    the column of the first pixel
+     * @param row    the row index
+     * @param length the number of pixels, the span must lie inside the image
+     * @param rgbs   the colours, with {@code length} entries after {@code offset}
+     * @param offset the index in {@code rgbs} of the first pixel
+     */
+    public synchronized void setRGBs(int col, int row, int length, int[] rgbs, int offset) {
+        validate(col, row, length);
+        int inTileRow = (row % tileSize) * tileSize;
+        for (int end = col + length; col < end; ) {
+            int span = Math.min(end, (col / tileSize + 1) * tileSize) - col;
+            Tile tile = tile(col, row);
+            System.arraycopy(rgbs, offset, tile.pixels, inTileRow + col % tileSize, span);
+            tile.dirty = true;
+            col += span;
+            offset += span;
+        }
+    }
+
+    /**
+     * Copies a region of the image into an {@link Image}.
+     *
+     * @param region the region to copy, with inclusive corners, lies inside the image
+     * @return an image holding the pixels of {@code region}
+     */
+    public Image getRegion(Rectangle region) {
+        return getRegion(region.xTopLeft, region.yTopLeft,
+            region.xBottomRight - region.xTopLeft + 1, region.yBottomRight - region.yTopLeft + 1);
+    }
+
+    /**
+     * Copies a region of the image into an {@link Image}.
+     *
+     * @param col          the column of the top-left corner of the region
+     * @param row          the row of the top-left corner of the region
+     * @param regionWidth  the width of the region, the region lies inside the image
+     * @param regionHeight the height of the region, the region lies inside the image
+     * @return an image holding the pixels of the region
+     */
+    public Image getRegion(int col, int row, int regionWidth, int regionHeight) {
+        validate(col, row, regionWidth);
+        validate(col, row + regionHeight - 1, regionWidth);
+        Image image = new Image(regionWidth, regionHeight);
+        int[] rgbs = new int[regionWidth];
+        for (int y = 0; y < regionHeight; y++) {
+            getRGBs(col, row + y, regionWidth, rgbs, 0);
+            image.setRGBRow(y, rgbs);
+        }
+        return image;
+    }
+
+    /**
+     * Copies an {@link Image} into the image with its top-left corner at
+     * ({@code col}, {@code row}).
+     *
+     * @param col   the column of the top-left corner
+     * @param row   the row of the top-left corner
+     * @param image the pixels to copy, must fit inside the image at ({@code col}, {@code row})
+     */
+    public void setRegion(int col, int row, Image image) {
+        validate(col, row, image.width());
+        validate(col, row + image.height() - 1, image.width());
+        int[] rgbs = new int[image.width()];
+        for (int y = 0; y < image.height(); y++) {
+            setRGBs(col, row + y, image.width(), image.getRGBRow(y, rgbs), 0);
+        }
+    }
+
+    /**
+     * Copies the whole image into an {@link Image}. Only use this when the image
+     * is known to fit in memory.
+     *
+     * @return an image with the same pixels as this image
+     */
+    public Image toImage() {
+        return getRegion(0, 0, width, height);
+    }
+
+    /**
+     * Writes every changed tile back to the backing file.
+     */
+    public synchronized void flush() {
+        for (Map.Entry<Integer, Tile> entry : cache.entrySet()) {
+            writeBack(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Releases the tile cache and deletes the backing file. The image cannot be
+     * used after it is closed.
+     *
+     * @throws IOException if the backing file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            cache.clear();
+            channel.close();
+        }
+    }
+
+    private void validate(int col, int row, int length) {
+        if (col < 0 || length < 1 || col + length > width) {
+            throw new IllegalArgumentException("columns " + col + " to " + (col + length - 1)
+                + " are not between 0 and " + (width - 1));
+        }
+        if (row < 0 || row >= height) {
+            throw new IllegalArgumentException("row index must be between 0 and " + (height - 1)
+                + ": " + row);
+        }
+    }
+
+    /**
+     * @return the cached tile holding pixel ({@code col}, {@code row}), reading
+     * it and evicting the least recently used tile if needed
+     */
+    private Tile tile(int col, int row) {
+        if (closed) {
+            throw new IllegalStateException("image is closed");
+        }
+        int index = (row / tileSize) * tileColumns + col / tileSize;
+        Tile tile = cache.get(index);
+        if (tile == null) {
+            if (cache.size() >= maxCachedTiles) {
+                Iterator<Map.Entry<Integer, Tile>> eldest = cache.entrySet().iterator();
+                Map.Entry<Integer, Tile> entry = eldest.next();
+                writeBack(entry.getKey(), entry.getValue());
+                eldest.remove();
+            }
+            tile = new Tile(readTile(index));
+            cache.put(index, tile);
+        }
+        return tile;
+    }
+
+    private int[] readTile(int index) {
+        int[] pixels = new int[tileSize * tileSize];
+        transfer.clear();
+        try {
+            long position = (long) index * transfer.capacity();
+            while (transfer.hasRemaining()) {
+                if (channel.read(transfer, position + transfer.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not read tile " + index, e);
+        }
+        Arrays.fill(transfer.array(), transfer.position(), transfer.capacity(), (byte) 0);
+        transfer.clear();
+        transfer.asIntBuffer().get(pixels);
+        tileReads++;
+        return pixels;
+    }
+
+    private void writeBack(int index, Tile tile) {
+        if (!tile.dirty) {
+            return;
+        }
+        transfer.clear();
+        transfer.asIntBuffer().put(tile.pixels);
+        try {
+            long position = (long) index * transfer.capacity();
+            while (transfer.hasRemaining()) {
+                channel.write(transfer, position + transfer.position());
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not write tile " + index, e);
+        }
+        tile.dirty = false;
+        tileWrites++;
+    }
+}
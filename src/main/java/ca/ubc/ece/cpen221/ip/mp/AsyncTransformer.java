@@ -0,0 +1,177 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImageProcessingException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs {@link ImageTransformer} and {@link ImageProcessing} operations without blocking
+ * the caller, returning a {@link CompletableFuture} of the result.
+ * <p>
+ * Operations run on a configurable {@link Executor}, and may be given a deadline, after
+ * which their future completes exceptionally with a {@link TimeoutException}. When the
+ * future of an operation completes early, because it was cancelled or its deadline
+ * passed, the operation itself stops: its long loops check for cancellation
+ * periodically (every band of rows, or every row or output value of serial loops such
+ * as {@code dft}) and abandon the work, so it does not go on using processors in the
+ * background. Bands of rows still run on the common fork-join pool, as they do for
+ * blocking calls.
+ */
+public class AsyncTransformer {
+    private final Executor executor;
+
+    /**
+     * An operation on an image, such as {@code t -> t.dft()}.
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+        /**
+         * @param transformer a transformer over the image
+         * @return the result of the operation
+         * @throws ImageProcessingException if the operation cannot be applied
+         */
+        T apply(ImageTransformer transformer) throws ImageProcessingException;
+    }
+
+    /**
+     * Any computation, such as {@code () -> ImageProcessing.matchTemplate(page, logo)}.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        /**
+         * @return the result of the computation
+         * @throws ImageProcessingException if the computation fails
+         */
+        T call() throws ImageProcessingException;
+    }
+
+    /**
+     * Create an AsyncTransformer that runs operations on the common fork-join pool.
+     */
+    public AsyncTransformer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create an AsyncTransformer that runs operations on an executor.
+     *
+     * @param executor runs the operations, is not null
+     */
+    public AsyncTransformer(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Apply an operation to an image.
+     *
+     * @param image     the image, is not null
+     * @param operation the operation, is not null
+     * @return the future result of the operation
+     */
+    public <T> CompletableFuture<T> transform(Image image, Operation<T> operation) {
+        return start(transformTask(image, operation), new Cancellation());
+    }
+
+    /**
+     * Apply an operation to an image, giving up if it takes longer than a timeout.
+     *
+     * @param image     the image, is not null
+     * @param operation the operation, is not null
+     * @param timeout   the time the operation may take from now, >= 0
+     * @param unit      the unit of {@code timeout}, is not null
+     * @return the future result of the operation, which completes with a
+     * {@link TimeoutException} if the timeout passes first
+     */
+    public <T> CompletableFuture<T> transform(Image image, Operation<T> operation,
+                                              long timeout, TimeUnit unit) {
+        return submit(transformTask(image, operation), timeout, unit);
+    }
+
+    /**
+     * Run a computation.
+     *
+     * @param task the computation, is not null
+     * @return the future result of the computation
+     */
+    public <T> CompletableFuture<T> submit(Task<T> task) {
+        if (task == null) {
+            throw new IllegalArgumentException("task cannot be null");
+        }
+        return start(task, new Cancellation());
+    }
+
+    /**
+     * Run a computation, giving up if it takes longer than a timeout.
+     *
+     * @param task    the computation, is not null
+     * @param timeout the time the computation may take from now, >= 0
+     * @param unit    the unit of {@code timeout}, is not null
+     * @return the future result of the computation, which completes with a
+     * {@link TimeoutException} if the timeout passes first
+     */
+    public <T> CompletableFuture<T> submit(Task<T> task, long timeout, TimeUnit unit) {
+        if (task == null || unit == null) {
+            throw new IllegalArgumentException("task and unit cannot be null");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        CompletableFuture<T> future = start(task, new Cancellation(unit.toNanos(timeout)));
+        return future.orTimeout(timeout, unit);
+    }
+
+    private static <T> Task<T> transformTask(Image image, Operation<T> operation) {
+        if (image == null || operation == null) {
+            throw new IllegalArgumentException("image and operation cannot be null");
+        }
+        return () -> operation.apply(new ImageTransformer(image));
+    }
+
+    /**
+     * Start a computation under a cancellation, which is cancelled as soon as the
+     * returned future completes in any way.
+     */
+    private <T> CompletableFuture<T> start(Task<T> task, Cancellation cancellation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, failure) -> cancellation.cancel());
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(cancellation.call(() -> {
+                        try {
+                            return task.call();
+                        } catch (ImageProcessingException e) {
+                            throw new CompletionException(e);
+                        }
+                    }));
+                } catch (CancellationException e) {
+                    if (cancellation.isExpired()) {
+                        future.completeExceptionally(new TimeoutException(e.getMessage()));
+                    } else {
+                        future.completeExceptionally(e);
+                    }
+                } catch (CompletionException e) {
+                    future.completeExceptionally(e.getCause());
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
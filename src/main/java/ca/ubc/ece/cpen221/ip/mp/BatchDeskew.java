@@ -0,0 +1,340 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImagePages;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deskews every page of a set of scanned documents and writes each page as a PNG.
+ * <p>
+ * Inputs may be image files, multi-page TIFF files (read through the JDK's TIFF
+ * plugin) or directories, which are searched recursively. Work is pipelined in
+ * three stages connected by bounded queues: a decoder reads pages one at a time,
+ * a pool of workers estimates the skew of each page and rotates it (see
+ * {@link ImageTransformer#alignTextImage(SkewEstimator, double)}), and a pool of
+ * encoders writes the results. Because the queues are bounded, at most a few pages
+ * per thread are held in memory however long a document is. The worker and encoder
+ * stages are run by {@link BatchPipeline}'s stage machinery, so a page that fails in
+ * either is reported in the same way and the batch carries on.
+ * <p>
+ * Pages of a TIFF file <code>scan.tif</code> are written as <code>scan-p1.png</code>,
+ * <code>scan-p2.png</code>, ...; any other file <code>page.jpg</code> is written as
+ * <code>page.png</code>. A file found inside an input directory keeps its path
+ * relative to that directory, so <code>in/a/page.jpg</code> is written as
+ * <code>out/a/page.png</code>. A page whose output file has already been claimed by
+ * an earlier page of the batch, such as <code>page.gif</code> next to
+ * <code>page.jpg</code>, is reported as a failure instead of overwriting it.
+ */
+public class BatchDeskew {
+    private static final Page END = new Page(null, null);
+
+    private final SkewEstimator estimator;
+    private final double minimumConfidence;
+    private final int workers;
+    private final int encoders;
+
+    /**
+     * Create a batch deskewer.
+     *
+     * @param estimator         the skew estimation strategy, is not null
+     * @param minimumConfidence the confidence a skew estimate needs before a page is rotated
+     * @param workers           the number of threads estimating and rotating pages, >= 1
+     * @param encoders          the number of threads writing pages, >= 1
+     */
+    public BatchDeskew(SkewEstimator estimator, double minimumConfidence, int workers,
+                       int encoders) {
+        if (estimator == null) {
+            throw new IllegalArgumentException("estimator cannot be null");
+        }
+        if (workers < 1 || encoders < 1) {
+            throw new IllegalArgumentException("each stage needs at least one thread");
+        }
+        this.estimator = estimator;
+        this.minimumConfidence = minimumConfidence;
+        this.workers = workers;
+        this.encoders = encoders;
+    }
+
+    /**
+     * An input file and its path, relative to the input directory it was found in,
+     * with '/' between the names.
+     */
+    private static final class Source {
+        final File file;
+        final String path;
+
+        Source(File file, String path) {
+            this.file = file;
+            this.path = path;
+        }
+    }
+
+    /**
+     * A page travelling through the pipeline; its name is the path of its output
+     * file relative to the output directory.
+     */
+    private static final class Page {
+        final String name;
+        Image image;
+
+        Page(String name, Image image) {
+            this.name = name;
+            this.image = image;
+        }
+    }
+
+    /**
+     * The outcome of a batch: how many pages went through each stage, how much
+     * thread time each stage used, and the wall-clock time of the whole batch.
+     */
+    public static final class Report {
+        private static final String[] STAGES = {"decode", "estimate", "rotate", "encode"};
+
+        public final int pages;
+        public final int rotated;
+        public final List<String> failures;
+        public final long wallNanos;
+        private final long[] stagePages;
+        private final long[] stageNanos;
+
+        private Report(int pages, int rotated, List<String> failures, long wallNanos,
+                       long[] stagePages, long[] stageNanos) {
+            this.pages = pages;
+            this.rotated = rotated;
+            this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+            this.wallNanos = wallNanos;
+            this.stagePages = stagePages.clone();
+            this.stageNanos = stageNanos.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d pages (%d rotated, %d failed) in %.2f s: %.1f pages/s%n",
+                pages, rotated, failures.size(), wallNanos / 1e9,
+                pages / Math.max(1e-9, wallNanos / 1e9)));
+            for (int i = 0; i < STAGES.length; i++) {
+                double seconds = stageNanos[i] / 1e9;
+                sb.append(String.format("  %-8s %6d pages  %8.2f thread-s  %8.1f pages per thread-s%n",
+                    STAGES[i], stagePages[i], seconds, stagePages[i] / Math.max(1e-9, seconds)));
+            }
+            for (String failure : failures) {
+                sb.append("  failed: ").append(failure).append(System.lineSeparator());
+            }
+            return sb.toString().trim();
+        }
+    }
+
+    /**
+     * Deskew every page of the inputs and write the results to a directory.
+     *
+     * @param inputs          image files, TIFF files and directories, is not null
+     * @param outputDirectory the directory to write pages to; created if needed
+     * @return a report of the batch, including per-stage throughput
+     * @throws IOException if the output directory cannot be created
+     */
+    public Report run(List<File> inputs, File outputDirectory) throws IOException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("could not create directory: " + outputDirectory);
+        }
+        long start = System.nanoTime();
+        BlockingQueue<Page> toProcess = new ArrayBlockingQueue<>(2 * workers);
+        BlockingQueue<Page> toEncode = new ArrayBlockingQueue<>(2 * encoders);
+        AtomicLong[] stageNanos = {new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong()};
+        AtomicLong processed = new AtomicLong();
+        AtomicLong written = new AtomicLong();
+        AtomicInteger rotated = new AtomicInteger();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        BatchPipeline.Failure<Page> failure = (page, stage, cause) ->
+            failures.add(page.name + ": " + cause);
+
+        ExecutorService cpu = Executors.newFixedThreadPool(workers);
+        ExecutorService io = Executors.newFixedThreadPool(encoders);
+        // the stage time covers estimation and rotation; estimation is also timed alone
+        BatchPipeline.startStage(cpu, workers, "deskew", toProcess, toEncode, encoders, END,
+            failure, processed, stageNanos[2], page -> {
+                long t0 = System.nanoTime();
+                ImageTransformer transformer = new ImageTransformer(page.image);
+                SkewEstimate skew = transformer.estimateSkew(estimator);
+                stageNanos[1].addAndGet(System.nanoTime() - t0);
+                if (skew.degrees != 0 && skew.confidence >= minimumConfidence) {
+                    page.image = transformer.rotate(skew.correction());
+                    rotated.incrementAndGet();
+                }
+            });
+        BatchPipeline.startStage(io, encoders, "encode", toEncode, null, 0, END, failure,
+            written, stageNanos[3], page -> {
+                File file = new File(outputDirectory, page.name);
+                File parent = file.getParentFile();
+                if (!parent.mkdirs() && !parent.isDirectory()) {
+                    throw new IOException("could not create directory: " + parent);
+                }
+                page.image.write(file, "png");
+                page.image = null;
+            });
+
+        long[] stagePages = new long[4];
+        try {
+            stagePages[0] = decode(expand(inputs), toProcess, stageNanos[0], failures);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            // however decoding ended, the workers are waiting for their end markers
+            finish(toProcess, cpu, io);
+        }
+        stagePages[1] = processed.get();
+        stagePages[2] = processed.get();
+        stagePages[3] = written.get();
+        long[] nanos = new long[4];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = stageNanos[i].get();
+        }
+        nanos[2] -= nanos[1];
+        return new Report((int) stagePages[3], rotated.get(), failures,
+            System.nanoTime() - start, stagePages, nanos);
+    }
+
+    /**
+     * Hand each worker its end marker and wait for both stages to drain, or stop
+     * them if the calling thread is interrupted.
+     */
+    private void finish(BlockingQueue<Page> toProcess, ExecutorService cpu,
+                        ExecutorService io) {
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            for (int i = 0; i < workers; i++) {
+                toProcess.put(END);
+            }
+            cpu.shutdown();
+            io.shutdown();
+            cpu.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            io.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            cpu.shutdownNow();
+            io.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Decode the pages of every file in order and hand them to the workers,
+     * blocking whenever the workers fall behind. A file that cannot be decoded,
+     * whether the image reader reports it or fails outright, and a page whose
+     * output name is already taken, are recorded in {@code failures}.
+     *
+     * @return the number of pages decoded
+     */
+    private static long decode(List<Source> sources, BlockingQueue<Page> toProcess,
+                               AtomicLong nanos, List<String> failures)
+        throws InterruptedException {
+        long decoded = 0;
+        Set<String> names = new HashSet<>();
+        for (Source source : sources) {
+            String base = source.path;
+            boolean multiPage = base.toLowerCase().matches(".*\\.tiff?$");
+            if (base.lastIndexOf('.') > base.lastIndexOf('/') + 1) {
+                base = base.substring(0, base.lastIndexOf('.'));
+            }
+            long t0 = System.nanoTime();
+            try (ImagePages pages = new ImagePages(source.file)) {
+                while (pages.hasNext()) {
+                    String name = multiPage
+                        ? base + "-p" + (pages.pageIndex() + 1) + ".png" : base + ".png";
+                    Image page = pages.next();
+                    nanos.addAndGet(System.nanoTime() - t0);
+                    if (names.add(name)) {
+                        decoded++;
+                        toProcess.put(new Page(name, page));
+                    } else {
+                        failures.add(source.file + ": " + name
+                            + " is already taken by another page");
+                    }
+                    t0 = System.nanoTime();
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                failures.add(source.file + ": " + e);
+            }
+            nanos.addAndGet(System.nanoTime() - t0);
+        }
+        return decoded;
+    }
+
+    /**
+     * @return the files among {@code inputs} and, recursively, inside the
+     * directories among {@code inputs}, in name order within each directory, each
+     * with its path relative to the input it was found under
+     */
+    private static List<Source> expand(List<File> inputs) {
+        List<Source> sources = new ArrayList<>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                expand(input, "", sources);
+            } else {
+                sources.add(new Source(input, input.getName()));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Add the files inside {@code directory}, recursively, to {@code sources}, with
+     * {@code prefix} in front of their paths.
+     */
+    private static void expand(File directory, String prefix, List<Source> sources) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory()) {
+                expand(child, prefix + child.getName() + "/", sources);
+            } else {
+                sources.add(new Source(child, prefix + child.getName()));
+            }
+        }
+    }
+
+    /**
+     * Deskew scanned pages from the command line.
+     * Usage: <code>BatchDeskew output-directory input...</code>
+     *
+     * @param args the output directory followed by the input files and directories
+     * @throws IOException if the output directory cannot be created
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: BatchDeskew output-directory input...");
+            return;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        BatchDeskew batch = new BatchDeskew(new ProjectionProfileSkewEstimator(), 0.5,
+            processors, Math.max(1, processors / 2));
+        List<File> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            inputs.add(new File(args[i]));
+        }
+        System.out.println(batch.run(inputs, new File(args[0])));
+    }
+}
@@ -0,0 +1,333 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImageProcessingException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a chain of {@link ImageTransformer} operations over a set of image files.
+ * <p>
+ * Decoding, transforming and encoding are separate stages, each with its own number
+ * of threads, connected by bounded queues. A stage that gets ahead blocks until the
+ * next stage catches up, so memory stays bounded and the throughput of the whole batch
+ * approaches that of its slowest stage rather than the sum of the stages. Decoders and
+ * encoders run on their own pool so that disk I/O overlaps with computation.
+ * <p>
+ * A file that fails in any stage is recorded as a {@link DeadLetter} and the batch
+ * carries on with the other files.
+ * <p>
+ * Each result is written to the output directory under the name of its input file,
+ * keeping a <code>.jpg</code> or <code>.png</code> extension and otherwise using
+ * <code>.png</code>. When several inputs would be written to the same file, such as
+ * <code>a/x.jpg</code> and <code>b/x.jpg</code>, or <code>x.tif</code> and
+ * <code>x.gif</code>, only the first of them in the list is processed; each later one
+ * is recorded as a dead letter of the encode stage without being decoded, so no
+ * result overwrites another.
+ */
+public class BatchPipeline {
+    private static final Item END = new Item(null, null);
+
+    private final List<Operation> operations;
+    private final int decoders;
+    private final int workers;
+    private final int encoders;
+    private final int queueCapacity;
+
+    /**
+     * One step of the operation chain, such as {@code t -> t.blockPaint(4)}.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * @param transformer a transformer over the result of the previous step
+         * @return the transformed image
+         * @throws ImageProcessingException if the operation cannot be applied
+         */
+        Image apply(ImageTransformer transformer) throws ImageProcessingException;
+    }
+
+    /**
+     * A file that could not be processed.
+     */
+    public static final class DeadLetter {
+        public final File file;
+        public final String stage;
+        public final Exception cause;
+
+        DeadLetter(File file, String stage, Exception cause) {
+            this.file = file;
+            this.stage = stage;
+            this.cause = cause;
+        }
+
+        @Override
+        public String toString() {
+            return file + " (" + stage + "): " + cause;
+        }
+    }
+
+    /**
+     * The outcome of a batch.
+     */
+    public static final class Result {
+        private static final String[] STAGES = {"decode", "transform", "encode"};
+
+        public final int written;
+        public final List<DeadLetter> deadLetters;
+        public final long wallNanos;
+        private final long[] stageItems;
+        private final long[] stageNanos;
+
+        private Result(int written, List<DeadLetter> deadLetters, long wallNanos,
+                       long[] stageItems, long[] stageNanos) {
+            this.written = written;
+            this.deadLetters = Collections.unmodifiableList(new ArrayList<>(deadLetters));
+            this.wallNanos = wallNanos;
+            this.stageItems = stageItems;
+            this.stageNanos = stageNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d images written, %d failed, in %.2f s: %.1f images/s%n",
+                written, deadLetters.size(), wallNanos / 1e9,
+                written / Math.max(1e-9, wallNanos / 1e9)));
+            for (int i = 0; i < STAGES.length; i++) {
+                sb.append(String.format("  %-9s %6d images  %8.2f thread-s%n",
+                    STAGES[i], stageItems[i], stageNanos[i] / 1e9));
+            }
+            for (DeadLetter deadLetter : deadLetters) {
+                sb.append("  failed: ").append(deadLetter).append(System.lineSeparator());
+            }
+            return sb.toString().trim();
+        }
+    }
+
+    /**
+     * A file travelling through the pipeline, and the name its result is written under.
+     */
+    private static final class Item {
+        final File file;
+        final String name;
+        Image image;
+
+        Item(File file, String name) {
+            this.file = file;
+            this.name = name;
+        }
+    }
+
+    /**
+     * The work of one stage on one item.
+     */
+    @FunctionalInterface
+    interface Step<T> {
+        void run(T item) throws Exception;
+    }
+
+    /**
+     * Records an item that failed in a stage; the item goes no further.
+     */
+    @FunctionalInterface
+    interface Failure<T> {
+        void record(T item, String stage, Exception cause);
+    }
+
+    /**
+     * Create a pipeline.
+     *
+     * @param operations    the operations to apply to each image, in order, is not null
+     * @param decoders      the number of threads decoding files, >= 1
+     * @param workers       the number of threads applying the operations, >= 1
+     * @param encoders      the number of threads encoding results, >= 1
+     * @param queueCapacity the number of images that may wait between two stages, >= 1
+     */
+    public BatchPipeline(List<Operation> operations, int decoders, int workers, int encoders,
+                         int queueCapacity) {
+        if (operations == null) {
+            throw new IllegalArgumentException("operations cannot be null");
+        }
+        if (decoders < 1 || workers < 1 || encoders < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("stage sizes and queue capacity must be positive");
+        }
+        this.operations = new ArrayList<>(operations);
+        this.decoders = decoders;
+        this.workers = workers;
+        this.encoders = encoders;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Create a pipeline with one decoder and one encoder per two processors, one
+     * worker per processor, and room for two images per worker between stages.
+     *
+     * @param operations the operations to apply to each image, in order, is not null
+     */
+    public BatchPipeline(List<Operation> operations) {
+        this(operations, Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            Runtime.getRuntime().availableProcessors(),
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Process every file and write the results to a directory.
+     *
+     * @param files           the image files to process, is not null
+     * @param outputDirectory the directory to write results to; created if needed
+     * @return the number of results written, the dead letters, and per-stage timings
+     * @throws IOException if the output directory cannot be created
+     */
+    public Result run(List<File> files, File outputDirectory) throws IOException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("could not create directory: " + outputDirectory);
+        }
+        long start = System.nanoTime();
+        BlockingQueue<Item> toDecode = new LinkedBlockingQueue<>();
+        BlockingQueue<Item> toTransform = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> toEncode = new ArrayBlockingQueue<>(queueCapacity);
+        List<DeadLetter> deadLetters = Collections.synchronizedList(new ArrayList<>());
+        Map<String, File> claimed = new HashMap<>();
+        for (File file : files) {
+            String name = outputName(file);
+            File first = claimed.putIfAbsent(name, file);
+            if (first == null) {
+                toDecode.add(new Item(file, name));
+            } else {
+                deadLetters.add(new DeadLetter(file, "encode",
+                    new IOException(name + " is already written for " + first)));
+            }
+        }
+        for (int i = 0; i < decoders; i++) {
+            toDecode.add(END);
+        }
+
+        AtomicLong[] items = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+        AtomicLong[] nanos = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+
+        ExecutorService io = Executors.newFixedThreadPool(decoders + encoders);
+        ExecutorService cpu = Executors.newFixedThreadPool(workers);
+
+        Failure<Item> failure = (item, stage, cause) ->
+            deadLetters.add(new DeadLetter(item.file, stage, cause));
+        startStage(io, decoders, "decode", toDecode, toTransform, workers, END, failure,
+            items[0], nanos[0], item -> item.image = new Image(item.file));
+        startStage(cpu, workers, "transform", toTransform, toEncode, encoders, END, failure,
+            items[1], nanos[1], item -> {
+                for (Operation operation : operations) {
+                    item.image = operation.apply(new ImageTransformer(item.image));
+                }
+            });
+        startStage(io, encoders, "encode", toEncode, null, 0, END, failure,
+            items[2], nanos[2], item -> {
+                item.image.write(new File(outputDirectory, item.name),
+                    item.name.substring(item.name.lastIndexOf('.') + 1));
+                item.image = null;
+            });
+
+        try {
+            io.shutdown();
+            cpu.shutdown();
+            io.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            cpu.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            io.shutdownNow();
+            cpu.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        long[] stageItems = new long[3];
+        long[] stageNanos = new long[3];
+        for (int i = 0; i < 3; i++) {
+            stageItems[i] = items[i].get();
+            stageNanos[i] = nanos[i].get();
+        }
+        return new Result((int) stageItems[2], deadLetters, System.nanoTime() - start,
+            stageItems, stageNanos);
+    }
+
+    /**
+     * @return the name of the file a result for {@code input} is written to
+     */
+    private static String outputName(File input) {
+        String name = input.getName();
+        String lower = name.toLowerCase();
+        if (lower.endsWith(".jpg") || lower.endsWith(".png")) {
+            return name.substring(0, name.length() - 4) + lower.substring(lower.length() - 4);
+        }
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + ".png";
+    }
+
+    /**
+     * Start {@code threads} threads that take items from {@code in}, run {@code step}
+     * on them and pass them to {@code out}. An item whose step throws is handed to
+     * {@code failure} and dropped. When every thread of the stage has seen the end
+     * marker, the last one passes {@code downstream} end markers on, blocking until
+     * the next stage has room for them.
+     *
+     * @param out   the queue to the next stage, or null for the last stage
+     * @param end   the end marker, compared by identity
+     * @param items counts the items the stage completed
+     * @param nanos accumulates the thread time of the stage
+     */
+    static <T> void startStage(ExecutorService pool, int threads, String name,
+                               BlockingQueue<T> in, BlockingQueue<T> out, int downstream,
+                               T end, Failure<T> failure, AtomicLong items, AtomicLong nanos,
+                               Step<T> step) {
+        AtomicInteger running = new AtomicInteger(threads);
+        for (int i = 0; i < threads; i++) {
+            pool.execute(() -> {
+                try {
+                    for (T item = in.take(); item != end; item = in.take()) {
+                        long t0 = System.nanoTime();
+                        boolean ok = false;
+                        try {
+                            step.run(item);
+                            items.incrementAndGet();
+                            ok = true;
+                        }
+                        catch (Exception e) {
+                            failure.record(item, name, e);
+                        }
+                        nanos.addAndGet(System.nanoTime() - t0);
+                        if (ok && out != null) {
+                            out.put(item);
+                        }
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    if (running.decrementAndGet() == 0 && out != null) {
+                        try {
+                            for (int j = 0; j < downstream; j++) {
+                                out.put(end);
+                            }
+                        }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * A request to stop an operation, made by cancelling it or by its deadline passing.
+ * <p>
+ * Operations do not poll a future; instead, long loops call {@link #check()} on the
+ * cancellation of the operation that runs them, which throws once the operation should
+ * stop. The cancellation of the running operation is found with {@link #current()}: it
+ * is attached to the thread by {@link #call(Supplier)}. Work handed to other threads
+ * (bands of rows, parallel streams) must capture the cancellation in the calling thread
+ * and check it, or attach it, on the worker thread; {@link RowBands} does this for its
+ * bands. Operations that were not started by {@link AsyncTransformer} run under
+ * {@link #NONE}, which is never cancelled.
+ */
+final class Cancellation {
+    static final Cancellation NONE = new Cancellation();
+
+    private static final ThreadLocal<Cancellation> CURRENT = ThreadLocal.withInitial(() -> NONE);
+
+    private final long deadline;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled;
+
+    /*
+        Abstraction Function:
+            The operation should stop once cancelled is true or, if hasDeadline,
+            once System.nanoTime() passes deadline.
+
+        Representation Invariant:
+            NONE is never cancelled and has no deadline
+     */
+
+    /**
+     * Create a cancellation without a deadline.
+     */
+    Cancellation() {
+        deadline = 0;
+        hasDeadline = false;
+    }
+
+    /**
+     * Create a cancellation whose deadline is a given time from now.
+     *
+     * @param timeoutNanos the time the operation may take, in nanoseconds
+     */
+    Cancellation(long timeoutNanos) {
+        deadline = System.nanoTime() + timeoutNanos;
+        hasDeadline = true;
+    }
+
+    /**
+     * @return the cancellation attached to the current thread, or {@link #NONE}
+     */
+    static Cancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Ask the operation to stop at its next check.
+     */
+    void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * @return true if the operation was cancelled
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the operation has a deadline and it has passed
+     */
+    boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Stop the operation if it was cancelled or its deadline has passed.
+     *
+     * @throws CancellationException if so
+     */
+    void check() {
+        if (cancelled) {
+            throw new CancellationException("operation cancelled");
+        }
+        if (isExpired()) {
+            throw new CancellationException("operation deadline passed");
+        }
+    }
+
+    /**
+     * Check this cancellation, then run some work with it attached to the current
+     * thread, restoring the previous cancellation afterwards.
+     *
+     * @param work the work to run, is not null
+     * @return the result of the work
+     * @throws CancellationException if the operation should stop
+     */
+    <T> T call(Supplier<T> work) {
+        check();
+        Cancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * As {@link #call(Supplier)}, for work without a result.
+     *
+     * @param work the work to run, is not null
+     * @throws CancellationException if the operation should stop
+     */
+    void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,320 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.ColourConversion;
+import ca.ubc.ece.cpen221.ip.core.ColourSpace;
+import ca.ubc.ece.cpen221.ip.core.Image;
+
+import java.awt.Color;
+
+/**
+ * An alpha matte that separates a coloured screen from the foreground of an
+ * image, together with the operations that build on it: finding the screen
+ * region and compositing a background over it.
+ * <p>
+ * The matte holds one unsigned byte per pixel: 255 where the pixel is within
+ * the tolerance of the key colour, 0 where it is at least twice the tolerance
+ * away, and a linear ramp in between so that screen edges blend smoothly.
+ */
+final class ChromaKey {
+    static final int KEYED = 255;
+
+    final int width;
+    final int height;
+    final byte[] matte;
+
+    /*
+        Abstraction Function:
+            The alpha of pixel (col, row) is matte[row * width + col] & 0xFF, where
+            255 means "all screen" and 0 means "all foreground".
+
+        Representation Invariant:
+            width >= 1, height >= 1
+            matte.length == width * height
+     */
+
+    ChromaKey(byte[] matte, int width, int height) {
+        this.matte = matte;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Describes the screen: the largest 8-connected region of fully keyed pixels.
+     */
+    static final class Screen {
+        /** labels[i] is the id (>= 1) of the region containing pixel i, or 0 if not keyed */
+        final int[] labels;
+        /** the id of the largest region, or 0 if no pixel is keyed */
+        final int label;
+        /** the inclusive bounding box of the largest region */
+        final int xTopLeft, yTopLeft, xBottomRight, yBottomRight;
+
+        Screen(int[] labels, int label, int xTopLeft, int yTopLeft,
+               int xBottomRight, int yBottomRight) {
+            this.labels = labels;
+            this.label = label;
+            this.xTopLeft = xTopLeft;
+            this.yTopLeft = yTopLeft;
+            this.xBottomRight = xBottomRight;
+            this.yBottomRight = yBottomRight;
+        }
+
+        boolean isEmpty() {
+            return label == 0;
+        }
+    }
+
+    /**
+     * Compute the matte of an image in one parallel pass.
+     *
+     * @param image     the image to key, is not null
+     * @param key       the screen colour, is not null
+     * @param tolerance the distance within which a pixel is fully keyed, >= 0
+     * @param space     the colour space in which distances are measured, is not null
+     * @return the matte of {@code image}
+     */
+    static ChromaKey of(Image image, Color key, int tolerance, ColourSpace space) {
+        if (key == null || space == null) {
+            throw new IllegalArgumentException("screen colour and colour space cannot be null");
+        }
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance must be non-negative");
+        }
+        int width = image.width();
+        int height = image.height();
+        byte[] matte = new byte[width * height];
+        Distance distance = new Distance(key.getRGB(), tolerance, space);
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                distance.alphaRow(rgbs, matte, row * width, width);
+            }
+        });
+        return new ChromaKey(matte, width, height);
+    }
+
+    /**
+     * Integer distance computations against a fixed key colour. Distances are
+     * compared squared; a square root is taken only for pixels in the soft ramp.
+     */
+    static final class Distance {
+        private final ColourSpace space;
+        private final int tolerance;
+        private final long inner;
+        private final long outer;
+        private final int keyA, keyB, keyC;
+
+        Distance(int keyRGB, int tolerance, ColourSpace space) {
+            this.space = space;
+            this.tolerance = tolerance;
+            inner = scaled((long) tolerance * tolerance);
+            outer = scaled(4L * tolerance * tolerance);
+            int[] k = components(keyRGB);
+            keyA = k[0];
+            keyB = k[1];
+            keyC = k[2];
+        }
+
+        /* chroma components carry 8 fractional bits, so squared distances carry 16 */
+        private long scaled(long squared) {
+            return space == ColourSpace.YCBCR ? squared << 16 : squared;
+        }
+
+        private int[] components(int rgb) {
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            if (space == ColourSpace.YCBCR) {
+                // BT.601 chroma scaled by 256
+                return new int[] {-43 * r - 85 * g + 128 * b, 128 * r - 107 * g - 21 * b, 0};
+            }
+            if (space == ColourSpace.LAB) {
+                int lab = ColourConversion.toLab(rgb);
+                return new int[] {(lab >> 16) & 0xFF, (lab >> 8) & 0xFF, lab & 0xFF};
+            }
+            return new int[] {r, g, b};
+        }
+
+        /**
+         * @return the squared distance of rgb from the key, in the scaled units of this space
+         */
+        long squaredDistance(int rgb) {
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            if (space == ColourSpace.YCBCR) {
+                long dcb = -43 * r - 85 * g + 128 * b - keyA;
+                long dcr = 128 * r - 107 * g - 21 * b - keyB;
+                return dcb * dcb + dcr * dcr;
+            }
+            if (space == ColourSpace.LAB) {
+                int lab = ColourConversion.toLab(rgb);
+                long dl = ((lab >> 16) & 0xFF) - keyA;
+                long da = ((lab >> 8) & 0xFF) - keyB;
+                long db = (lab & 0xFF) - keyC;
+                return dl * dl + da * da + db * db;
+            }
+            long dr = r - keyA;
+            long dg = g - keyB;
+            long db = b - keyC;
+            return dr * dr + dg * dg + db * db;
+        }
+
+        int alpha(int rgb) {
+            long d2 = squaredDistance(rgb);
+            if (d2 <= inner) {
+                return KEYED;
+            }
+            if (d2 >= outer) {
+                return 0;
+            }
+            double d = Math.sqrt(space == ColourSpace.YCBCR ? d2 / 65536.0 : d2);
+            return (int) Math.round(KEYED * (2 * tolerance - d) / tolerance);
+        }
+
+        void alphaRow(int[] rgbs, byte[] matte, int offset, int width) {
+            for (int col = 0; col < width; col++) {
+                matte[offset + col] = (byte) alpha(rgbs[col]);
+            }
+        }
+    }
+
+    /**
+     * Find the largest 8-connected region of fully keyed pixels.
+     *
+     * @return the labelled screen region
+     */
+    Screen largestRegion() {
+        int[] labels = new int[width * height];
+        int[] queue = new int[width * height];
+        int nextLabel = 0;
+        int best = 0;
+        int bestSize = 0;
+        int[] bestBox = new int[4];
+        Cancellation cancellation = Cancellation.current();
+
+        for (int start = 0; start < matte.length; start++) {
+            if (start % width == 0) {
+                cancellation.check();
+            }
+            if (labels[start] != 0 || (matte[start] & 0xFF) != KEYED) {
+                continue;
+            }
+            nextLabel++;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            labels[start] = nextLabel;
+            int minC = width, minR = height, maxC = -1, maxR = -1;
+            while (head < tail) {
+                int p = queue[head++];
+                int col = p % width;
+                int row = p / width;
+                minC = Math.min(minC, col);
+                maxC = Math.max(maxC, col);
+                minR = Math.min(minR, row);
+                maxR = Math.max(maxR, row);
+                for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, row + 1); r++) {
+                    for (int c = Math.max(0, col - 1); c <= Math.min(width - 1, col + 1); c++) {
+                        int q = r * width + c;
+                        if (labels[q] == 0 && (matte[q] & 0xFF) == KEYED) {
+                            labels[q] = nextLabel;
+                            queue[tail++] = q;
+                        }
+                    }
+                }
+            }
+            if (tail > bestSize) {
+                bestSize = tail;
+                best = nextLabel;
+                bestBox = new int[] {minC, minR, maxC, maxR};
+            }
+        }
+        return new Screen(labels, best, bestBox[0], bestBox[1], bestBox[2], bestBox[3]);
+    }
+
+    /**
+     * Render the matte as a grayscale image, white where the screen shows.
+     *
+     * @return the matte as an image
+     */
+    Image toImage() {
+        Image output = new Image(width, height);
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                for (int col = 0; col < width; col++) {
+                    int a = matte[row * width + col] & 0xFF;
+                    rgbs[col] = 0xFF000000 | (a << 16) | (a << 8) | a;
+                }
+                output.setRGBRow(row, rgbs);
+            }
+        });
+        return output;
+    }
+
+    /**
+     * Blend a background over the screen region of a foreground image. Inside
+     * the bounding box of {@code screen}, each pixel is mixed with the background
+     * in proportion to its matte value; the background is tiled from the top-left
+     * corner of the box. The foreground image is not changed.
+     *
+     * @param foreground the image the matte was computed from, is not null
+     * @param screen     the screen region, is not null
+     * @param background the image to show through the screen, is not null
+     * @return a new composited image
+     */
+    Image composite(Image foreground, Screen screen, Image background) {
+        Image output = new Image(width, height);
+        int bgWidth = background.width();
+        int bgHeight = background.height();
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            int[] bgRow = new int[bgWidth];
+            for (int row = start; row < end; row++) {
+                foreground.getRGBRow(row, rgbs);
+                if (!screen.isEmpty() && row >= screen.yTopLeft && row <= screen.yBottomRight) {
+                    background.getRGBRow((row - screen.yTopLeft) % bgHeight, bgRow);
+                    blendRow(rgbs, bgRow, row, screen.xTopLeft, screen.xBottomRight);
+                }
+                output.setRGBRow(row, rgbs);
+            }
+        });
+        return output;
+    }
+
+    /**
+     * Blend the background row (tiled from column {@code from}) into
+     * {@code rgbs[from..to]} according to the matte of row {@code row}.
+     */
+    void blendRow(int[] rgbs, int[] bgRow, int row, int from, int to) {
+        int bgWidth = bgRow.length;
+        int base = row * width;
+        for (int col = from, bgCol = 0; col <= to; col++, bgCol++) {
+            if (bgCol == bgWidth) {
+                bgCol = 0;
+            }
+            int a = matte[base + col] & 0xFF;
+            if (a == 0) {
+                continue;
+            }
+            if (a == KEYED) {
+                rgbs[col] = bgRow[bgCol];
+                continue;
+            }
+            rgbs[col] = blend(rgbs[col], bgRow[bgCol], a);
+        }
+    }
+
+    /**
+     * @return the per-channel mix (a * bg + (255 - a) * fg) / 255, rounded
+     */
+    static int blend(int fg, int bg, int a) {
+        int na = KEYED - a;
+        int r = (a * ((bg >> 16) & 0xFF) + na * ((fg >> 16) & 0xFF) + 127) / KEYED;
+        int g = (a * ((bg >> 8) & 0xFF) + na * ((fg >> 8) & 0xFF) + 127) / KEYED;
+        int b = (a * (bg & 0xFF) + na * (fg & 0xFF) + 127) / KEYED;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,209 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.BorderMode;
+import ca.ubc.ece.cpen221.ip.core.Kernel;
+import ca.ubc.ece.cpen221.ip.core.PlanarImage;
+
+import java.util.Arrays;
+
+/**
+ * Convolution engine behind {@link ImageTransformer#convolve(Kernel)} and
+ * {@link PlanarTransformer#convolve(Kernel)}.
+ * <p>
+ * The image is convolved one plane of a {@link PlanarImage} at a time. Kernel weights are
+ * quantized to fixed point with {@code WEIGHT_BITS} fractional bits so that all
+ * accumulation is done in integer arithmetic. Separable kernels are applied as a
+ * row pass into an intermediate plane (kept with {@code INTER_BITS} extra fractional
+ * bits to avoid double rounding) followed by a column pass. Both passes run in
+ * parallel over row bands.
+ */
+final class Convolution {
+    private static final int WEIGHT_BITS = 14;
+    private static final int INTER_BITS = 8;
+
+    private Convolution() {
+    }
+
+    /**
+     * Convolve a planar image with a kernel.
+     *
+     * @param src      the image to convolve, is not null
+     * @param kernel   the kernel, is not null
+     * @param mode     how pixels outside the image are obtained, is not null
+     * @param constant the value of each channel outside the image when {@code mode} is
+     *                 {@link BorderMode#CONSTANT}, one per channel of {@code src}
+     * @return a new planar image of the same dimensions and channels as {@code src}
+     */
+    static PlanarImage apply(PlanarImage src, Kernel kernel, BorderMode mode, int[] constant) {
+        int width = src.width();
+        int height = src.height();
+        int channels = src.channels();
+        byte[][] planes = new byte[channels][];
+        for (int ch = 0; ch < channels; ch++) {
+            planes[ch] = src.plane(ch);
+        }
+        PlanarImage output = new PlanarImage(width, height, channels);
+        byte[][] out = new byte[channels][];
+        for (int ch = 0; ch < channels; ch++) {
+            out[ch] = output.plane(ch);
+        }
+
+        int rx = kernel.columns / 2;
+        int ry = kernel.rows / 2;
+        int[] xMap = borderMap(width, rx, mode);
+        int[] yMap = borderMap(height, ry, mode);
+
+        if (kernel.isSeparable()) {
+            int[] rowWeights = quantize(kernel.getRowWeights());
+            int[] columnWeights = quantize(kernel.getColumnWeights());
+            int[][] inter = new int[channels][width * height];
+            RowBands.forEach(height, (start, end) ->
+                rowPass(planes, inter, width, start, end, rowWeights, xMap, constant));
+            RowBands.forEach(height, (start, end) ->
+                columnPass(inter, out, width, start, end, columnWeights, yMap, constant));
+        } else {
+            int[][] weights = new int[kernel.rows][];
+            double[] flat = new double[kernel.rows * kernel.columns];
+            for (int i = 0; i < kernel.rows; i++) {
+                for (int j = 0; j < kernel.columns; j++) {
+                    flat[i * kernel.columns + j] = kernel.get(i, j);
+                }
+            }
+            int[] q = quantize(flat);
+            for (int i = 0; i < kernel.rows; i++) {
+                weights[i] = new int[kernel.columns];
+                System.arraycopy(q, i * kernel.columns, weights[i], 0, kernel.columns);
+            }
+            RowBands.forEach(height, (start, end) ->
+                directPass(planes, out, width, start, end, weights, xMap, yMap, constant));
+        }
+        return output;
+    }
+
+    /**
+     * @return map[i] is the source index for padded position i (i.e. index i - radius),
+     * or -1 if the constant border colour applies
+     */
+    private static int[] borderMap(int length, int radius, BorderMode mode) {
+        int[] map = new int[length + 2 * radius];
+        for (int i = 0; i < map.length; i++) {
+            map[i] = mode.map(i - radius, length);
+        }
+        return map;
+    }
+
+    /**
+     * Quantize weights to fixed point, nudging the centre weight so the quantized
+     * weights sum to the rounded fixed-point value of the real sum. This keeps
+     * normalized kernels exactly normalized and flat regions unchanged.
+     */
+    private static int[] quantize(double[] weights) {
+        int[] q = new int[weights.length];
+        double sum = 0;
+        long qSum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            q[i] = (int) Math.round(weights[i] * (1 << WEIGHT_BITS));
+            sum += weights[i];
+            qSum += q[i];
+        }
+        q[weights.length / 2] += (int) (Math.round(sum * (1 << WEIGHT_BITS)) - qSum);
+        return q;
+    }
+
+    private static int clamp(long value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : (int) value);
+    }
+
+    private static void rowPass(byte[][] planes, int[][] inter, int width, int start, int end,
+                                int[] weights, int[] xMap, int[] constant) {
+        int taps = weights.length;
+        int shift = WEIGHT_BITS - INTER_BITS;
+        long half = 1L << (shift - 1);
+        int[] padded = new int[xMap.length];
+        for (int ch = 0; ch < planes.length; ch++) {
+            byte[] plane = planes[ch];
+            int[] dst = inter[ch];
+            for (int row = start; row < end; row++) {
+                int base = row * width;
+                for (int i = 0; i < padded.length; i++) {
+                    padded[i] = xMap[i] < 0 ? constant[ch] : plane[base + xMap[i]] & 0xFF;
+                }
+                for (int col = 0; col < width; col++) {
+                    long acc = 0;
+                    for (int k = 0; k < taps; k++) {
+                        acc += (long) weights[k] * padded[col + k];
+                    }
+                    dst[base + col] = (int) ((acc + half) >> shift);
+                }
+            }
+        }
+    }
+
+    private static void columnPass(int[][] inter, byte[][] out, int width, int start, int end,
+                                   int[] weights, int[] yMap, int[] constant) {
+        int taps = weights.length;
+        int shift = WEIGHT_BITS + INTER_BITS;
+        long half = 1L << (shift - 1);
+        long[] acc = new long[width];
+        for (int ch = 0; ch < inter.length; ch++) {
+            int[] src = inter[ch];
+            byte[] dst = out[ch];
+            long border = (long) constant[ch] << INTER_BITS;
+            for (int row = start; row < end; row++) {
+                Arrays.fill(acc, 0);
+                for (int k = 0; k < taps; k++) {
+                    int srcRow = yMap[row + k];
+                    long w = weights[k];
+                    if (srcRow < 0) {
+                        for (int col = 0; col < width; col++) {
+                            acc[col] += w * border;
+                        }
+                    } else {
+                        int base = srcRow * width;
+                        for (int col = 0; col < width; col++) {
+                            acc[col] += w * src[base + col];
+                        }
+                    }
+                }
+                int base = row * width;
+                for (int col = 0; col < width; col++) {
+                    dst[base + col] = (byte) clamp((acc[col] + half) >> shift);
+                }
+            }
+        }
+    }
+
+    private static void directPass(byte[][] planes, byte[][] out, int width, int start, int end,
+                                   int[][] weights, int[] xMap, int[] yMap, int[] constant) {
+        int taps = weights[0].length;
+        long half = 1L << (WEIGHT_BITS - 1);
+        int[] padded = new int[xMap.length];
+        long[] acc = new long[width];
+        for (int ch = 0; ch < planes.length; ch++) {
+            byte[] plane = planes[ch];
+            byte[] dst = out[ch];
+            for (int row = start; row < end; row++) {
+                Arrays.fill(acc, 0);
+                for (int ky = 0; ky < weights.length; ky++) {
+                    int srcRow = yMap[row + ky];
+                    for (int i = 0; i < padded.length; i++) {
+                        padded[i] = (srcRow < 0 || xMap[i] < 0)
+                            ? constant[ch] : plane[srcRow * width + xMap[i]] & 0xFF;
+                    }
+                    int[] w = weights[ky];
+                    for (int col = 0; col < width; col++) {
+                        long sum = 0;
+                        for (int k = 0; k < taps; k++) {
+                            sum += (long) w[k] * padded[col + k];
+                        }
+                        acc[col] += sum;
+                    }
+                }
+                int base = row * width;
+                for (int col = 0; col < width; col++) {
+                    dst[base + col] = (byte) clamp((acc[col] + half) >> WEIGHT_BITS);
+                }
+            }
+        }
+    }
+}
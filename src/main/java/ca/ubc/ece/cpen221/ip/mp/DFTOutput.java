@@ -45,32 +45,46 @@ public class DFTOutput {
         }
     }
 
+    /**
+     * @return the number of columns of the amplitude and phase matrices
+     */
+    int width() {
+        return amplitude.columns;
+    }
+
+    /**
+     * @return the number of rows of the amplitude and phase matrices
+     */
+    int height() {
+        return amplitude.rows;
+    }
+
+    /**
+     * Render the amplitude as a gray image on a logarithmic scale, with the largest
+     * amplitude white.
+     *
+     * @return an image with one pixel per entry of the amplitude matrix
+     */
     public Image amplitudeToImage() {
         Image amplitudeImg = new Image(amplitude.columns, amplitude.rows);
-        int[] color = new int[4];
-        color[0] = 255;
-        int rgb;
-        double c;
-        double max = 0.0;
-
-        for (int col = 0; col < amplitude.columns; col++) {
-            for (int row = 0; row < amplitude.rows; row++) {
-                 if(max < amplitude.get(row,col)) {
-                     max = amplitude.get(row,col);
-                 }
+        // log(1 + a) grows with a, so the largest logarithm is that of the largest amplitude
+        double[][] logs = new double[amplitude.rows][amplitude.columns];
+        double maxLog = 0.0;
+        for (int row = 0; row < amplitude.rows; row++) {
+            for (int col = 0; col < amplitude.columns; col++) {
+                logs[row][col] = Math.log(1 + amplitude.get(row, col));
+                maxLog = Math.max(maxLog, logs[row][col]);
             }
         }
 
-        c=255/(Math.log(1+max));
-
-        for (int col = 0; col < amplitude.columns; col++) {
-            for (int row = 0; row < amplitude.rows; row++) {
-                for(int i = 1; i <color.length; i++) {
-                    color[i] = (int)Math.round(c*Math.log(1 + amplitude.get(row,col)));
-                }
-                rgb = ImageTransformer.mergedColor(color);
-                amplitudeImg.setRGB(col,row,rgb);
+        double c = 255 / maxLog;
+        int[] rgbs = new int[amplitude.columns];
+        for (int row = 0; row < amplitude.rows; row++) {
+            for (int col = 0; col < amplitude.columns; col++) {
+                int level = (int) Math.round(c * logs[row][col]);
+                rgbs[col] = 0xFF000000 | level * 0x010101;
             }
+            amplitudeImg.setRGBRow(row, rgbs);
         }
         return amplitudeImg;
     }
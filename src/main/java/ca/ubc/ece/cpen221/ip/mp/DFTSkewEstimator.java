@@ -0,0 +1,30 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImageProcessingException;
+
+/**
+ * Estimates the skew of a page of text with the DFT engine of
+ * {@link ImageTransformer#alignTextImage()}, so that it can be used wherever a
+ * {@link SkewEstimator} is expected, such as {@link BatchDeskew}.
+ * <p>
+ * The central square of the page is shrunk to 150 x 150 pixels and the brightest
+ * peaks of its DFT amplitude are found; text lines put them on a line through the
+ * centre of the spectrum, perpendicular to the lines, whose slope gives the skew.
+ * The confidence is how clearly the peaks favour one pair of opposite quadrants of
+ * the spectrum over the other. A page on which the peaks do not determine a slope,
+ * where {@link ImageTransformer#alignTextImage()} would throw, or on which they are
+ * split evenly between the two pairs, gets a skew of 0 with confidence 0.
+ */
+public class DFTSkewEstimator implements SkewEstimator {
+
+    @Override
+    public SkewEstimate estimate(Image image) {
+        try {
+            SkewEstimate skew = new ImageTransformer(image).dftSkew();
+            return skew.confidence == 0 ? new SkewEstimate(0, 0) : skew;
+        } catch (ImageProcessingException e) {
+            return new SkewEstimate(0, 0);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImagePool;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies an {@link ImageTransformer} operation to a stream of video frames, such as the
+ * frames of a webcam to be mirrored.
+ * <p>
+ * A FrameStream is a {@link Flow.Processor}: it subscribes to a publisher of frames and
+ * publishes the transformed frames to one subscriber. It asks its publisher for one
+ * frame at a time, so frames arrive no faster than they are processed. The subscriber's
+ * demand is respected too: a frame that arrives while the subscriber has not requested
+ * one is dropped rather than queued, since for live video a late frame is worth less
+ * than the next one, and the dropped frames are counted.
+ * <p>
+ * Each output frame is written into an image acquired from an {@link ImagePool} with the
+ * dimensions of the input frame. The subscriber hands it back with
+ * {@link #release(Image)} once it has shown or copied it; then, in the steady state,
+ * processing a frame allocates no images. The time from the arrival of a frame to the
+ * delivery of its output is measured, and its mean and maximum are exposed.
+ */
+public class FrameStream implements Flow.Processor<Image, Image> {
+    private final Operation operation;
+    private final ImagePool pool;
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super Image> downstream;
+    private volatile boolean cancelled;
+    private final AtomicLong demand = new AtomicLong();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * An operation that writes the transformed frame into a given image, such as
+     * {@code ImageTransformer::mirror}.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * @param frame  a transformer over the input frame
+         * @param output an image with the dimensions of the frame, to overwrite
+         * @return {@code output}
+         */
+        Image apply(ImageTransformer frame, Image output);
+    }
+
+    /**
+     * Create a FrameStream whose output images come from a pool of its own.
+     *
+     * @param operation the operation applied to every frame, is not null
+     */
+    public FrameStream(Operation operation) {
+        this(operation, new ImagePool());
+    }
+
+    /**
+     * Create a FrameStream.
+     *
+     * @param operation the operation applied to every frame, is not null
+     * @param pool      the pool output images are acquired from, is not null
+     */
+    public FrameStream(Operation operation, ImagePool pool) {
+        if (operation == null || pool == null) {
+            throw new IllegalArgumentException("operation and pool cannot be null");
+        }
+        this.operation = operation;
+        this.pool = pool;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Image> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber cannot be null");
+        }
+        synchronized (this) {
+            if (downstream == null) {
+                downstream = subscriber;
+                subscriber.onSubscribe(new Subscription());
+                return;
+            }
+        }
+        // a rejected subscriber must not reach the demand or upstream of the real one
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onError(new IllegalStateException("a FrameStream has only one subscriber"));
+    }
+
+    /**
+     * The link between this stream and its subscriber.
+     */
+    private final class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                downstream.onError(new IllegalArgumentException("requests must be positive"));
+                return;
+            }
+            demand.accumulateAndGet(n, (d, more) -> d + more < 0 ? Long.MAX_VALUE : d + more);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Flow.Subscription subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(Image frame) {
+        long arrival = System.nanoTime();
+        received.incrementAndGet();
+        Flow.Subscriber<? super Image> subscriber = downstream;
+        if (cancelled) {
+            return;
+        }
+        if (subscriber == null || demand.get() == 0) {
+            dropped.incrementAndGet();
+        } else {
+            Image output = pool.acquire(frame.width(), frame.height());
+            try {
+                operation.apply(new ImageTransformer(frame), output);
+            } catch (RuntimeException e) {
+                pool.release(output);
+                upstream.cancel();
+                cancelled = true;
+                subscriber.onError(e);
+                return;
+            }
+            demand.accumulateAndGet(1, (d, one) -> d == Long.MAX_VALUE ? d : d - one);
+            long latency = System.nanoTime() - arrival;
+            totalLatency.addAndGet(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+            delivered.incrementAndGet();
+            subscriber.onNext(output);
+        }
+        if (!cancelled) {
+            upstream.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Flow.Subscriber<? super Image> subscriber = downstream;
+        if (subscriber != null && !cancelled) {
+            subscriber.onError(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        Flow.Subscriber<? super Image> subscriber = downstream;
+        if (subscriber != null && !cancelled) {
+            subscriber.onComplete();
+        }
+    }
+
+    /**
+     * Hand an output frame back for reuse. The subscriber must not use it afterwards.
+     *
+     * @param output a frame this stream delivered, is not null
+     */
+    public void release(Image output) {
+        pool.release(output);
+    }
+
+    /**
+     * @return the number of frames received from the publisher
+     */
+    public long framesReceived() {
+        return received.get();
+    }
+
+    /**
+     * @return the number of transformed frames delivered to the subscriber
+     */
+    public long framesDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the number of frames dropped because the subscriber had not requested one
+     */
+    public long framesDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the mean time from the arrival of a frame to the delivery of its output,
+     * in nanoseconds, or 0 if no frame was delivered
+     */
+    public long meanLatencyNanos() {
+        long frames = delivered.get();
+        return frames == 0 ? 0 : totalLatency.get() / frames;
+    }
+
+    /**
+     * @return the longest time from the arrival of a frame to the delivery of its
+     * output, in nanoseconds
+     */
+    public long maxLatencyNanos() {
+        return maxLatency.get();
+    }
+}
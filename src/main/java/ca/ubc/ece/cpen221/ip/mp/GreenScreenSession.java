@@ -0,0 +1,516 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.ColourSpace;
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.Rectangle;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This datatype applies {@link ImageTransformer#greenScreen(Color, Image, int, ColourSpace)}
+ * to a sequence of video frames of the same size, reusing the screen geometry
+ * found in earlier frames.
+ * <p>
+ * Each frame is divided into square tiles. A tile is segmented again only if some
+ * pixel in it differs from the pixels it was last segmented with by more than the
+ * change threshold in some colour channel. Every other tile keeps its matte and its
+ * connected-component labels. Tiles are joined through a union-find over their local
+ * components, so the screen region stays exactly that of a full segmentation while
+ * the segmentation work scales with the amount of motion. The background, tiled over
+ * the screen's bounding rectangle, is cached until that rectangle moves.
+ * <p>
+ * The session keeps the previous frame, compares each new frame with it in place as
+ * it is read, and keeps the composited output. Only the tiles in which some pixel
+ * changed are composited again, unless the screen's rectangle moved, and only the
+ * rows through those tiles are written to the output image. Each call returns a
+ * copy of the output that shares its pixels until the next frame is written.
+ */
+public class GreenScreenSession {
+    private static final int TILE = 32;
+
+    private final Image backgroundImage;
+    private final int changeThreshold;
+    private final ChromaKey.Distance distance;
+
+    private int width;
+    private int height;
+    private int tilesX;
+    private int tilesY;
+    private int[] pixels;       // the most recent frame
+    private int[] segmented;    // the pixels each tile was last segmented with
+    private ChromaKey key;      // the matte, updated tile by tile
+    private int[] labels;       // component labels, local to each tile
+    private Tile[] tiles;
+
+    private int[] box;          // inclusive bounding box of the screen, or null
+    private int[][] tiledBackground;
+    private int[][] composited; // the rows of output
+    private Image output;
+    private int lastSegmentedTiles;
+
+    /*
+        Abstraction Function:
+            Represents the state of green-screening the frame sequence seen so far.
+            pixels holds the most recent frame, and composited and output its
+            composite. key.matte and labels describe the segmentation of the pixels
+            in segmented.
+            For each tile t, labels holds ids 1..tiles[t].components for the
+            8-connected components of fully keyed pixels inside t, and tiles[t].links
+            records which of those touch components of the neighbouring tiles to the
+            east, south, south-east and south-west.
+            box is the bounding box of the largest component after joining tiles.
+
+        Representation Invariant:
+            pixels, segmented, key, labels, composited and output are null before the
+            first frame, and otherwise have width * height entries.
+            output holds the rows of composited.
+            tiledBackground != null implies box != null and tiledBackground has one row
+            of box[2] - box[0] + 1 pixels per row of box.
+     */
+
+    /**
+     * Local component data of one tile.
+     */
+    private static final class Tile {
+        int components;
+        int[] sizes = new int[0];
+        int[] boxes = new int[0];   // minC, minR, maxC, maxR per component
+        int[] firsts = new int[0];  // the smallest raster index of each component
+        int[] links = new int[0];   // (local label, neighbour tile, neighbour label) triples
+    }
+
+    /**
+     * Create a session that replaces the screen with {@code backgroundImage}.
+     *
+     * @param screenColour    the colour of the background screen, is not null
+     * @param backgroundImage the image to replace the screen with, is not null
+     * @param tolerance       the colour distance within which a pixel is considered part of
+     *                        the screen, >= 0
+     * @param space           the colour space in which distances are measured, is not null
+     * @param changeThreshold the largest change of a colour channel (0 to 255) that does not
+     *                        cause a tile to be segmented again, >= 0
+     */
+    public GreenScreenSession(Color screenColour, Image backgroundImage, int tolerance,
+                              ColourSpace space, int changeThreshold) {
+        if (screenColour == null || backgroundImage == null || space == null) {
+            throw new IllegalArgumentException("arguments cannot be null");
+        }
+        if (tolerance < 0 || changeThreshold < 0) {
+            throw new IllegalArgumentException("tolerance and threshold must be non-negative");
+        }
+        this.backgroundImage = backgroundImage;
+        this.changeThreshold = changeThreshold;
+        distance = new ChromaKey.Distance(screenColour.getRGB(), tolerance, space);
+    }
+
+    /**
+     * Replace the screen in the next frame. A frame with different dimensions
+     * from the previous one starts the session over.
+     *
+     * @param frame the next frame, is not null
+     * @return a new image with the background replacing the screen in {@code frame}
+     */
+    public Image next(Image frame) {
+        boolean fresh = segmented == null || frame.width() != width || frame.height() != height;
+        if (fresh) {
+            reset(frame.width(), frame.height());
+        }
+        boolean[] moved = new boolean[tiles.length];
+        boolean[] stale = new boolean[tiles.length];
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                frame.getRGBRow(row, rgbs);
+                compareRow(row, rgbs, moved, stale);
+            }
+        });
+
+        int[] changed = IntStream.range(0, tiles.length)
+            .filter(t -> tiles[t] == null || stale[t])
+            .toArray();
+        lastSegmentedTiles = changed.length;
+        int[] oldBox = box;
+        if (changed.length > 0) {
+            resegment(changed);
+        }
+        composite(moved, fresh || !Arrays.equals(oldBox, box));
+        return new Image(output);
+    }
+
+    /**
+     * Obtain the screen region found in the most recent frame.
+     *
+     * @return the bounding rectangle of the screen (including its bottom-right corner),
+     * or null if no frame has been processed, no screen was found, or the screen spans
+     * a single row or column
+     */
+    public Rectangle screenRegion() {
+        if (box == null || box[0] == box[2] || box[1] == box[3]) {
+            return null;
+        }
+        return new Rectangle(box[0], box[1], box[2], box[3]);
+    }
+
+    /**
+     * Obtain the number of tiles that had to be segmented for the most recent frame.
+     *
+     * @return the number of segmented tiles, between 0 and the number of tiles in a frame
+     */
+    public int segmentedTiles() {
+        return lastSegmentedTiles;
+    }
+
+    private void reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        tilesX = (width + TILE - 1) / TILE;
+        tilesY = (height + TILE - 1) / TILE;
+        pixels = new int[width * height];
+        segmented = new int[width * height];
+        key = new ChromaKey(new byte[width * height], width, height);
+        labels = new int[width * height];
+        tiles = new Tile[tilesX * tilesY];
+        box = null;
+        tiledBackground = null;
+        composited = new int[height][width];
+        output = new Image(width, height);
+    }
+
+    private int colStart(int t) {
+        return (t % tilesX) * TILE;
+    }
+
+    private int colEnd(int t) {
+        return Math.min(width, colStart(t) + TILE);
+    }
+
+    private int rowStart(int t) {
+        return (t / tilesX) * TILE;
+    }
+
+    private int rowEnd(int t) {
+        return Math.min(height, rowStart(t) + TILE);
+    }
+
+    /**
+     * Copy one row of the frame into pixels, marking the tiles in which it differs from
+     * the previous frame as moved and those in which it differs from the pixels they were
+     * segmented with by more than the change threshold as stale. Rows of a tile may be
+     * compared concurrently; they only ever set flags.
+     */
+    private void compareRow(int row, int[] rgbs, boolean[] moved, boolean[] stale) {
+        int base = row * width;
+        int tileRow = (row / TILE) * tilesX;
+        for (int col = 0; col < width; col++) {
+            int a = rgbs[col];
+            int i = base + col;
+            if (a == pixels[i]) {
+                continue;
+            }
+            pixels[i] = a;
+            int t = tileRow + col / TILE;
+            moved[t] = true;
+            int b = segmented[i];
+            if (!stale[t] && (Math.abs(((a >> 16) & 0xFF) - ((b >> 16) & 0xFF)) > changeThreshold
+                || Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF)) > changeThreshold
+                || Math.abs((a & 0xFF) - (b & 0xFF)) > changeThreshold)) {
+                stale[t] = true;
+            }
+        }
+    }
+
+    private void resegment(int[] changed) {
+        IntStream.of(changed).parallel().forEach(t -> {
+            for (int row = rowStart(t); row < rowEnd(t); row++) {
+                int from = row * width + colStart(t);
+                int length = colEnd(t) - colStart(t);
+                System.arraycopy(pixels, from, segmented, from, length);
+                for (int i = from; i < from + length; i++) {
+                    key.matte[i] = (byte) distance.alpha(pixels[i]);
+                }
+            }
+            tiles[t] = labelTile(t);
+        });
+
+        // a tile's links are owned by the tile itself and by its W, N, NW and NE neighbours
+        boolean[] relink = new boolean[tiles.length];
+        for (int t : changed) {
+            int tx = t % tilesX;
+            int ty = t / tilesX;
+            for (int dy = -1; dy <= 0; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dy == 0 && dx == 1) {
+                        continue;
+                    }
+                    int nx = tx + dx;
+                    int ny = ty + dy;
+                    if (nx >= 0 && ny >= 0 && nx < tilesX) {
+                        relink[ny * tilesX + nx] = true;
+                    }
+                }
+            }
+        }
+        IntStream.range(0, tiles.length).parallel()
+            .filter(t -> relink[t])
+            .forEach(t -> tiles[t].links = linkTile(t));
+
+        int[] newBox = joinTiles();
+        if (newBox == null || box == null || !Arrays.equals(newBox, box)) {
+            tiledBackground = null;
+        }
+        box = newBox;
+    }
+
+    /**
+     * Label the 8-connected components of fully keyed pixels inside one tile.
+     */
+    private Tile labelTile(int t) {
+        Tile tile = new Tile();
+        int c0 = colStart(t);
+        int c1 = colEnd(t);
+        int r0 = rowStart(t);
+        int r1 = rowEnd(t);
+        int[] queue = new int[(c1 - c0) * (r1 - r0)];
+        List<int[]> stats = new ArrayList<>();
+        for (int row = r0; row < r1; row++) {
+            for (int col = c0; col < c1; col++) {
+                labels[row * width + col] = 0;
+            }
+        }
+        for (int row = r0; row < r1; row++) {
+            for (int col = c0; col < c1; col++) {
+                int start = row * width + col;
+                if (labels[start] != 0 || (key.matte[start] & 0xFF) != ChromaKey.KEYED) {
+                    continue;
+                }
+                int label = stats.size() + 1;
+                int[] stat = {0, col, row, col, row};
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = start;
+                labels[start] = label;
+                while (head < tail) {
+                    int p = queue[head++];
+                    int pc = p % width;
+                    int pr = p / width;
+                    stat[1] = Math.min(stat[1], pc);
+                    stat[2] = Math.min(stat[2], pr);
+                    stat[3] = Math.max(stat[3], pc);
+                    stat[4] = Math.max(stat[4], pr);
+                    for (int r = Math.max(r0, pr - 1); r <= Math.min(r1 - 1, pr + 1); r++) {
+                        for (int c = Math.max(c0, pc - 1); c <= Math.min(c1 - 1, pc + 1); c++) {
+                            int q = r * width + c;
+                            if (labels[q] == 0 && (key.matte[q] & 0xFF) == ChromaKey.KEYED) {
+                                labels[q] = label;
+                                queue[tail++] = q;
+                            }
+                        }
+                    }
+                }
+                stat[0] = tail;
+                stats.add(stat);
+            }
+        }
+        tile.components = stats.size();
+        tile.sizes = new int[tile.components];
+        tile.boxes = new int[4 * tile.components];
+        tile.firsts = new int[tile.components];
+        for (int i = 0; i < tile.components; i++) {
+            int[] stat = stats.get(i);
+            tile.sizes[i] = stat[0];
+            System.arraycopy(stat, 1, tile.boxes, 4 * i, 4);
+            // the scan finds each component first at its smallest raster index
+            tile.firsts[i] = stat[2] * width + stat[1];
+        }
+        return tile;
+    }
+
+    /**
+     * Find the components of tile t that touch components of its east, south,
+     * south-east and south-west neighbours.
+     */
+    private int[] linkTile(int t) {
+        List<Integer> links = new ArrayList<>();
+        int tx = t % tilesX;
+        int ty = t / tilesX;
+        int c0 = colStart(t);
+        int c1 = colEnd(t) - 1;
+        int r0 = rowStart(t);
+        int r1 = rowEnd(t) - 1;
+        if (tx + 1 < tilesX) {
+            for (int row = r0; row <= r1; row++) {
+                for (int r = Math.max(r0, row - 1); r <= Math.min(r1, row + 1); r++) {
+                    addLink(links, c1, row, c1 + 1, r, t + 1);
+                }
+            }
+        }
+        if (ty + 1 < tilesY) {
+            int south = t + tilesX;
+            for (int col = c0; col <= c1; col++) {
+                for (int c = Math.max(c0, col - 1); c <= Math.min(c1, col + 1); c++) {
+                    addLink(links, col, r1, c, r1 + 1, south);
+                }
+            }
+            if (tx + 1 < tilesX) {
+                addLink(links, c1, r1, c1 + 1, r1 + 1, south + 1);
+            }
+            if (tx > 0) {
+                addLink(links, c0, r1, c0 - 1, r1 + 1, south - 1);
+            }
+        }
+        return links.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void addLink(List<Integer> links, int col, int row, int nCol, int nRow, int neighbour) {
+        int a = labels[row * width + col];
+        int b = labels[nRow * width + nCol];
+        if (a != 0 && b != 0) {
+            links.add(a);
+            links.add(neighbour);
+            links.add(b);
+        }
+    }
+
+    /**
+     * Join the local components of all tiles and find the largest one. Like
+     * {@link ChromaKey#largestRegion()}, ties go to the component that comes first
+     * in raster order.
+     *
+     * @return the inclusive bounding box {minC, minR, maxC, maxR} of the largest
+     * component, or null if there are no keyed pixels
+     */
+    private int[] joinTiles() {
+        int[] base = new int[tiles.length + 1];
+        for (int t = 0; t < tiles.length; t++) {
+            base[t + 1] = base[t] + tiles[t].components;
+        }
+        int[] parent = new int[base[tiles.length]];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int t = 0; t < tiles.length; t++) {
+            int[] links = tiles[t].links;
+            for (int i = 0; i < links.length; i += 3) {
+                int a = find(parent, base[t] + links[i] - 1);
+                int b = find(parent, base[links[i + 1]] + links[i + 2] - 1);
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+
+        long[] sizes = new long[parent.length];
+        int[] boxes = new int[4 * parent.length];
+        int[] firsts = new int[parent.length];
+        for (int t = 0; t < tiles.length; t++) {
+            Tile tile = tiles[t];
+            for (int i = 0; i < tile.components; i++) {
+                int root = find(parent, base[t] + i);
+                if (sizes[root] == 0) {
+                    System.arraycopy(tile.boxes, 4 * i, boxes, 4 * root, 4);
+                    firsts[root] = tile.firsts[i];
+                } else {
+                    firsts[root] = Math.min(firsts[root], tile.firsts[i]);
+                    boxes[4 * root] = Math.min(boxes[4 * root], tile.boxes[4 * i]);
+                    boxes[4 * root + 1] = Math.min(boxes[4 * root + 1], tile.boxes[4 * i + 1]);
+                    boxes[4 * root + 2] = Math.max(boxes[4 * root + 2], tile.boxes[4 * i + 2]);
+                    boxes[4 * root + 3] = Math.max(boxes[4 * root + 3], tile.boxes[4 * i + 3]);
+                }
+                sizes[root] += tile.sizes[i];
+            }
+        }
+        int best = -1;
+        for (int root = 0; root < parent.length; root++) {
+            if (parent[root] != root) {
+                continue;
+            }
+            if (best < 0 || sizes[root] > sizes[best]
+                || sizes[root] == sizes[best] && firsts[root] < firsts[best]) {
+                best = root;
+            }
+        }
+        return best < 0 ? null : Arrays.copyOfRange(boxes, 4 * best, 4 * best + 4);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Composite the moved tiles of the frame, or all of them, into composited and
+     * write the rows through them to output.
+     */
+    private void composite(boolean[] moved, boolean everywhere) {
+        if (box != null && tiledBackground == null) {
+            tiledBackground = tileBackground(box);
+        }
+        RowBands.forEach(height, (start, end) -> {
+            for (int row = start; row < end; row++) {
+                int tileRow = (row / TILE) * tilesX;
+                boolean written = false;
+                for (int tx = 0; tx < tilesX; tx++) {
+                    if (everywhere || moved[tileRow + tx]) {
+                        compositeRun(row, tx * TILE, Math.min(width, (tx + 1) * TILE));
+                        written = true;
+                    }
+                }
+                if (written) {
+                    output.setRGBRow(row, composited[row]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Composite the pixels [from, to) of one row of the frame into composited.
+     */
+    private void compositeRun(int row, int from, int to) {
+        int[] rgbs = composited[row];
+        System.arraycopy(pixels, row * width + from, rgbs, from, to - from);
+        if (box == null || row < box[1] || row > box[3]) {
+            return;
+        }
+        int[] bgRow = tiledBackground[row - box[1]];
+        int base = row * width;
+        for (int col = Math.max(from, box[0]); col < Math.min(to, box[2] + 1); col++) {
+            int a = key.matte[base + col] & 0xFF;
+            if (a == ChromaKey.KEYED) {
+                rgbs[col] = bgRow[col - box[0]];
+            } else if (a != 0) {
+                rgbs[col] = ChromaKey.blend(rgbs[col], bgRow[col - box[0]], a);
+            }
+        }
+    }
+
+    /**
+     * Tile the background image over a box, starting from its top-left corner.
+     */
+    private int[][] tileBackground(int[] box) {
+        int boxWidth = box[2] - box[0] + 1;
+        int boxHeight = box[3] - box[1] + 1;
+        int bgWidth = backgroundImage.width();
+        int bgHeight = backgroundImage.height();
+        int[][] rows = new int[boxHeight][];
+        int[] bgRow = new int[bgWidth];
+        for (int y = 0; y < Math.min(boxHeight, bgHeight); y++) {
+            backgroundImage.getRGBRow(y, bgRow);
+            int[] row = new int[boxWidth];
+            for (int x = 0; x < boxWidth; x += bgWidth) {
+                System.arraycopy(bgRow, 0, row, x, Math.min(bgWidth, boxWidth - x));
+            }
+            rows[y] = row;
+        }
+        for (int y = bgHeight; y < boxHeight; y++) {
+            rows[y] = rows[y % bgHeight];
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,204 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.ColourConversion;
+import ca.ubc.ece.cpen221.ip.core.Image;
+
+import java.util.stream.IntStream;
+
+/**
+ * Histogram equalization engine behind {@link ImageTransformer#equalize()} and
+ * {@link ImageTransformer#equalize(int, int, double)}.
+ * <p>
+ * The image is divided into a grid of tiles. The histograms of the gray levels
+ * ({@link ColourConversion#toLuma(int)}) of all tiles are gathered in parallel, one
+ * row of tiles per task, and each histogram is clipped and turned into a lookup table
+ * from old to new gray levels. The output is then written in one pass over the rows,
+ * in parallel bands: the new gray level of each pixel is interpolated bilinearly
+ * between the tables of the four tiles whose centres surround it, using fixed-point
+ * weights with {@code WEIGHT_BITS} fractional bits. Global equalization is the case
+ * of a single tile with no clipping.
+ * <p>
+ * Each colour channel of a pixel is shifted by the change of its gray level, so gray
+ * pixels stay gray and colours keep roughly their hue.
+ */
+final class HistogramEqualization {
+    private static final int LEVELS = 256;
+    private static final int WEIGHT_BITS = 10;
+    private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+
+    private HistogramEqualization() {
+    }
+
+    /**
+     * Equalize the gray levels of an image, tile by tile.
+     *
+     * @param image       the image to equalize, is not null
+     * @param tileColumns the number of tiles across the image, between 1 and the width
+     * @param tileRows    the number of tiles down the image, between 1 and the height
+     * @param clipLimit   the largest count of any gray level in a tile's histogram, as a
+     *                    multiple of the average count, >= 1; infinite for no clipping
+     * @return a new image of the same dimensions as {@code image}
+     */
+    static Image apply(Image image, int tileColumns, int tileRows, double clipLimit) {
+        int width = image.width();
+        int height = image.height();
+        int[] columnTiles = tileBounds(width, tileColumns);
+        int[] rowTiles = tileBounds(height, tileRows);
+        int[][] luts = new int[tileColumns * tileRows][];
+        Cancellation cancellation = Cancellation.current();
+
+        IntStream.range(0, tileRows).parallel().forEach(ty -> {
+            cancellation.check();
+            int[][] histograms = new int[tileColumns][LEVELS];
+            int[] rgbs = new int[width];
+            int[] gray = new int[width];
+            for (int row = rowTiles[ty]; row < rowTiles[ty + 1]; row++) {
+                image.getRGBRow(row, rgbs);
+                ColourConversion.toLuma(rgbs, gray, width);
+                for (int tx = 0; tx < tileColumns; tx++) {
+                    int[] histogram = histograms[tx];
+                    for (int col = columnTiles[tx]; col < columnTiles[tx + 1]; col++) {
+                        histogram[gray[col]]++;
+                    }
+                }
+            }
+            for (int tx = 0; tx < tileColumns; tx++) {
+                int pixels = (columnTiles[tx + 1] - columnTiles[tx]) * (rowTiles[ty + 1] - rowTiles[ty]);
+                luts[ty * tileColumns + tx] = lookupTable(histograms[tx], pixels, clipLimit);
+            }
+        });
+
+        Neighbours across = neighbours(columnTiles);
+        Neighbours down = neighbours(rowTiles);
+        Image output = new Image(width, height);
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            int[] gray = new int[width];
+            for (int row = start; row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                ColourConversion.toLuma(rgbs, gray, width);
+                int[][] upper = new int[tileColumns][];
+                int[][] lower = new int[tileColumns][];
+                System.arraycopy(luts, down.first[row] * tileColumns, upper, 0, tileColumns);
+                System.arraycopy(luts, down.second[row] * tileColumns, lower, 0, tileColumns);
+                int wy = down.weight[row];
+                for (int col = 0; col < width; col++) {
+                    int y = gray[col];
+                    int left = across.first[col];
+                    int right = across.second[col];
+                    int wx = across.weight[col];
+                    int top = upper[left][y] * (WEIGHT_ONE - wx) + upper[right][y] * wx;
+                    int bottom = lower[left][y] * (WEIGHT_ONE - wx) + lower[right][y] * wx;
+                    int equalized = (top * (WEIGHT_ONE - wy) + bottom * wy + (1 << (2 * WEIGHT_BITS - 1)))
+                        >> (2 * WEIGHT_BITS);
+                    rgbs[col] = shift(rgbs[col], equalized - y);
+                }
+                output.setRGBRow(row, rgbs);
+            }
+        });
+        return output;
+    }
+
+    /**
+     * @return the boundaries of {@code tiles} tiles of nearly equal size covering
+     * [0, length): tile t covers [bounds[t], bounds[t + 1])
+     */
+    private static int[] tileBounds(int length, int tiles) {
+        int[] bounds = new int[tiles + 1];
+        for (int t = 0; t <= tiles; t++) {
+            bounds[t] = (int) ((long) t * length / tiles);
+        }
+        return bounds;
+    }
+
+    /**
+     * Clip a histogram, spreading the clipped counts evenly over all levels, and
+     * accumulate it into a lookup table from old to new gray levels.
+     */
+    private static int[] lookupTable(int[] histogram, int pixels, double clipLimit) {
+        double limit = clipLimit * pixels / LEVELS;
+        if (limit < pixels) {
+            int clip = Math.max(1, (int) limit);
+            int excess = 0;
+            for (int v = 0; v < LEVELS; v++) {
+                if (histogram[v] > clip) {
+                    excess += histogram[v] - clip;
+                    histogram[v] = clip;
+                }
+            }
+            int share = excess / LEVELS;
+            int remainder = excess % LEVELS;
+            for (int v = 0; v < LEVELS; v++) {
+                histogram[v] += share;
+            }
+            // the last few counts go to levels spread evenly across the range
+            if (remainder > 0) {
+                int step = Math.max(1, LEVELS / remainder);
+                for (int v = 0; v < LEVELS && remainder > 0; v += step, remainder--) {
+                    histogram[v]++;
+                }
+            }
+        }
+        int[] lut = new int[LEVELS];
+        long cumulative = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            cumulative += histogram[v];
+            lut[v] = (int) Math.min(LEVELS - 1, (cumulative * (LEVELS - 1) + pixels / 2) / pixels);
+        }
+        return lut;
+    }
+
+    /**
+     * For each position along one dimension, the two tiles whose centres surround it
+     * and the fixed-point weight of the second: first == second, with weight 0,
+     * before the first centre and after the last.
+     */
+    private static final class Neighbours {
+        final int[] first;
+        final int[] second;
+        final int[] weight;
+
+        Neighbours(int length) {
+            first = new int[length];
+            second = new int[length];
+            weight = new int[length];
+        }
+    }
+
+    private static Neighbours neighbours(int[] bounds) {
+        int tiles = bounds.length - 1;
+        int length = bounds[tiles];
+        // twice the centre of each tile, so that the centres are whole numbers
+        int[] centres = new int[tiles];
+        for (int t = 0; t < tiles; t++) {
+            centres[t] = bounds[t] + bounds[t + 1] - 1;
+        }
+        Neighbours neighbours = new Neighbours(length);
+        int tile = 0;
+        for (int i = 0; i < length; i++) {
+            int position = 2 * i;
+            while (tile < tiles - 1 && position >= centres[tile + 1]) {
+                tile++;
+            }
+            neighbours.first[i] = tile;
+            if (position <= centres[tile] || tile == tiles - 1) {
+                neighbours.second[i] = tile;
+            } else {
+                int span = centres[tile + 1] - centres[tile];
+                neighbours.second[i] = tile + 1;
+                neighbours.weight[i] = ((position - centres[tile]) * WEIGHT_ONE + span / 2) / span;
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * @return the colour {@code rgb} with {@code delta} added to each channel, clamped
+     */
+    private static int shift(int rgb, int delta) {
+        int r = Math.max(0, Math.min(255, ((rgb >> 16) & 0xFF) + delta));
+        int g = Math.max(0, Math.min(255, ((rgb >> 8) & 0xFF) + delta));
+        int b = Math.max(0, Math.min(255, (rgb & 0xFF) + delta));
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+}
@@ -1,8 +1,10 @@
 package ca.ubc.ece.cpen221.ip.mp;
 import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImageStats;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.util.List;
 
 /**
  * This class provides some simple operations involving
@@ -20,56 +22,40 @@ public class ImageProcessing {
      * referenced by img1 and img2.
      */
     public static double cosineSimilarity(Image img1, Image img2) {
-        ImageTransformer greyImg1 = new ImageTransformer(img1);
-        img1 = greyImg1.grayscale();
+        int smallerWidth = Math.min(img1.width(), img2.width());
+        int smallerHeight = Math.min(img1.height(), img2.height());
 
-        ImageTransformer greyImg2 = new ImageTransformer(img2);
-        img2 = greyImg2.grayscale();
-
-
-        int cols, rows;
-        int[] pixel1;
-        int[] pixel2;
-
-        BigDecimal product = new BigDecimal(0);
-        BigDecimal square1 = new BigDecimal(0);
-        BigDecimal square2 = new BigDecimal(0);
-        BigDecimal zero = new BigDecimal(0);
-        MathContext mc = new MathContext(10);
-
-        int smallerWidth;
-        int smallerHeight;
-
-        if (img1.width() < img2.width()) {
-            smallerWidth = img1.width();
-        } else {
-            smallerWidth = img2.width();
+        // sums[0] = sum of products, sums[1] and sums[2] = sums of squares of each image,
+        // all of the red components
+        long[] sums = new long[3];
+        boolean sameSize = img1.width() == img2.width() && img1.height() == img2.height();
+        if (sameSize) {
+            // the memoized statistics of each image already hold its sum of squares
+            sums[1] = img1.stats().sumOfSquares(ImageStats.RED);
+            sums[2] = img2.stats().sumOfSquares(ImageStats.RED);
         }
-
-        if (img1.height() < img2.height()) {
-            smallerHeight = img1.height();
-        } else {
-            smallerHeight = img2.height();
+        if (!sameSize || (sums[1] != 0 && sums[2] != 0)) {
+            long[] rowSums = new long[3];
+            int[] row1 = new int[img1.width()];
+            int[] row2 = new int[img2.width()];
+            for (int row = 0; row < smallerHeight; row++) {
+                img1.getRGBRow(row, row1);
+                img2.getRGBRow(row, row2);
+                PixelKernels.dotProducts(row1, row2, smallerWidth, rowSums);
+            }
+            sums[0] = rowSums[0];
+            if (!sameSize) {
+                sums[1] = rowSums[1];
+                sums[2] = rowSums[2];
+            }
         }
 
+        BigDecimal product = BigDecimal.valueOf(sums[0]);
+        BigDecimal square1 = BigDecimal.valueOf(sums[1]);
+        BigDecimal square2 = BigDecimal.valueOf(sums[2]);
+        BigDecimal zero = new BigDecimal(0);
+        MathContext mc = new MathContext(10);
 
-        for (cols = 0; cols < smallerWidth; cols++) {
-            for (rows = 0; rows < smallerHeight; rows++) {
-                pixel1 = greyImg1.getBytes(cols, rows);
-                pixel2 = greyImg2.getBytes(cols, rows);
-                /*System.out.println(pixel1[1]);
-                System.out.println(pixel2[1]);*/
-                product =
-                    product.add(BigDecimal.valueOf(pixel1[1])
-                        .multiply(BigDecimal.valueOf(pixel2[1])));
-                square1 =
-                    square1.add(BigDecimal.valueOf(pixel1[1])
-                        .multiply(BigDecimal.valueOf(pixel1[1])));
-                square2 =
-                    square2.add(BigDecimal.valueOf(pixel2[1])
-                        .multiply(BigDecimal.valueOf(pixel2[1])));
-            }
-        }
         square1 = square1.sqrt(mc);
         square2 = square2.sqrt(mc);
 
@@ -83,4 +69,56 @@ public class ImageProcessing {
 
         return (product.divide((square1.multiply(square2)), mc)).doubleValue();
     }
+
+    /**
+     * Find where a template, such as a logo or a form field, appears in a page. This
+     * returns up to 10 non-overlapping positions whose score is at least 0.5; see
+     * {@link #matchTemplate(Image, Image, int, double)}.
+     *
+     * @param page     the image to search, is not null
+     * @param template the image to look for, is not null and no wider or taller than page
+     * @return the best matches, best first
+     */
+    public static List<TemplateMatch> matchTemplate(Image page, Image template) {
+        return matchTemplate(page, template, 10, 0.5);
+    }
+
+    /**
+     * Find where a template, such as a logo or a form field, appears in a page.
+     * <p>
+     * Every position of the template entirely inside the page is scored by the
+     * normalized cross-correlation of the gray levels of the template and of the part
+     * of the page it covers: 1 where they are equal up to brightness and contrast, and
+     * 0 where the page or the template is a single flat colour. The positions whose
+     * score is a local maximum and at least {@code minimumScore} are candidates, and the
+     * candidates are taken from the best down, skipping any that overlaps one already
+     * taken, until {@code maxMatches} are found.
+     * <p>
+     * The correlations are computed with FFTs over blocks of the page, in parallel, and
+     * the normalization with summed-area tables, so the time taken grows with the area
+     * of the page times the logarithm of the size of the template, not with the product
+     * of the two areas.
+     *
+     * @param page         the image to search, is not null
+     * @param template     the image to look for, is not null and no wider or taller than page
+     * @param maxMatches   the largest number of matches to return, >= 1
+     * @param minimumScore the smallest score of a match, <= 1
+     * @return the best matches, best first; empty if none scores at least {@code minimumScore}
+     */
+    public static List<TemplateMatch> matchTemplate(Image page, Image template, int maxMatches,
+                                                    double minimumScore) {
+        if (page == null || template == null) {
+            throw new IllegalArgumentException("page and template cannot be null");
+        }
+        if (template.width() > page.width() || template.height() > page.height()) {
+            throw new IllegalArgumentException("template must fit in the page");
+        }
+        if (maxMatches < 1) {
+            throw new IllegalArgumentException("maxMatches must be positive");
+        }
+        if (!(minimumScore <= 1)) {
+            throw new IllegalArgumentException("minimumScore must be at most 1");
+        }
+        return TemplateMatcher.match(page, template, maxMatches, minimumScore);
+    }
 }
@@ -1,18 +1,23 @@
 package ca.ubc.ece.cpen221.ip.mp;
 
+import ca.ubc.ece.cpen221.ip.core.BorderMode;
+import ca.ubc.ece.cpen221.ip.core.ColourSpace;
 import ca.ubc.ece.cpen221.ip.core.Image;
 import ca.ubc.ece.cpen221.ip.core.ImageProcessingException;
+import ca.ubc.ece.cpen221.ip.core.ImageStats;
+import ca.ubc.ece.cpen221.ip.core.Kernel;
+import ca.ubc.ece.cpen221.ip.core.PlanarImage;
 import ca.ubc.ece.cpen221.ip.core.Rectangle;
 
 import java.awt.Point;
 
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.Set;
 import static java.util.Arrays.sort;
 import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Collectors;
 
 /**
  * This datatype (or class) provides operations for transforming an image.
@@ -31,6 +36,7 @@ public class ImageTransformer {
     private Image image;
     private int width;
     private int height;
+    private ResultCache cache;
 
     /**
      * Creates an ImageTransformer with an image. The provided image is
@@ -44,21 +50,41 @@ public class ImageTransformer {
         height = img.height();
     }
 
+    /**
+     * Creates an ImageTransformer that looks up the results of {@code denoise},
+     * {@code weather}, {@code blockPaint}, {@code rotate} and {@code dft} in a cache
+     * before computing them, and stores them there afterwards.
+     *
+     * @param img   is not null
+     * @param cache the cache to use, is not null
+     */
+    public ImageTransformer(Image img, ResultCache cache) {
+        this(img);
+        if (cache == null) {
+            throw new IllegalArgumentException("cache cannot be null");
+        }
+        this.cache = cache;
+    }
+
     /**
      * Obtain the grayscale version of the image.
      *
      * @return the grayscale version of the instance.
      */
     public Image grayscale() {
-        Image gsImage = new Image(width, height);
-        for (int col = 0; col < width; col++) {
-            for (int row = 0; row < height; row++) {
-                Color color = image.get(col, row);
-                Color gray = Image.toGray(color);
-                gsImage.set(col, row, gray);
-            }
-        }
-        return gsImage;
+        return mapRows(PixelKernels::grayscale);
+    }
+
+    /**
+     * Write the grayscale version of the image into an existing image, as
+     * {@link #grayscale()} does, so that no new image is allocated.
+     *
+     * @param output the image to overwrite, with the same dimensions as the instance;
+     *               it may be the instance itself
+     * @return {@code output}
+     */
+    public Image grayscale(Image output) {
+        return mapRows(PixelKernels::grayscale, output);
     }
 
     /**
@@ -67,17 +93,19 @@ public class ImageTransformer {
      * @return a reds-only version of the instance.
      */
     public Image red() {
-        Image redImage = new Image(width, height);
-        for (int col = 0; col < width; col++) {
-            for (int row = 0; row < height; row++) {
-                int originalPixel = image.getRGB(col, row);
-                int alpha = (originalPixel >> 24) & 0xFF;
-                int red = (originalPixel >> 16) & 0xFF;
-                int desiredColor = (alpha << 24) | (red << 16) | (0 << 8) | (0);
-                redImage.setRGB(col, row, desiredColor);
-            }
-        }
-        return redImage;
+        return mapRows(PixelKernels::red);
+    }
+
+    /**
+     * Write the reds-only version of the image into an existing image, as
+     * {@link #red()} does, so that no new image is allocated.
+     *
+     * @param output the image to overwrite, with the same dimensions as the instance;
+     *               it may be the instance itself
+     * @return {@code output}
+     */
+    public Image red(Image output) {
+        return mapRows(PixelKernels::red, output);
     }
 
     /**
@@ -86,13 +114,32 @@ public class ImageTransformer {
      * @return the mirror image of the instance.
      */
     public Image mirror() {
-        Image mirrorImage = new Image(width, height);
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                mirrorImage.setRGB(col, row, image.getRGB(width - 1 - col, row));
+        return mirror(new Image(width, height));
+    }
+
+    /**
+     * Write the mirror image of the instance into an existing image, as
+     * {@link #mirror()} does, so that no new image is allocated.
+     *
+     * @param output the image to overwrite, with the same dimensions as the instance;
+     *               it may be the instance itself
+     * @return {@code output}
+     */
+    public Image mirror(Image output) {
+        validateOutput(output);
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                for (int left = 0, right = width - 1; left < right; left++, right--) {
+                    int rgb = rgbs[left];
+                    rgbs[left] = rgbs[right];
+                    rgbs[right] = rgb;
+                }
+                output.setRGBRow(row, rgbs);
             }
-        }
-        return mirrorImage;
+        });
+        return output;
     }
 
     /**
@@ -103,29 +150,19 @@ public class ImageTransformer {
      * @return the negative of the instance.
      */
     public Image negative() {
-        Image negative = new Image(width, height);
-        int col;
-        int row;
-        for (col = 0; col < width; col++) {
-            for (row = 0; row < height; row++) {
-                negative.setRGB(col, row, negativeColor(col, row));
-            }
-        }
-        return negative;
+        return mapRows(PixelKernels::negative);
     }
 
     /**
-     * @return the colour of the pixel modified in the negative of an image
+     * Write the negative of the image into an existing image, as {@link #negative()}
+     * does, so that no new image is allocated.
+     *
+     * @param output the image to overwrite, with the same dimensions as the instance;
+     *               it may be the instance itself
+     * @return {@code output}
      */
-    private int negativeColor(int col, int row) {
-        int[] pixelColour = getBytes(col, row);
-        int negativeConstant = 255;
-
-        for (int i = 0; i < pixelColour.length; i++) {
-            pixelColour[i] = negativeConstant - pixelColour[i];
-        }
-
-        return mergedColor(pixelColour);
+    public Image negative(Image output) {
+        return mapRows(PixelKernels::negative, output);
     }
 
     /**
@@ -141,42 +178,61 @@ public class ImageTransformer {
      * @return the posterized version of the instance.
      */
     public Image posterize() {
-        Image output = new Image(width, height);
-        int col;
-        int row;
-        for (row = 0; row < height; row++) {
-            for (col = 0; col < width; col++) {
-                output.setRGB(col, row, posterizedColor(col, row));
-            }
-        }
-        return output;
+        return mapRows(PixelKernels::posterize);
+    }
+
+    /**
+     * Write the posterized version of the image into an existing image, as
+     * {@link #posterize()} does, so that no new image is allocated.
+     *
+     * @param output the image to overwrite, with the same dimensions as the instance;
+     *               it may be the instance itself
+     * @return {@code output}
+     */
+    public Image posterize(Image output) {
+        return mapRows(PixelKernels::posterize, output);
     }
 
     /**
-     * @param col the column of the pixel in question
-     * @param row the row of the pixel in question
-     * @return the posterized version of the pixel
+     * A per-pixel colour operation applied to a row of packed ARGB values.
      */
-    private int posterizedColor(int col, int row) {
-        int[] pixel = getBytes(col, row);
-        int length = 4;
-        int i;
-        final int lowerCutoff = 64;
-        final int midCutoff = 128;
-        final int lowerAvg = 32;
-        final int midAvg = 96;
-        final int upperAvg = 222;
-
-        for (i = 1; i < length; i++) {
-            if (0 <= pixel[i] && pixel[i] <= lowerCutoff) {
-                pixel[i] = lowerAvg;
-            } else if (lowerCutoff < pixel[i] && pixel[i] <= midCutoff) {
-                pixel[i] = midAvg;
-            } else {
-                pixel[i] = upperAvg;
+    @FunctionalInterface
+    private interface RowKernel {
+        void apply(int[] src, int[] dst, int length);
+    }
+
+    /**
+     * @return a new image whose rows are the rows of the instance transformed by {@code kernel}
+     */
+    private Image mapRows(RowKernel kernel) {
+        return mapRows(kernel, new Image(width, height));
+    }
+
+    /**
+     * Overwrite {@code output} with the rows of the instance transformed by {@code kernel}.
+     *
+     * @return {@code output}
+     */
+    private Image mapRows(RowKernel kernel, Image output) {
+        validateOutput(output);
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                kernel.apply(rgbs, rgbs, width);
+                output.setRGBRow(row, rgbs);
             }
+        });
+        return output;
+    }
+
+    private void validateOutput(Image output) {
+        if (output == null) {
+            throw new IllegalArgumentException("output cannot be null");
+        }
+        if (output.width() != width || output.height() != height) {
+            throw new IllegalArgumentException("output must have the dimensions of the image");
         }
-        return mergedColor(pixel);
     }
 
     /**
@@ -261,14 +317,27 @@ public class ImageTransformer {
      * @return a denoised version of the instance.
      */
     public Image denoise() {
-        Image denoisedImage = new Image(width, height);
-        for (int col = 0; col < width; col++) {
-            for (int row = 0; row < height; row++) {
-                denoisedImage.setRGB(col, row, denoisedColour(col, row));
-            }
+        if (cache != null) {
+            return cache.get(image, "denoise", List.of(),
+                () -> new ImageTransformer(image).denoise());
         }
-        denoisedImage.show();
-        return denoisedImage;
+        return new PlanarTransformer(PlanarImage.of(image)).denoise().toImage();
+    }
+
+    /**
+     * Update a denoised version of an earlier state of the image after some of its
+     * pixels have changed. Only the pixels within one pixel of {@code dirty} can have
+     * a different denoised colour, so only they are recomputed, and the cost of an
+     * update is proportional to the size of the changed region rather than the image.
+     *
+     * @param previous the result of denoising the image before the change, with the
+     *                 same dimensions as the image; it is updated in place
+     * @param dirty    the changed region of the image (for example
+     *                 {@link Image#dirtyRegion()}), or {@code null} if nothing changed
+     * @return {@code previous}, now equal to {@code denoise()} of the instance.
+     */
+    public Image denoise(Image previous, java.awt.Rectangle dirty) {
+        return recompute(previous, dirty, 1, this::denoisedColour);
     }
 
     /**
@@ -363,12 +432,49 @@ public class ImageTransformer {
      * @return a weathered version of the image.
      */
     public Image weather() {
-        Image output = new Image(width, height);
-        int col;
-        int row;
-        for (row = 0; row < height; row++) {
-            for (col = 0; col < width; col++) {
-                output.setRGB(col, row, weatheredColor(col, row));
+        if (cache != null) {
+            return cache.get(image, "weather", List.of(),
+                () -> new ImageTransformer(image).weather());
+        }
+        return new PlanarTransformer(PlanarImage.of(image)).weather().toImage();
+    }
+
+    /**
+     * Update a weathered version of an earlier state of the image after some of its
+     * pixels have changed, recomputing only the pixels within one pixel of
+     * {@code dirty}. The cost of an update is proportional to the size of the changed
+     * region rather than the image.
+     *
+     * @param previous the result of weathering the image before the change, with the
+     *                 same dimensions as the image; it is updated in place
+     * @param dirty    the changed region of the image (for example
+     *                 {@link Image#dirtyRegion()}), or {@code null} if nothing changed
+     * @return {@code previous}, now equal to {@code weather()} of the instance.
+     */
+    public Image weather(Image previous, java.awt.Rectangle dirty) {
+        return recompute(previous, dirty, 1, this::weatheredColor);
+    }
+
+    /**
+     * Recompute the pixels of {@code output} within {@code radius} of {@code dirty}.
+     *
+     * @param colour computes the colour of output pixel (col, row) from the instance
+     */
+    private Image recompute(Image output, java.awt.Rectangle dirty, int radius,
+                            IntBinaryOperator colour) {
+        if (output == null || output.width() != width || output.height() != height) {
+            throw new IllegalArgumentException("previous result must match the image dimensions");
+        }
+        if (dirty == null || dirty.isEmpty()) {
+            return output;
+        }
+        int left = Math.max(0, dirty.x - radius);
+        int top = Math.max(0, dirty.y - radius);
+        int right = Math.min(width - 1, dirty.x + dirty.width - 1 + radius);
+        int bottom = Math.min(height - 1, dirty.y + dirty.height - 1 + radius);
+        for (int row = top; row <= bottom; row++) {
+            for (int col = left; col <= right; col++) {
+                output.setRGB(col, row, colour.applyAsInt(col, row));
             }
         }
         return output;
@@ -433,56 +539,100 @@ public class ImageTransformer {
      * bottom-right corner will use a 2 x 2 block.
      */
     public Image blockPaint(int blockSize) {
-        Image blockImage = new Image(width, height);
+        if (cache != null) {
+            return cache.get(image, "blockPaint", List.of(blockSize),
+                () -> new ImageTransformer(image).blockPaint(blockSize));
+        }
+        return new PlanarTransformer(PlanarImage.of(image)).blockPaint(blockSize).toImage();
+    }
 
-        for (int row = 0; row < height; row += blockSize) {
-            for (int col = 0; col < width; col += blockSize) {
-                averageOfNeighbor(blockSize, blockImage, col, row);
-            }
+    /**
+     * Convolve the image with a kernel, treating pixels outside the image as
+     * copies of the nearest edge pixel ({@link BorderMode#CLAMP}).
+     *
+     * @param kernel the kernel to apply, is not null
+     * @return the convolved version of the instance.
+     */
+    public Image convolve(Kernel kernel) {
+        return convolve(kernel, BorderMode.CLAMP, Color.BLACK);
+    }
+
+    /**
+     * Convolve the image with a kernel, using the given border mode for pixels
+     * outside the image. {@link BorderMode#CONSTANT} uses black.
+     *
+     * @param kernel the kernel to apply, is not null
+     * @param mode   the border mode, is not null
+     * @return the convolved version of the instance.
+     */
+    public Image convolve(Kernel kernel, BorderMode mode) {
+        return convolve(kernel, mode, Color.BLACK);
+    }
+
+    /**
+     * Convolve the image with a kernel. Each colour channel is handled separately
+     * and the result is rounded and clamped to [0, 255].
+     * <p>
+     * Separable kernels (see {@link Kernel#isSeparable()}) are applied as a row pass
+     * followed by a column pass, so a k x k separable kernel costs O(k) per pixel.
+     * Accumulation uses fixed-point integer arithmetic and the rows of the image are
+     * processed in parallel.
+     *
+     * @param kernel      the kernel to apply, is not null
+     * @param mode        the border mode, is not null
+     * @param borderColor the colour of pixels outside the image when {@code mode} is
+     *                    {@link BorderMode#CONSTANT}, is not null
+     * @return the convolved version of the instance.
+     */
+    public Image convolve(Kernel kernel, BorderMode mode, Color borderColor) {
+        if (kernel == null || mode == null || borderColor == null) {
+            throw new IllegalArgumentException("convolve() arguments cannot be null");
         }
-        return blockImage;
+        return new PlanarTransformer(PlanarImage.of(image)).convolve(kernel, mode, borderColor)
+            .toImage();
     }
 
     /**
-     * @param m          the dimension of the square block, >1.
-     * @param blockImage the image that we are converting into block paint.
-     * @param col        the column we are at.
-     * @param row        the row we are at.
-     * @return blockImage with the block at position (row,col) converted into block paint of size m.
+     * Equalize the histogram of the gray levels of the image, so that the gray levels
+     * of the result are spread as evenly as possible over [0, 255]. Each colour channel
+     * of a pixel changes by as much as its gray level, so gray images stay gray.
+     *
+     * @return the equalized version of the instance.
      */
-    private Image averageOfNeighbor(int m, Image blockImage, int col, int row) {
-        int arraySize = 4;
-        int[] color;
-        int[] averageArray = new int[arraySize];
-        int averageInt = 0;
-        int count = 0;
-        for (int i = row; i < row + m; i++) {
-            for (int j = col; j < col + m; j++) {
-                if (i < 0 || i >= height || j < 0 || j >= width) {
-                    continue;
-                } else {
-                    count++;
-                    color = getBytes(j, i);
-                    for (int k = 0; k < arraySize; k++) {
-                        averageArray[k] += color[k];
-                    }
-                }
-            }
+    public Image equalize() {
+        return HistogramEqualization.apply(image, 1, 1, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Equalize the histogram of the gray levels of the image locally, with contrast
+     * limited adaptive histogram equalization (CLAHE). This evens out uneven
+     * illumination, such as on scanned pages.
+     * <p>
+     * The image is divided into a grid of tiles and the histogram of each tile is
+     * equalized separately, after clipping every gray level's count at
+     * {@code clipLimit} times the average count so that noise in flat regions is not
+     * amplified; the clipped counts are spread over all gray levels. The new gray level
+     * of each pixel is interpolated bilinearly between the equalizations of the four
+     * nearest tiles, so no tile boundaries show. As with {@link #equalize()}, each colour
+     * channel of a pixel changes by as much as its gray level.
+     *
+     * @param tileColumns the number of tiles across the image, between 1 and the width
+     * @param tileRows    the number of tiles down the image, between 1 and the height
+     * @param clipLimit   the clip limit, >= 1; larger values allow more contrast, and
+     *                    {@link Double#POSITIVE_INFINITY} disables clipping
+     * @return the equalized version of the instance.
+     */
+    public Image equalize(int tileColumns, int tileRows, double clipLimit) {
+        if (tileColumns < 1 || tileColumns > width) {
+            throw new IllegalArgumentException("tileColumns must be between 1 and the width");
         }
-        for (int l = 0; l < arraySize; l++) {
-            averageArray[l] /= count;
-            averageInt = mergedColor(averageArray);
+        if (tileRows < 1 || tileRows > height) {
+            throw new IllegalArgumentException("tileRows must be between 1 and the height");
         }
-        for (int i = row; i < row + m; i++) {
-            for (int j = col; j < col + m; j++) {
-                if (i < 0 || i >= height || j < 0 || j >= width) {
-                    continue;
-                } else {
-                    blockImage.setRGB(j, i, averageInt);
-                }
-            }
+        if (!(clipLimit >= 1)) {
+            throw new IllegalArgumentException("clipLimit must be at least 1");
         }
-        return blockImage;
+        return HistogramEqualization.apply(image, tileColumns, tileRows, clipLimit);
     }
 
 
@@ -496,28 +646,60 @@ public class ImageTransformer {
      * @return a rotate version of the instance.
      */
     public Image rotate(double degrees) {
-        double new_width = Math.abs(Math.sin(degrees * Math.PI / 180)) * height +
-            Math.abs(Math.cos(degrees * Math.PI / 180)) * width;
-        double new_height = Math.abs(Math.sin(degrees * Math.PI / 180)) * width +
-            Math.abs(Math.cos(degrees * Math.PI / 180)) * height;
-        Image outImage = new Image((int) Math.round(new_width), (int) Math.round(new_height));
-
-        for (int col = 0; col < (int) Math.round(new_width); col++) {
-            for (int row = 0; row < (int) Math.round(new_height); row++) {
-                int original_x = (int) ((col - new_width / 2) * Math.cos(degrees * Math.PI / 180) +
-                    (row - new_height / 2) * Math.sin(degrees * Math.PI / 180) + width / 2);
-                int original_y = (int) (-(col - new_width / 2) * Math.sin(degrees * Math.PI / 180) +
-                    (row - new_height / 2) * Math.cos(degrees * Math.PI / 180) + height / 2);
+        if (cache != null) {
+            return cache.get(image, "rotate", List.of(degrees),
+                () -> new ImageTransformer(image).rotate(degrees));
+        }
+        Image outImage = rotatedCanvas(image, degrees);
+        RowBands.forEach(outImage.height(),
+            (start, end) -> rotateRows(image, degrees, outImage, start, end));
+        return outImage;
+    }
+
+    /**
+     * @return a new image with the dimensions of {@code image} rotated by {@code degrees}
+     */
+    static Image rotatedCanvas(Image image, double degrees) {
+        double radians = degrees * Math.PI / 180;
+        double new_width = Math.abs(Math.sin(radians)) * image.height() +
+            Math.abs(Math.cos(radians)) * image.width();
+        double new_height = Math.abs(Math.sin(radians)) * image.width() +
+            Math.abs(Math.cos(radians)) * image.height();
+        return new Image((int) Math.round(new_width), (int) Math.round(new_height));
+    }
+
+    /**
+     * Write rows [start, end) of {@code image} rotated by {@code degrees} into
+     * {@code outImage}, which was created by {@link #rotatedCanvas(Image, double)}.
+     * Rows are independent, so disjoint ranges may be written concurrently. The
+     * {@link Cancellation} of the current thread is checked before every row.
+     */
+    static void rotateRows(Image image, double degrees, Image outImage, int start, int end) {
+        int width = image.width();
+        int height = image.height();
+        double sin = Math.sin(degrees * Math.PI / 180);
+        double cos = Math.cos(degrees * Math.PI / 180);
+        double new_width = Math.abs(sin) * height + Math.abs(cos) * width;
+        double new_height = Math.abs(sin) * width + Math.abs(cos) * height;
+        int[] rgbs = new int[outImage.width()];
+        Cancellation cancellation = Cancellation.current();
+        for (int row = start; row < end; row++) {
+            cancellation.check();
+            for (int col = 0; col < rgbs.length; col++) {
+                int original_x = (int) ((col - new_width / 2) * cos +
+                    (row - new_height / 2) * sin + width / 2);
+                int original_y = (int) (-(col - new_width / 2) * sin +
+                    (row - new_height / 2) * cos + height / 2);
                 if (original_x >= 0 && original_y >= 0 &&
                     original_x < width &&
                     original_y < height) {
-                    outImage.set(col, row, image.get(original_x, original_y));
+                    rgbs[col] = image.getRGB(original_x, original_y);
                 } else {
-                    outImage.set(col, row, Color.WHITE);
+                    rgbs[col] = Color.WHITE.getRGB();
                 }
             }
+            outImage.setRGBRow(row, rgbs);
         }
-        return outImage;
     }
 
     /**
@@ -527,82 +709,49 @@ public class ImageTransformer {
      * @return the amplitude and phase of the DFT of the instance.
      */
     public DFTOutput dft() {
-        ImageTransformer grayImg = new ImageTransformer(this.grayscale());
-
-        int x;
-        int y;
-        int u;
-        int v;
-        double theta;
-        double realSum = 0;
-        double iSum = 0;
-        int intensity;
-        double[][] amplitude = new double[height][width];
-        double[][] phase = new double[height][width];
-
-        for (u = 0; u < height; u++) {
-            for (v = 0; v < width; v++) {
-                for (x = 0; x < height; x++) {
-                    for (y = 0; y < width; y++) {
-                        theta = 2.0 * Math.PI * (u * x / (double) height + v * y / (double) width);
-                        int[] pixel = grayImg.getBytes(y, x);
-                        intensity = pixel[1];
-                        realSum += intensity * (Math.cos(theta));
-                        iSum += intensity * (Math.sin(theta));
-                    }
-                }
-                amplitude[u][v] = Math.sqrt(Math.pow(realSum, 2) + Math.pow(iSum, 2));
-                if(realSum == 0 || iSum == 0) {
-                    phase[u][v] = 0;
-                } else {
-                    phase[u][v] = Math.atan(iSum / realSum);
-                }
-                realSum = 0;
-                iSum = 0;
-            }
+        if (cache != null) {
+            return cache.get(image, "dft", List.of(),
+                () -> new ImageTransformer(image).dft());
         }
-        System.out.println();
-        return new DFTOutput(amplitude, phase);
+        return new PlanarTransformer(PlanarTransformer.grayscale(image)).dft();
     }
 
     /**
-     * Filters a DFT image to make whitePercent of the pixels white
+     * Filters a DFT image to make whitePercent of the pixels white: pixels whose red
+     * component is above the highest threshold (190 or less) that lets at least that
+     * many through become white, and all others black.
      * @return
      */
     private Image filter() {
         Image output = new Image(width, height);
-        int area = width * height;
         double whitePercent = .0022222;
-        int count = 0;
+        int whitePixels = (int) Math.round(width * height * whitePercent);
+        if (whitePixels == 0) {
+            return output;
+        }
+
+        long[] histogram = image.stats().histogram(ImageStats.RED);
         int threshold = 190;
+        long count = 0;
+        for (int level = threshold + 1; level < histogram.length; level++) {
+            count += histogram[level];
+        }
+        while (count < whitePixels) {
+            count += histogram[threshold];
+            threshold--;
+        }
 
-        int[] pixel;
-        int col;
-        int row;
-        while (count < (int) Math.round(area * whitePercent)) {
-            for (col = 0; col < width; col++) {
-                for (row = 0; row < height; row++) {
-                    pixel = getBytes(col, row);
-                    if (pixel[1] > threshold) {
-                        pixel[0] = 255;
-                        pixel[1] = 255;
-                        pixel[2] = 255;
-                        pixel[3] = 255;
-                        if (output.getRGB(col, row) != mergedColor(pixel)) {
-                            count++;
-                        }
-                        output.setRGB(col, row, mergedColor(pixel));
-                    } else {
-                        pixel[0] = 255;
-                        pixel[1] = 0;
-                        pixel[2] = 0;
-                        pixel[3] = 0;
-                        output.setRGB(col, row, mergedColor(pixel));
-                    }
+        int cutoff = threshold;
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                for (int col = 0; col < width; col++) {
+                    rgbs[col] = ((rgbs[col] >> 16) & 0xFF) > cutoff ? 0xFFFFFFFF : 0xFF000000;
                 }
+                output.setRGBRow(row, rgbs);
             }
-            threshold--;
-        }
+        });
         return output;
     }
 
@@ -610,7 +759,7 @@ public class ImageTransformer {
      * Replaces a background screen with a provided image.
      * <p>
      * This operation identifies the largest connected region of the image that matches
-     * <code>screenColour</code> exactly. This operation determines a rectangle that bounds
+     * <code>screenColour</code> exactly (8-connected). This operation determines a rectangle that bounds
      * the "green screen" region and overlays the <code>backgroundImage</code> over that
      * rectangle by aligning the top-left corner of the image with the top-left corner of the
      * rectangle. After determining the screen region, all pixels in that region matching
@@ -618,7 +767,8 @@ public class ImageTransformer {
      * <code>backgroundImage</code>.
      * <p>
      * If <code>backgroundImage</code> is smaller
-     * than the screen then the image is tiled over the screen.
+     * than the screen then the image is tiled over the screen. If no pixel matches
+     * <code>screenColour</code>, a copy of the image is returned.
      *
      * @param screenColour    the colour of the background screen, is not null
      * @param backgroundImage the image to replace the screen with, is not null
@@ -627,128 +777,99 @@ public class ImageTransformer {
      * background image is smaller than the screen size.
      */
     public Image greenScreen(Color screenColour, Image backgroundImage) {
-        ArrayList<Set> regionSets = new ArrayList<>();
-        boolean flag;
-        for (int col = 0; col < width; col++) {
-            for (int row = 0; row < height; row++) {
-                flag = true;
-                if (image.get(col, row).equals(screenColour)) {
-                    for (Set<Point> S : regionSets) {
-                        for (Point P : S) {
-                            if (P.x == col && P.y == row) {
-                                flag = false;
-                            }
-                        }
-                    }
-                    if (flag) {
-                        Set<Point> NeighbourPixelsSameColour = new HashSet<>();
-                        NeighbourPixelsSameColour.add( new Point( col, row ));
-                        checkNeighbours(col, row, screenColour, NeighbourPixelsSameColour);
-                        regionSets.add(NeighbourPixelsSameColour);
-                    }
-                }
-            }
-        }
-
-        Set<Point> smallSet = new HashSet<>();
-        Set<Point> bigSet = new HashSet<>();
-        for (int k = 0; k < regionSets.size(); k++) {
-            for (int l = k + 1; l < regionSets.size(); l++) {
-                if ((regionSets.get(k)).size() > (regionSets.get(l)).size()) {
-                    smallSet = regionSets.get(l);
-                    bigSet = regionSets.get(k);
-                    regionSets.set(k, smallSet);
-                    regionSets.set(l, bigSet);
-                }
-            }
-        }
-        Set<Point> biggestRegion = regionSets.get(regionSets.size() - 1);
-        Rectangle bigRectangle = makeRectangle(biggestRegion);
-        Image output = fitBackground( bigRectangle, backgroundImage, screenColour );
-        return output;
+        return greenScreen(screenColour, backgroundImage, 0, ColourSpace.RGB);
     }
 
     /**
-     * This method will go through all neighbour pixels of a given pixel to find every other one
-     * that is connected and has the same colour of that first one.
-     * @param col
-     * @param row
-     * @param screenColour
-     * @return A Set of arrays of integers storing Column (pos 0) and Row (pos 1) data for each
-     * pixel that has the same colour
-     */
-    private void checkNeighbours (int col, int row, Color screenColour, Set<Point> NeighbourPixelsSameColour ) {
-        Point P = new Point( col, row );
-        for ( int C = col - 1; C <= col + 1; C++ ) {
-            for ( int R = row - 1; R <= row + 1; R++ ) {
-                //avoiding pixels that are out of limit
-                if ( C >= 0 && R >= 0 && C < width && R < height ) {
-                    if( screenColour.equals( image.get( C, R ) )){
-                        P.setLocation( C, R );
-                        //it will eventually stop the recursion as we will store all
-                        //neighbours data (C and R) into a set.
-                        if( !( NeighbourPixelsSameColour.contains( P ) ) ) {
-                            NeighbourPixelsSameColour.add( P );
-                            checkNeighbours( C, R, screenColour, NeighbourPixelsSameColour );
-                        }
-                    }
-                }
-            }
-        }
+     * Replaces a background screen with each of the provided images. The result is
+     * the same as calling {@link #greenScreen(Color, Image)} once per background, but
+     * the screen region is found only once and the composites are produced in parallel.
+     * Every returned image is a new image.
+     *
+     * @param screenColour     the colour of the background screen, is not null
+     * @param backgroundImages the images to replace the screen with, is not null
+     *                         and does not contain null
+     * @return the composites, where element i uses <code>backgroundImages.get(i)</code>
+     */
+    public List<Image> greenScreenAll(Color screenColour, List<Image> backgroundImages) {
+        return greenScreenAll(screenColour, backgroundImages, 0, ColourSpace.RGB);
     }
 
-
-    private Rectangle makeRectangle (Set<Point> biggestRegion ) {
-        int minC = width;
-        int minR = height;
-        int maxC = 0;
-        int maxR = 0;
-
-        for ( Point P : biggestRegion) {
-            if ( P.x < minC ) {
-                minC = P.x;
-            }
-            if ( P.y < minR ) {
-                minR = P.y;
-            }
-            if ( P.x > maxC ) {
-                maxC = P.x;
-            }
-            if ( P.y > maxR ) {
-                maxR = P.y;
+    /**
+     * Replaces a background screen, matched within a tolerance, with each of the
+     * provided images. The result is the same as calling
+     * {@link #greenScreen(Color, Image, int, ColourSpace)} once per background, but the
+     * matte and the screen region are computed only once and the composites are
+     * produced in parallel. Every returned image is a new image.
+     *
+     * @param screenColour     the colour of the background screen, is not null
+     * @param backgroundImages the images to replace the screen with, is not null
+     *                         and does not contain null
+     * @param tolerance        the colour distance within which a pixel is considered part of
+     *                         the screen, >= 0
+     * @param space            the colour space in which distances are measured, is not null
+     * @return the composites, where element i uses <code>backgroundImages.get(i)</code>
+     */
+    public List<Image> greenScreenAll(Color screenColour, List<Image> backgroundImages,
+                                      int tolerance, ColourSpace space) {
+        if (backgroundImages == null) {
+            throw new IllegalArgumentException("background images cannot be null");
+        }
+        for (Image backgroundImage : backgroundImages) {
+            if (backgroundImage == null) {
+                throw new IllegalArgumentException("background images cannot be null");
             }
         }
-
-        return new Rectangle(minC, minR, maxC, maxR);
+        ChromaKey key = ChromaKey.of(image, screenColour, tolerance, space);
+        ChromaKey.Screen screen = key.largestRegion();
+        Cancellation cancellation = Cancellation.current();
+        return backgroundImages.parallelStream()
+            .map(background -> cancellation.call(() -> key.composite(image, screen, background)))
+            .collect(Collectors.toList());
     }
 
-    private Image fitBackground ( Rectangle bigRectangle, Image backgroundImage, Color screenColor ) {
-        int recWidth = bigRectangle.xBottomRight - bigRectangle.xTopLeft;
-        int recHeight = bigRectangle.yBottomRight - bigRectangle.yTopLeft;
-        int imageWidth = backgroundImage.width();
-        int imageHeight = backgroundImage.height();
-        Image output = image;
-        int C = 0; //backgroundImage col counter
-        int R = 0; //backgroundImage row counter
-
-        for ( int col = bigRectangle.xTopLeft; col <= bigRectangle.xBottomRight; col++) {
-            for ( int row = bigRectangle.yTopLeft; row <= bigRectangle.yBottomRight; row++) {
-                if ( screenColor.equals( image.get( col, row ))) {
-                    output.set(col, row, backgroundImage.get(C, R));
-                    R++;
-                    if (R == imageHeight) {
-                        R = 0;
-                    }
-                }
-            }
-            R = 0;
-            C++;
-            if ( C == imageWidth ) {
-                C = 0;
-            }
+    /**
+     * Replaces a background screen with a provided image, matching the screen colour
+     * within a tolerance instead of exactly.
+     * <p>
+     * A pixel whose distance from <code>screenColour</code> (measured in
+     * <code>space</code>) is at most <code>tolerance</code> is fully replaced;
+     * pixels between <code>tolerance</code> and <code>2 * tolerance</code> away are
+     * blended with the background in proportion to their distance, which softens the
+     * edges of the foreground. The screen region is the bounding rectangle of the largest
+     * connected region of fully replaced pixels, and <code>backgroundImage</code> is
+     * tiled over it from its top-left corner, as in {@link #greenScreen(Color, Image)}.
+     * If no pixel is within the tolerance, a copy of the image is returned.
+     *
+     * @param screenColour    the colour of the background screen, is not null
+     * @param backgroundImage the image to replace the screen with, is not null
+     * @param tolerance       the colour distance within which a pixel is considered part of
+     *                        the screen, >= 0
+     * @param space           the colour space in which distances are measured, is not null
+     * @return an image with provided image replacing the background screen
+     */
+    public Image greenScreen(Color screenColour, Image backgroundImage, int tolerance,
+                             ColourSpace space) {
+        if (backgroundImage == null) {
+            throw new IllegalArgumentException("background image cannot be null");
         }
+        ChromaKey key = ChromaKey.of(image, screenColour, tolerance, space);
+        return key.composite(image, key.largestRegion(), backgroundImage);
+    }
 
-        return output;
+    /**
+     * Obtain the alpha matte used by {@link #greenScreen(Color, Image, int, ColourSpace)}
+     * as a grayscale image: white where the screen colour is matched, black where the
+     * foreground is kept, and shades of gray where the two are blended.
+     *
+     * @param screenColour the colour of the background screen, is not null
+     * @param tolerance    the colour distance within which a pixel is considered part of
+     *                     the screen, >= 0
+     * @param space        the colour space in which distances are measured, is not null
+     * @return the matte of the instance
+     */
+    public Image chromaKeyMatte(Color screenColour, int tolerance, ColourSpace space) {
+        return ChromaKey.of(image, screenColour, tolerance, space).toImage();
     }
 
     /**
@@ -760,17 +881,27 @@ public class ImageTransformer {
      * should also contain text in the center of the image.
      */
     public Image alignTextImage() throws ImageProcessingException {
+        return rotate(dftSkew().correction());
+    }
+
+    /**
+     * Estimate the skew of the text from the bright peaks of the DFT amplitude of the
+     * central square of the image, which line up across the text lines. This is the
+     * engine of {@link #alignTextImage()}, exposed as a {@link SkewEstimator} by
+     * {@link DFTSkewEstimator}.
+     *
+     * @return the estimated skew; its confidence is how much more of the peaks lie on
+     * the pair of quadrants the slope is fitted to than on the other pair, 0 when
+     * they are evenly split and 1 when they all lie on the chosen pair
+     * @throws ImageProcessingException if the peaks do not determine a slope
+     */
+    SkewEstimate dftSkew() throws ImageProcessingException {
         int maximumSize = 150;
-        int[] pixel;
-        int row;
-        int col;
-        Image output;
         Image img = compressAndSquare(maximumSize);
 
         ImageTransformer forDFT = new ImageTransformer(img);
         ImageTransformer whiteCheck = new ImageTransformer((new ImageTransformer((forDFT.dft()).amplitudeToImage())).filter());
 
-        int found = 0;
         int length = whiteCheck.width;
         int accuracy = 1000;
         ArrayList<Point> q1 = new ArrayList<>();
@@ -785,28 +916,63 @@ public class ImageTransformer {
         double q3Slope = slopeOfBestFit(q3);
         double q4Slope = slopeOfBestFit(q4);
         double finalSlope;
-        boolean positive;
+        int chosen;
+        int other;
 
         if (q1.size() > q2.size()) {
             finalSlope = (q1Slope * q1.size() + q3Slope * q3.size()) / (q1.size() + q3.size());
-            positive = true;
+            chosen = q1.size() + q3.size();
+            other = q2.size() + q4.size();
         } else {
             finalSlope = (q2Slope * q2.size() + q4Slope * q4.size()) / (q2.size() + q4.size());
-            positive = false;
+            chosen = q2.size() + q4.size();
+            other = q1.size() + q3.size();
         }
 
-
-        double angle = Math.atan(1 / finalSlope);
+        // rotating by 360 - angle (on q1 and q3) or by -angle (on q2 and q4) both
+        // straighten text lines skewed clockwise by angle
+        double angle = Math.toDegrees(Math.atan(1 / finalSlope));
         if (Double.isNaN(angle)) {
-            System.out.println("Text is not tilted or is tilted 90 degrees");
             throw new ImageProcessingException();
-        } else if (positive) {
-            output = this.rotate(180 * (2 * Math.PI - angle) / Math.PI);
-        } else {
-            output = this.rotate(180 * (-angle) / Math.PI);
         }
-        return output;
+        if (angle == 0) {
+            angle = 0; // avoid -0.0
+        } else if (angle == -90) {
+            angle = 90; // the same lines, within the range of SkewEstimate
+        }
+        double confidence = Math.max(0, (double) (chosen - other) / (chosen + other));
+        return new SkewEstimate(angle, confidence);
+    }
+
+    /**
+     * Estimate the skew of the text in the image using the given strategy.
+     *
+     * @param estimator the skew estimation strategy, is not null
+     * @return the estimated skew of the text lines and the confidence of the estimate
+     */
+    public SkewEstimate estimateSkew(SkewEstimator estimator) {
+        return estimator.estimate(image);
+    }
+
+    /**
+     * Align (appropriately rotate) an image of text using the given skew estimation
+     * strategy. Unlike {@link #alignTextImage()} this never fails: when the estimated
+     * skew is zero, or its confidence is below <code>minimumConfidence</code>, the image
+     * is considered straight and a copy of it is returned without rotating.
+     *
+     * @param estimator         the skew estimation strategy, is not null
+     * @param minimumConfidence the confidence (0 to 1) an estimate needs before the
+     *                          image is rotated
+     * @return the aligned image.
+     */
+    public Image alignTextImage(SkewEstimator estimator, double minimumConfidence) {
+        SkewEstimate skew = estimator.estimate(image);
+        if (skew.degrees == 0 || skew.confidence < minimumConfidence) {
+            return new Image(image);
+        }
+        return rotate(skew.correction());
     }
+
     /**
      * Returns the slope of the the best fit line of an ArrayList of points
      * @param points takes a list of points
@@ -0,0 +1,57 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+/**
+ * Entry point for the per-pixel colour operations on rows of packed ARGB values.
+ * <p>
+ * This is the Java 11 version, which uses {@link ScalarPixelKernels}. The multi-release
+ * JAR carries a Java 17 version of this class (in <code>src/main/java17</code>) that
+ * uses the Vector API instead when the <code>jdk.incubator.vector</code> module is
+ * available. Both give identical results.
+ */
+final class PixelKernels {
+
+    private PixelKernels() {
+    }
+
+    /**
+     * @return whether the kernels are vectorized
+     */
+    static boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * @see ScalarPixelKernels#grayscale(int[], int[], int)
+     */
+    static void grayscale(int[] src, int[] dst, int length) {
+        ScalarPixelKernels.grayscale(src, dst, length);
+    }
+
+    /**
+     * @see ScalarPixelKernels#negative(int[], int[], int)
+     */
+    static void negative(int[] src, int[] dst, int length) {
+        ScalarPixelKernels.negative(src, dst, length);
+    }
+
+    /**
+     * @see ScalarPixelKernels#posterize(int[], int[], int)
+     */
+    static void posterize(int[] src, int[] dst, int length) {
+        ScalarPixelKernels.posterize(src, dst, length);
+    }
+
+    /**
+     * @see ScalarPixelKernels#red(int[], int[], int)
+     */
+    static void red(int[] src, int[] dst, int length) {
+        ScalarPixelKernels.red(src, dst, length);
+    }
+
+    /**
+     * @see ScalarPixelKernels#dotProducts(int[], int[], int, long[])
+     */
+    static void dotProducts(int[] first, int[] second, int length, long[] sums) {
+        ScalarPixelKernels.dotProducts(first, second, length, sums);
+    }
+}
@@ -0,0 +1,308 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.BorderMode;
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.Kernel;
+import ca.ubc.ece.cpen221.ip.core.PlanarImage;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * The operations of {@link ImageTransformer} that treat each colour channel
+ * separately, applied to a {@link PlanarImage}.
+ * <p>
+ * Each operation works directly on the planes of its input and returns a new planar
+ * image, so a chain of operations converts between packed and planar pixels only at
+ * its ends. Every operation gives exactly the same pixels as the {@code ImageTransformer}
+ * operation of the same name (which uses this class), and processes rows in parallel.
+ * The operations accept gray and colour planar images alike; the result has the same
+ * channels as the input, except for {@link #grayscale()}.
+ */
+public class PlanarTransformer {
+    private final PlanarImage image;
+    private final int width;
+    private final int height;
+
+    /**
+     * Create a PlanarTransformer with a planar image to apply transformations to.
+     *
+     * @param image the planar image to transform, is not null
+     */
+    public PlanarTransformer(PlanarImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image cannot be null");
+        }
+        this.image = image;
+        width = image.width();
+        height = image.height();
+    }
+
+    /**
+     * Obtain the gray levels of the image, as {@link ImageTransformer#grayscale()} computes them.
+     *
+     * @return a gray planar image; the instance itself is returned if it is gray already
+     */
+    public PlanarImage grayscale() {
+        if (image.channels() == 1) {
+            return image;
+        }
+        PlanarImage gray = new PlanarImage(width, height, 1);
+        byte[] red = image.plane(PlanarImage.RED);
+        byte[] green = image.plane(PlanarImage.GREEN);
+        byte[] blue = image.plane(PlanarImage.BLUE);
+        byte[] out = gray.plane(PlanarImage.GRAY);
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                int base = row * width;
+                for (int col = 0; col < width; col++) {
+                    rgbs[col] = (red[base + col] & 0xFF) << 16 | (green[base + col] & 0xFF) << 8
+                        | (blue[base + col] & 0xFF);
+                }
+                PixelKernels.grayscale(rgbs, rgbs, width);
+                for (int col = 0; col < width; col++) {
+                    out[base + col] = (byte) rgbs[col];
+                }
+            }
+        });
+        return gray;
+    }
+
+    /**
+     * Obtain the gray levels of an image as a single plane, without splitting its
+     * colour channels first.
+     *
+     * @param image the image, is not null
+     * @return a gray planar image equal to {@code PlanarImage.of(image)} converted to gray
+     */
+    static PlanarImage grayscale(Image image) {
+        int width = image.width();
+        PlanarImage gray = new PlanarImage(width, image.height(), 1);
+        byte[] out = gray.plane(PlanarImage.GRAY);
+        RowBands.forEach(image.height(), (start, end) -> {
+            int[] rgbs = new int[width];
+            for (int row = start; row < end; row++) {
+                image.getRGBRow(row, rgbs);
+                PixelKernels.grayscale(rgbs, rgbs, width);
+                int base = row * width;
+                for (int col = 0; col < width; col++) {
+                    out[base + col] = (byte) rgbs[col];
+                }
+            }
+        });
+        return gray;
+    }
+
+    /**
+     * Denoise the image by replacing each sample by the median of the same channel
+     * in the neighbouring pixels, as {@link ImageTransformer#denoise()} does.
+     *
+     * @return a denoised version of the instance.
+     */
+    public PlanarImage denoise() {
+        PlanarImage output = new PlanarImage(width, height, image.channels());
+        for (int ch = 0; ch < image.channels(); ch++) {
+            byte[] src = image.plane(ch);
+            byte[] dst = output.plane(ch);
+            RowBands.forEach(height, (start, end) -> {
+                int[] neighbours = new int[8];
+                for (int row = start; row < end; row++) {
+                    for (int col = 0; col < width; col++) {
+                        dst[row * width + col] = (byte) median(src, col, row, neighbours);
+                    }
+                }
+            });
+        }
+        return output;
+    }
+
+    /**
+     * @return the median of the neighbours of (col, row) in {@code plane}, taken over
+     * the same number of values as ImageTransformer's denoise: 3 at the top-left corner,
+     * 5 elsewhere in the first row and column and 8 everywhere else, with zeros standing
+     * in for neighbours outside the image
+     */
+    private int median(byte[] plane, int col, int row, int[] neighbours) {
+        int count;
+        if (col == 0 && row == 0) {
+            count = 3;
+        } else if (col == 0 || row == 0) {
+            count = 5;
+        } else {
+            count = 8;
+        }
+        Arrays.fill(neighbours, 0, count, 0);
+        int n = 0;
+        for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(width - 1, col + 1); c++) {
+                if (c != col || r != row) {
+                    neighbours[n++] = plane[r * width + c] & 0xFF;
+                }
+            }
+        }
+        Arrays.sort(neighbours, 0, count);
+        if (count % 2 == 0) {
+            return (neighbours[count / 2 - 1] + neighbours[count / 2]) / 2;
+        }
+        return neighbours[count / 2];
+    }
+
+    /**
+     * Weather the image by replacing each sample by the minimum of the same channel
+     * over the pixel and its neighbours, as {@link ImageTransformer#weather()} does.
+     * The minimum is taken along rows and then along columns.
+     *
+     * @return a weathered version of the instance.
+     */
+    public PlanarImage weather() {
+        PlanarImage output = new PlanarImage(width, height, image.channels());
+        byte[] rowMinima = new byte[width * height];
+        for (int ch = 0; ch < image.channels(); ch++) {
+            byte[] src = image.plane(ch);
+            byte[] dst = output.plane(ch);
+            RowBands.forEach(height, (start, end) -> {
+                for (int row = start; row < end; row++) {
+                    int base = row * width;
+                    for (int col = 0; col < width; col++) {
+                        int min = src[base + col] & 0xFF;
+                        if (col > 0) {
+                            min = Math.min(min, src[base + col - 1] & 0xFF);
+                        }
+                        if (col < width - 1) {
+                            min = Math.min(min, src[base + col + 1] & 0xFF);
+                        }
+                        rowMinima[base + col] = (byte) min;
+                    }
+                }
+            });
+            RowBands.forEach(height, (start, end) -> {
+                for (int row = start; row < end; row++) {
+                    int above = Math.max(0, row - 1) * width;
+                    int base = row * width;
+                    int below = Math.min(height - 1, row + 1) * width;
+                    for (int col = 0; col < width; col++) {
+                        dst[base + col] = (byte) Math.min(rowMinima[base + col] & 0xFF,
+                            Math.min(rowMinima[above + col] & 0xFF, rowMinima[below + col] & 0xFF));
+                    }
+                }
+            });
+        }
+        return output;
+    }
+
+    /**
+     * Replace the samples of each square block by the average of the block, channel by
+     * channel, as {@link ImageTransformer#blockPaint(int)} does. Blocks at the right and
+     * bottom edges may be narrower or shorter.
+     *
+     * @param blockSize the dimension of the square block, > 1.
+     * @return the block paint version of the instance.
+     */
+    public PlanarImage blockPaint(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        PlanarImage output = new PlanarImage(width, height, image.channels());
+        int blockRows = (height + blockSize - 1) / blockSize;
+        for (int ch = 0; ch < image.channels(); ch++) {
+            byte[] src = image.plane(ch);
+            byte[] dst = output.plane(ch);
+            RowBands.forEach(blockRows, (start, end) -> {
+                int[] sums = new int[(width + blockSize - 1) / blockSize];
+                for (int blockRow = start; blockRow < end; blockRow++) {
+                    int top = blockRow * blockSize;
+                    int bottom = Math.min(height, top + blockSize);
+                    Arrays.fill(sums, 0);
+                    for (int row = top; row < bottom; row++) {
+                        int base = row * width;
+                        for (int col = 0; col < width; col++) {
+                            sums[col / blockSize] += src[base + col] & 0xFF;
+                        }
+                    }
+                    for (int block = 0; block < sums.length; block++) {
+                        int left = block * blockSize;
+                        int right = Math.min(width, left + blockSize);
+                        byte average = (byte) (sums[block] / ((bottom - top) * (right - left)));
+                        for (int row = top; row < bottom; row++) {
+                            Arrays.fill(dst, row * width + left, row * width + right, average);
+                        }
+                    }
+                }
+            });
+        }
+        return output;
+    }
+
+    /**
+     * Convolve the image with a kernel, treating samples outside the image as
+     * copies of the nearest edge sample ({@link BorderMode#CLAMP}).
+     *
+     * @param kernel the kernel to apply, is not null
+     * @return the convolved version of the instance.
+     */
+    public PlanarImage convolve(Kernel kernel) {
+        return convolve(kernel, BorderMode.CLAMP, Color.BLACK);
+    }
+
+    /**
+     * Convolve the image with a kernel, as {@link ImageTransformer#convolve(Kernel, BorderMode,
+     * Color)} does. Outside a gray image, {@link BorderMode#CONSTANT} uses the gray level
+     * of {@code borderColor}.
+     *
+     * @param kernel      the kernel to apply, is not null
+     * @param mode        the border mode, is not null
+     * @param borderColor the colour of pixels outside the image when {@code mode} is
+     *                    {@link BorderMode#CONSTANT}, is not null
+     * @return the convolved version of the instance.
+     */
+    public PlanarImage convolve(Kernel kernel, BorderMode mode, Color borderColor) {
+        if (kernel == null || mode == null || borderColor == null) {
+            throw new IllegalArgumentException("convolve() arguments cannot be null");
+        }
+        int[] constant;
+        if (image.channels() == 1) {
+            constant = new int[] {ScalarPixelKernels.gray(borderColor.getRGB()) & 0xFF};
+        } else {
+            constant = new int[] {
+                borderColor.getRed(), borderColor.getGreen(), borderColor.getBlue()
+            };
+        }
+        return Convolution.apply(image, kernel, mode, constant);
+    }
+
+    /**
+     * Compute the discrete Fourier transform of the gray levels of the image, as
+     * {@link ImageTransformer#dft()} does. Only the gray plane is read.
+     *
+     * @return the amplitude and phase of the DFT of the instance.
+     */
+    public DFTOutput dft() {
+        byte[] gray = grayscale().plane(PlanarImage.GRAY);
+        double[][] amplitude = new double[height][width];
+        double[][] phase = new double[height][width];
+        Cancellation cancellation = Cancellation.current();
+        for (int u = 0; u < height; u++) {
+            for (int v = 0; v < width; v++) {
+                cancellation.check();
+                double realSum = 0;
+                double iSum = 0;
+                for (int x = 0; x < height; x++) {
+                    for (int y = 0; y < width; y++) {
+                        double theta = 2.0 * Math.PI * (u * x / (double) height + v * y / (double) width);
+                        int intensity = gray[x * width + y] & 0xFF;
+                        realSum += intensity * (Math.cos(theta));
+                        iSum += intensity * (Math.sin(theta));
+                    }
+                }
+                amplitude[u][v] = Math.sqrt(Math.pow(realSum, 2) + Math.pow(iSum, 2));
+                if (realSum == 0 || iSum == 0) {
+                    phase[u][v] = 0;
+                } else {
+                    phase[u][v] = Math.atan(iSum / realSum);
+                }
+            }
+        }
+        return new DFTOutput(amplitude, phase);
+    }
+}
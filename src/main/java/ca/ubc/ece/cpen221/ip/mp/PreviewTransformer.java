@@ -0,0 +1,315 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies {@link ImageTransformer} operations progressively, for interactive use.
+ * <p>
+ * An operation first runs on a proxy: a copy of the image shrunk so that its longer
+ * side is at most {@code proxySize} pixels, made by sampling one pixel per block so
+ * that its cost does not depend on the size of the image. The result on the proxy is
+ * returned at once as an approximation. The exact result is then computed at full
+ * resolution on an {@link Executor}, one tile (a band of whole rows) per task, and
+ * each tile is handed to a listener as soon as it is final. As in
+ * {@link TiledTransformer}, a tile is computed from the rows it covers plus the halo
+ * the operation reads, so the assembled tiles are identical to applying the operation
+ * to the whole image.
+ * <p>
+ * Each operation works on a snapshot of the image taken when it is called (an
+ * {@link Image#Image(Image) copy}, which shares the pixels until one of them changes),
+ * so the caller may go on editing the image while the tiles are computed.
+ * <p>
+ * Cancelling {@link Preview#result()} stops the tiles that have not started yet.
+ */
+public class PreviewTransformer {
+    public static final int DEFAULT_PROXY_SIZE = 256;
+    public static final int DEFAULT_TILE_ROWS = 64;
+
+    private final Image image;
+    private final int proxySize;
+    private final int tileRows;
+    private final Executor executor;
+
+    /**
+     * A band of rows of the exact result, which will not change any more.
+     */
+    public static final class Tile {
+        public final int top;
+        public final Image pixels;
+
+        Tile(int top, Image pixels) {
+            this.top = top;
+            this.pixels = pixels;
+        }
+
+        @Override
+        public String toString() {
+            return "tile of rows " + top + " to " + (top + pixels.height() - 1);
+        }
+    }
+
+    /**
+     * The progress of one operation: the approximation computed on the proxy, and the
+     * exact result once all tiles are done.
+     */
+    public static final class Preview {
+        private final Image proxy;
+        private final int scale;
+        private final int tiles;
+        private final AtomicInteger refined = new AtomicInteger();
+        private final CompletableFuture<Image> result = new CompletableFuture<>();
+
+        Preview(Image proxy, int scale, int tiles) {
+            this.proxy = proxy;
+            this.scale = scale;
+            this.tiles = tiles;
+        }
+
+        /**
+         * @return the result of the operation on the proxy; each of its pixels stands
+         * for a block of {@link #scale()} by {@link #scale()} pixels of the result
+         */
+        public Image proxy() {
+            return proxy;
+        }
+
+        /**
+         * @return the ratio of the dimensions of the image to those of the proxy, >= 1
+         */
+        public int scale() {
+            return scale;
+        }
+
+        /**
+         * @return the number of tiles of the exact result
+         */
+        public int tiles() {
+            return tiles;
+        }
+
+        /**
+         * @return the number of tiles of the exact result computed so far
+         */
+        public int refinedTiles() {
+            return refined.get();
+        }
+
+        /**
+         * @return the exact result, completed when the last tile is done
+         */
+        public CompletableFuture<Image> result() {
+            return result;
+        }
+    }
+
+    /**
+     * Computes some rows of the exact result.
+     */
+    @FunctionalInterface
+    private interface Rows {
+        /**
+         * Write rows [top, bottom) of {@code output}.
+         */
+        void compute(Image output, int top, int bottom);
+    }
+
+    /**
+     * Creates a PreviewTransformer with an image, a proxy of at most
+     * {@link #DEFAULT_PROXY_SIZE} pixels across, tiles of {@link #DEFAULT_TILE_ROWS}
+     * rows, and tiles computed on the common fork-join pool. The provided image is
+     * <strong>never</strong> changed by any of the operations.
+     *
+     * @param image is not null
+     */
+    public PreviewTransformer(Image image) {
+        this(image, DEFAULT_PROXY_SIZE, DEFAULT_TILE_ROWS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a PreviewTransformer with an image. The provided image is
+     * <strong>never</strong> changed by any of the operations.
+     *
+     * @param image     is not null
+     * @param proxySize the largest dimension of the proxy, >= 1
+     * @param tileRows  the number of rows in each tile of the exact result, >= 1
+     * @param executor  runs the tiles of the exact result, is not null
+     */
+    public PreviewTransformer(Image image, int proxySize, int tileRows, Executor executor) {
+        if (image == null || executor == null) {
+            throw new IllegalArgumentException("image and executor cannot be null");
+        }
+        if (proxySize < 1 || tileRows < 1) {
+            throw new IllegalArgumentException("proxySize and tileRows must be positive");
+        }
+        this.image = image;
+        this.proxySize = proxySize;
+        this.tileRows = tileRows;
+        this.executor = executor;
+    }
+
+    /**
+     * Denoise the image progressively, as {@link ImageTransformer#denoise()} does.
+     *
+     * @param listener receives each tile of the exact result, is not null
+     * @return the denoised proxy, and the exact result to come
+     */
+    public Preview denoise(Consumer<Tile> listener) {
+        Image source = new Image(image);
+        return run(source, ImageTransformer::denoise, new Image(source.width(), source.height()),
+            withHalo(source, 1, 1, ImageTransformer::denoise), listener);
+    }
+
+    /**
+     * Block paint the image progressively, as {@link ImageTransformer#blockPaint(int)}
+     * does. The proxy is painted with blocks shrunk by the same ratio as the image.
+     *
+     * @param blockSize the dimension of the square block, >= 1
+     * @param listener  receives each tile of the exact result, is not null
+     * @return the block painted proxy, and the exact result to come
+     */
+    public Preview blockPaint(int blockSize, Consumer<Tile> listener) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        Image source = new Image(image);
+        int scale = scale();
+        int proxyBlockSize = Math.max(1, (blockSize + scale / 2) / scale);
+        return run(source, transformer -> transformer.blockPaint(proxyBlockSize),
+            new Image(source.width(), source.height()),
+            withHalo(source, 0, blockSize, transformer -> transformer.blockPaint(blockSize)),
+            listener);
+    }
+
+    /**
+     * Rotate the image progressively, as {@link ImageTransformer#rotate(double)} does.
+     *
+     * @param degrees  the angle to rotate the image by, 0 <= degrees <= 360
+     * @param listener receives each tile of the exact result, is not null
+     * @return the rotated proxy, and the exact result to come
+     */
+    public Preview rotate(double degrees, Consumer<Tile> listener) {
+        Image source = new Image(image);
+        return run(source, transformer -> transformer.rotate(degrees),
+            ImageTransformer.rotatedCanvas(source, degrees),
+            (output, top, bottom) -> ImageTransformer.rotateRows(source, degrees, output, top, bottom),
+            listener);
+    }
+
+    /**
+     * Run an operation on the proxy, then start computing the exact result tile by tile.
+     *
+     * @param source      the snapshot of the image the operation applies to
+     * @param approximate the operation to apply to the proxy
+     * @param output      the image the exact result is written into
+     * @param exact       computes rows of the exact result
+     * @param listener    receives each tile of the exact result
+     * @return the preview
+     */
+    private Preview run(Image source, Function<ImageTransformer, Image> approximate, Image output,
+                        Rows exact, Consumer<Tile> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+        int scale = scale();
+        int height = output.height();
+        int tiles = (height + tileRows - 1) / tileRows;
+        Preview preview = new Preview(approximate.apply(new ImageTransformer(proxy(source, scale))),
+            scale, tiles);
+        AtomicInteger remaining = new AtomicInteger(tiles);
+        for (int t = 0; t < tiles; t++) {
+            int top = t * tileRows;
+            int bottom = Math.min(height, top + tileRows);
+            executor.execute(() -> {
+                if (preview.result.isDone()) {
+                    return;
+                }
+                try {
+                    exact.compute(output, top, bottom);
+                    Tile tile = new Tile(top, rows(output, top, bottom));
+                    // one tile at a time, so listeners need not be thread-safe
+                    synchronized (preview) {
+                        if (preview.result.isDone()) {
+                            return;
+                        }
+                        preview.refined.incrementAndGet();
+                        listener.accept(tile);
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        preview.result.complete(output);
+                    }
+                } catch (RuntimeException e) {
+                    preview.result.completeExceptionally(e);
+                }
+            });
+        }
+        return preview;
+    }
+
+    /**
+     * @return computes rows of the result of a local operation on {@code source} from
+     * the rows they cover plus {@code halo} rows on either side, widened to multiples of
+     * {@code alignment} (clipped to the image) so that grid-based operations see
+     * whole cells
+     */
+    private static Rows withHalo(Image source, int halo, int alignment,
+                                 Function<ImageTransformer, Image> operation) {
+        return (output, top, bottom) -> {
+            int sourceTop = Math.max(0, top - halo) / alignment * alignment;
+            int sourceBottom = Math.min(source.height(),
+                (bottom + halo + alignment - 1) / alignment * alignment);
+            Image transformed = operation.apply(
+                new ImageTransformer(rows(source, sourceTop, sourceBottom)));
+            int[] rgbs = new int[source.width()];
+            for (int row = top; row < bottom; row++) {
+                output.setRGBRow(row, transformed.getRGBRow(row - sourceTop, rgbs));
+            }
+        };
+    }
+
+    /**
+     * @return the smallest whole ratio by which the image must shrink to fit in the proxy
+     */
+    private int scale() {
+        int longest = Math.max(image.width(), image.height());
+        return Math.max(1, (longest + proxySize - 1) / proxySize);
+    }
+
+    /**
+     * @return {@code source} shrunk by {@code scale}, taking the pixel at the centre of
+     * each block (or the nearest pixel of the image, for the last blocks)
+     */
+    private static Image proxy(Image source, int scale) {
+        int width = source.width();
+        int height = source.height();
+        Image proxy = new Image((width + scale - 1) / scale, (height + scale - 1) / scale);
+        int[] rgbs = new int[width];
+        int[] sampled = new int[proxy.width()];
+        for (int row = 0; row < proxy.height(); row++) {
+            source.getRGBRow(Math.min(height - 1, row * scale + scale / 2), rgbs);
+            for (int col = 0; col < sampled.length; col++) {
+                sampled[col] = rgbs[Math.min(width - 1, col * scale + scale / 2)];
+            }
+            proxy.setRGBRow(row, sampled);
+        }
+        return proxy;
+    }
+
+    /**
+     * @return a new image holding rows [top, bottom) of {@code source}
+     */
+    private static Image rows(Image source, int top, int bottom) {
+        Image band = new Image(source.width(), bottom - top);
+        int[] rgbs = new int[source.width()];
+        for (int row = top; row < bottom; row++) {
+            band.setRGBRow(row - top, source.getRGBRow(row, rgbs));
+        }
+        return band;
+    }
+}
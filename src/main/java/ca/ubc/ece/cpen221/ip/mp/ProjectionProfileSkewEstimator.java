@@ -0,0 +1,270 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates the skew of a page of text from the projection profiles of its ink.
+ * <p>
+ * The page is shrunk so that its longer side is at most <code>workingSize</code>
+ * pixels and binarized with Otsu's threshold; the minority class is taken to be ink.
+ * For a candidate angle, the ink pixels are projected onto the normal of lines at
+ * that angle and counted in one-pixel bins (each pixel shared between the two
+ * nearest bins). When the angle matches the text, lines
+ * of text and the gaps between them produce a profile with sharp edges, so the
+ * estimator picks the angle that maximizes the sum of squared differences between
+ * adjacent bins. Angles are searched coarse-to-fine (1 degree steps, then tenths,
+ * and so on down to <code>precision</code>) and the candidates of each stage are
+ * scored in parallel using precomputed sine and cosine tables.
+ * <p>
+ * The confidence measures how sharp the peak of the score is: it is one minus the
+ * ratio of the best coarse score at least three degrees away from the chosen angle
+ * to the best score. Text lines give a narrow peak and a confidence near 1; photographs
+ * and pages without a dominant line direction give a broad peak and a low confidence.
+ */
+public class ProjectionProfileSkewEstimator implements SkewEstimator {
+    private static final int MIN_INK_PIXELS = 64;
+    private static final int SPLIT = 256;
+    private static final int PEAK_WIDTH = 3;
+
+    private final double maxDegrees;
+    private final double precision;
+    private final int workingSize;
+
+    /**
+     * Create an estimator that searches skews up to 45 degrees either way,
+     * to a precision of 0.05 degrees, on a page shrunk to at most 512 pixels.
+     */
+    public ProjectionProfileSkewEstimator() {
+        this(45, 0.05, 512);
+    }
+
+    /**
+     * Create an estimator.
+     *
+     * @param maxDegrees  the largest skew (either way) to search for, 3 <= maxDegrees < 90;
+     *                    a narrower search would leave no coarse angle far enough from
+     *                    the peak to measure the confidence against
+     * @param precision   the resolution of the search in degrees, 0 < precision <= 1
+     * @param workingSize the maximum width and height of the shrunk page, >= 16
+     */
+    public ProjectionProfileSkewEstimator(double maxDegrees, double precision, int workingSize) {
+        if (!(maxDegrees >= PEAK_WIDTH && maxDegrees < 90)) {
+            throw new IllegalArgumentException("maxDegrees must be in [" + PEAK_WIDTH + ", 90)");
+        }
+        if (!(precision > 0 && precision <= 1)) {
+            throw new IllegalArgumentException("precision must be in (0, 1]");
+        }
+        if (workingSize < 16) {
+            throw new IllegalArgumentException("workingSize must be at least 16");
+        }
+        this.maxDegrees = maxDegrees;
+        this.precision = precision;
+        this.workingSize = workingSize;
+    }
+
+    @Override
+    public SkewEstimate estimate(Image image) {
+        int factor = Math.max(1,
+            (Math.max(image.width(), image.height()) + workingSize - 1) / workingSize);
+        int width = (image.width() + factor - 1) / factor;
+        int height = (image.height() + factor - 1) / factor;
+        int[] gray = shrink(image, factor, width, height);
+        int[][] ink = ink(gray, width, height);
+        if (ink[0].length < MIN_INK_PIXELS) {
+            return new SkewEstimate(0, 0);
+        }
+        int bins = (int) Math.ceil(Math.hypot(width, height)) + 2;
+
+        int coarseSteps = (int) Math.floor(maxDegrees);
+        double[] coarse = new double[2 * coarseSteps + 1];
+        for (int i = 0; i < coarse.length; i++) {
+            coarse[i] = i - coarseSteps;
+        }
+        long[] scores = score(coarse, ink, bins);
+        int best = argmax(scores);
+        double bestAngle = coarse[best];
+        long bestScore = scores[best];
+        long rival = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (Math.abs(i - best) >= PEAK_WIDTH) {
+                rival = Math.max(rival, scores[i]);
+            }
+        }
+        double confidence = bestScore == 0 ? 0 : 1 - (double) rival / bestScore;
+
+        for (double step = 1; step > precision; ) {
+            double range = step;
+            step = Math.max(precision, step / 10);
+            int n = (int) Math.round(range / step);
+            double[] fine = new double[2 * n + 1];
+            for (int i = 0; i < fine.length; i++) {
+                fine[i] = Math.max(-maxDegrees, Math.min(maxDegrees, bestAngle + (i - n) * step));
+            }
+            long[] fineScores = score(fine, ink, bins);
+            int fineBest = argmax(fineScores);
+            if (fineScores[fineBest] >= bestScore) {
+                bestAngle = fine[fineBest];
+                bestScore = fineScores[fineBest];
+            }
+        }
+        double degrees = Math.round(bestAngle / precision) * precision;
+        if (degrees == 0) {
+            degrees = 0; // avoid -0.0
+        }
+        return new SkewEstimate(degrees, confidence);
+    }
+
+    /**
+     * Shrink an image by block-averaging its luminance over factor x factor blocks.
+     *
+     * @return the luminance (0 to 255) of the shrunk image, row by row
+     */
+    private static int[] shrink(Image image, int factor, int width, int height) {
+        int[] gray = new int[width * height];
+        int sourceWidth = image.width();
+        int sourceHeight = image.height();
+        RowBands.forEach(height, (start, end) -> {
+            int[] rgbs = new int[sourceWidth];
+            long[] sums = new long[width];
+            int[] counts = new int[width];
+            for (int y = start; y < end; y++) {
+                Arrays.fill(sums, 0);
+                Arrays.fill(counts, 0);
+                for (int row = y * factor; row < Math.min(sourceHeight, (y + 1) * factor); row++) {
+                    image.getRGBRow(row, rgbs);
+                    for (int col = 0; col < sourceWidth; col++) {
+                        int rgb = rgbs[col];
+                        sums[col / factor] += 299 * ((rgb >> 16) & 0xFF)
+                            + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF);
+                        counts[col / factor]++;
+                    }
+                }
+                for (int x = 0; x < width; x++) {
+                    gray[y * width + x] = (int) (sums[x] / (1000L * counts[x]));
+                }
+            }
+        });
+        return gray;
+    }
+
+    /**
+     * Binarize with Otsu's threshold and collect the ink pixels.
+     *
+     * @return {xs, ys}: the coordinates of the ink pixels relative to the centre
+     */
+    private static int[][] ink(int[] gray, int width, int height) {
+        int[] histogram = new int[256];
+        for (int g : gray) {
+            histogram[g]++;
+        }
+        int threshold = otsu(histogram, gray.length);
+        int dark = 0;
+        for (int i = 0; i <= threshold; i++) {
+            dark += histogram[i];
+        }
+        boolean inkIsDark = 2 * dark <= gray.length;
+        int count = inkIsDark ? dark : gray.length - dark;
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        int n = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((gray[y * width + x] <= threshold) == inkIsDark) {
+                    xs[n] = x - width / 2;
+                    ys[n] = y - height / 2;
+                    n++;
+                }
+            }
+        }
+        return new int[][] {xs, ys};
+    }
+
+    /**
+     * @return the threshold t maximizing the between-class variance of
+     * the classes [0, t] and (t, 255]
+     */
+    private static int otsu(int[] histogram, int total) {
+        long sumAll = 0;
+        for (int i = 0; i < 256; i++) {
+            sumAll += (long) i * histogram[i];
+        }
+        long sumBelow = 0;
+        long countBelow = 0;
+        double bestVariance = -1;
+        int threshold = 0;
+        for (int t = 0; t < 255; t++) {
+            countBelow += histogram[t];
+            sumBelow += (long) t * histogram[t];
+            long countAbove = total - countBelow;
+            if (countBelow == 0 || countAbove == 0) {
+                continue;
+            }
+            double meanBelow = (double) sumBelow / countBelow;
+            double meanAbove = (double) (sumAll - sumBelow) / countAbove;
+            double variance = (double) countBelow * countAbove
+                * (meanBelow - meanAbove) * (meanBelow - meanAbove);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Score every candidate angle (in degrees) in parallel.
+     */
+    private static long[] score(double[] angles, int[][] ink, int bins) {
+        double[] sin = new double[angles.length];
+        double[] cos = new double[angles.length];
+        for (int i = 0; i < angles.length; i++) {
+            sin[i] = Math.sin(Math.toRadians(angles[i]));
+            cos[i] = Math.cos(Math.toRadians(angles[i]));
+        }
+        int[] xs = ink[0];
+        int[] ys = ink[1];
+        int offset = bins / 2;
+        long[] scores = new long[angles.length];
+        Cancellation cancellation = Cancellation.current();
+        IntStream.range(0, angles.length).parallel().forEach(i -> {
+            cancellation.check();
+            long[] profile = new long[bins];
+            double s = sin[i];
+            double c = cos[i];
+            for (int p = 0; p < xs.length; p++) {
+                // split each pixel between the two nearest bins so that the integer
+                // lattice does not alias into a spurious profile at oblique angles
+                double position = ys[p] * c - xs[p] * s + offset;
+                int bin = (int) Math.floor(position);
+                int upper = (int) Math.round((position - bin) * SPLIT);
+                profile[bin] += SPLIT - upper;
+                profile[bin + 1] += upper;
+            }
+            long score = 0;
+            for (int b = 1; b < bins; b++) {
+                long d = profile[b] - profile[b - 1];
+                score += d * d;
+            }
+            scores[i] = score;
+        });
+        return scores;
+    }
+
+    /**
+     * @return the index of the largest score, preferring the one nearest the middle on ties
+     */
+    private static int argmax(long[] scores) {
+        int mid = scores.length / 2;
+        int best = mid;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > scores[best]
+                || (scores[i] == scores[best] && Math.abs(i - mid) < Math.abs(best - mid))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,305 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of image operations by the content of their input.
+ * <p>
+ * A result is stored under the {@link Image#fingerprint() fingerprint} and size of
+ * the input image, the name of the operation and its parameters, so repeating an
+ * operation on an equal image returns the stored result instead of recomputing it,
+ * wherever the equal image came from. Entries are evicted least recently used
+ * first once the estimated size of the cached results exceeds the memory budget.
+ * <p>
+ * If a disk directory is given, evicted {@link Image} results are written there in
+ * the raw raster format (see {@link Image#saveRaw(File)}) and read back when they are
+ * next requested, until the disk budget forces them out as well. Files in the
+ * directory are only known to the cache that wrote them.
+ * <p>
+ * Images are copied into and out of the cache, so callers may change the images
+ * they pass in or get back. Other results, such as {@link DFTOutput}, are immutable
+ * and are shared. Instances are safe for use by multiple threads; an operation
+ * requested concurrently by two threads may be computed twice.
+ */
+public final class ResultCache {
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final long memoryBudget;
+    private final File diskDirectory;
+    private final long diskBudget;
+    private final LinkedHashMap<Key, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, File> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private long fileCount;
+    private long hits, diskHits, misses, evictions;
+
+    /*
+        Abstraction Function:
+            The cache maps each key in memory to the value of its entry, and each key
+            in disk (and not in memory) to the image stored in its file.
+
+        Representation Invariant:
+            memoryBytes == the sum of the sizes of the entries in memory
+            memoryBytes <= memoryBudget, except when memory holds a single entry
+            diskBytes == the sum of the lengths of the files in disk <= diskBudget
+            disk is empty if diskDirectory == null
+     */
+
+    /**
+     * Identifies a result: the input image, the operation and its parameters.
+     */
+    private static final class Key {
+        final long fingerprint;
+        final int width, height;
+        final String operation;
+        final List<?> parameters;
+
+        Key(Image image, String operation, List<?> parameters) {
+            fingerprint = image.fingerprint();
+            width = image.width();
+            height = image.height();
+            this.operation = operation;
+            this.parameters = new ArrayList<>(parameters);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return fingerprint == that.fingerprint && width == that.width
+                && height == that.height && operation.equals(that.operation)
+                && parameters.equals(that.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fingerprint, width, height, operation, parameters);
+        }
+    }
+
+    /**
+     * A cached result and its estimated size in bytes.
+     */
+    private static final class Entry {
+        final Object value;
+        final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Create a cache that keeps results in memory only.
+     *
+     * @param memoryBudget the estimated number of bytes of results to keep, >= 0
+     */
+    public ResultCache(long memoryBudget) {
+        this(memoryBudget, null, 0);
+    }
+
+    /**
+     * Create a cache that moves image results evicted from memory to disk.
+     *
+     * @param memoryBudget  the estimated number of bytes of results to keep in memory, >= 0
+     * @param diskDirectory the directory for evicted images, created if needed;
+     *                      {@code null} disables the disk tier
+     * @param diskBudget    the number of bytes of files to keep in {@code diskDirectory}, >= 0
+     */
+    public ResultCache(long memoryBudget, File diskDirectory, long diskBudget) {
+        if (memoryBudget < 0 || diskBudget < 0) {
+            throw new IllegalArgumentException("budgets cannot be negative");
+        }
+        if (diskDirectory != null && !diskDirectory.isDirectory() && !diskDirectory.mkdirs()) {
+            throw new IllegalArgumentException("could not create directory: " + diskDirectory);
+        }
+        this.memoryBudget = memoryBudget;
+        this.diskDirectory = diskDirectory;
+        this.diskBudget = diskBudget;
+    }
+
+    /**
+     * Obtain the result of an operation on an image, computing and caching it if
+     * it is not cached.
+     *
+     * @param image      the input of the operation, is not null
+     * @param operation  the name of the operation, is not null
+     * @param parameters the parameters of the operation other than the image; each must
+     *                   implement {@code equals} and {@code hashCode} by value
+     * @param compute    computes the result on a miss, is not null
+     * @param <T>        the type of the result
+     * @return the result; a copy of the cached result if it is an {@link Image}
+     */
+    public <T> T get(Image image, String operation, List<?> parameters, Supplier<T> compute) {
+        Key key = new Key(image, operation, parameters);
+        Object cached = lookup(key);
+        if (cached == null) {
+            T result = compute.get();
+            store(key, result);
+            return result;
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) (cached instanceof Image ? new Image((Image) cached) : cached);
+        return result;
+    }
+
+    /**
+     * Obtain the number of requests answered from memory.
+     *
+     * @return the number of memory hits so far
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Obtain the number of requests answered from the disk tier.
+     *
+     * @return the number of disk hits so far
+     */
+    public synchronized long diskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Obtain the number of requests that had to be computed.
+     *
+     * @return the number of misses so far
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Obtain the number of results evicted from memory, whether or not they were
+     * moved to disk.
+     *
+     * @return the number of evictions so far
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Obtain the estimated number of bytes of results held in memory.
+     *
+     * @return the estimated size of the memory tier
+     */
+    public synchronized long memoryBytes() {
+        return memoryBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d hits, %d disk hits, %d misses, %d evictions, %d bytes in memory,"
+            + " %d bytes on disk", hits, diskHits, misses, evictions, memoryBytes, diskBytes);
+    }
+
+    /**
+     * @return the cached value for {@code key} (promoting it from disk if needed),
+     * or null after counting a miss
+     */
+    private synchronized Object lookup(Key key) {
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            hits++;
+            return entry.value;
+        }
+        File file = disk.remove(key);
+        if (file != null) {
+            diskBytes -= file.length();
+            try {
+                Image image = Image.mapRaw(file);
+                diskHits++;
+                insert(key, new Entry(image, sizeOf(image)));
+                return image;
+            }
+            catch (IOException e) {
+                // the file was removed or damaged behind our back; recompute it
+            }
+            finally {
+                file.delete();
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void store(Key key, Object value) {
+        if (!memory.containsKey(key)) {
+            Object stored = value instanceof Image ? new Image((Image) value) : value;
+            insert(key, new Entry(stored, sizeOf(stored)));
+        }
+    }
+
+    private void insert(Key key, Entry entry) {
+        memory.put(key, entry);
+        memoryBytes += entry.bytes;
+        Iterator<Map.Entry<Key, Entry>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudget && memory.size() > 1) {
+            Map.Entry<Key, Entry> evicted = eldest.next();
+            eldest.remove();
+            memoryBytes -= evicted.getValue().bytes;
+            evictions++;
+            if (diskDirectory != null && evicted.getValue().value instanceof Image) {
+                spill(evicted.getKey(), (Image) evicted.getValue().value);
+            }
+        }
+    }
+
+    /**
+     * Write an evicted image to the disk tier, making room for it first.
+     */
+    private void spill(Key key, Image image) {
+        long bytes = sizeOf(image);
+        if (bytes > diskBudget) {
+            return;
+        }
+        Iterator<Map.Entry<Key, File>> eldest = disk.entrySet().iterator();
+        while (diskBytes + bytes > diskBudget && eldest.hasNext()) {
+            File file = eldest.next().getValue();
+            eldest.remove();
+            diskBytes -= file.length();
+            file.delete();
+        }
+        File file = new File(diskDirectory, "result-" + fileCount++ + ".raw");
+        try {
+            image.saveRaw(file);
+            disk.put(key, file);
+            diskBytes += file.length();
+        }
+        catch (IOException e) {
+            // the disk tier is best effort: the result is simply recomputed when needed
+            file.delete();
+        }
+    }
+
+    /**
+     * @return an estimate of the number of bytes used by {@code value}
+     */
+    private static long sizeOf(Object value) {
+        if (value instanceof Image) {
+            Image image = (Image) value;
+            return ENTRY_OVERHEAD + 4L * image.width() * image.height();
+        }
+        if (value instanceof DFTOutput) {
+            DFTOutput dft = (DFTOutput) value;
+            return ENTRY_OVERHEAD + 16L * dft.width() * dft.height();
+        }
+        return ENTRY_OVERHEAD;
+    }
+}
@@ -0,0 +1,48 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import java.util.stream.IntStream;
+
+/**
+ * Splits the rows of an image into horizontal bands and processes the bands
+ * in parallel on the common fork-join pool.
+ * <p>
+ * Every band runs under the {@link Cancellation} of the calling thread and checks it
+ * before it starts. When that cancellation can stop the operation, the bands are kept
+ * small so that a cancelled operation stops after at most a few more bands.
+ */
+final class RowBands {
+
+    /**
+     * Work applied to the rows [rowStart, rowEnd) of an image.
+     */
+    @FunctionalInterface
+    interface Task {
+        void run(int rowStart, int rowEnd);
+    }
+
+    /* keep each band large enough that scheduling cost stays negligible */
+    private static final int MIN_ROWS_PER_BAND = 16;
+
+    private RowBands() {
+    }
+
+    /**
+     * Run {@code task} over all rows in [0, height), split into bands that may
+     * run concurrently. The bands are disjoint and together cover every row once.
+     *
+     * @param height the number of rows, >= 0
+     * @param task   the work to perform on each band, is not null
+     */
+    static void forEach(int height, Task task) {
+        Cancellation cancellation = Cancellation.current();
+        int bands = Math.max(1, cancellation == Cancellation.NONE
+            ? Math.min(Runtime.getRuntime().availableProcessors() * 4, height / MIN_ROWS_PER_BAND)
+            : height / MIN_ROWS_PER_BAND);
+        if (bands == 1) {
+            cancellation.run(() -> task.run(0, height));
+            return;
+        }
+        IntStream.range(0, bands).parallel().forEach(b -> cancellation.run(() ->
+            task.run((int) ((long) height * b / bands), (int) ((long) height * (b + 1) / bands))));
+    }
+}
@@ -0,0 +1,141 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.ColourConversion;
+
+/**
+ * The per-pixel colour operations of {@link ImageTransformer}, applied to rows of
+ * packed ARGB values one pixel at a time.
+ * <p>
+ * These are the reference implementations: they run on every Java version, and the
+ * vectorized kernels used on Java 17 and later must give exactly the same results.
+ * Use {@link PixelKernels} rather than calling this class directly.
+ */
+final class ScalarPixelKernels {
+    /* NTSC luma weights in thousandths, as used by Image.intensity and ColourConversion */
+    static final int LUMA_RED = 299;
+    static final int LUMA_GREEN = 587;
+    static final int LUMA_BLUE = 114;
+    static final int LUMA_SCALE = 1000;
+
+    /* posterize: upper bounds of the lower two bands and the value of each band */
+    static final int POSTER_LOW = 64;
+    static final int POSTER_MID = 128;
+    static final int POSTER_LOW_VALUE = 32;
+    static final int POSTER_MID_VALUE = 96;
+    static final int POSTER_HIGH_VALUE = 222;
+
+    private ScalarPixelKernels() {
+    }
+
+    /**
+     * Replace each colour by its gray level, as {@link ca.ubc.ece.cpen221.ip.core.Image#toGray}
+     * does (see {@link ColourConversion#toLuma(int)}).
+     *
+     * @param src    the colours to convert
+     * @param dst    receives the gray colours, may be {@code src}
+     * @param length the number of pixels to convert
+     */
+    static void grayscale(int[] src, int[] dst, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = gray(src[i]);
+        }
+    }
+
+    /**
+     * @return the opaque gray colour for {@code rgb}
+     */
+    static int gray(int rgb) {
+        return 0xFF000000 | ColourConversion.toLuma(rgb) * 0x010101;
+    }
+
+    /**
+     * Invert every component, alpha included.
+     *
+     * @param src    the colours to invert
+     * @param dst    receives the inverted colours, may be {@code src}
+     * @param length the number of pixels to invert
+     */
+    static void negative(int[] src, int[] dst, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = ~src[i];
+        }
+    }
+
+    /**
+     * Reduce each colour component to one of three levels, keeping alpha.
+     *
+     * @param src    the colours to posterize
+     * @param dst    receives the posterized colours, may be {@code src}
+     * @param length the number of pixels to posterize
+     */
+    static void posterize(int[] src, int[] dst, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = posterized(src[i]);
+        }
+    }
+
+    /**
+     * @return the posterized colour for {@code rgb}
+     */
+    static int posterized(int rgb) {
+        return (rgb & 0xFF000000) | (posterLevel((rgb >> 16) & 0xFF) << 16)
+            | (posterLevel((rgb >> 8) & 0xFF) << 8) | posterLevel(rgb & 0xFF);
+    }
+
+    private static int posterLevel(int component) {
+        if (component <= POSTER_LOW) {
+            return POSTER_LOW_VALUE;
+        }
+        if (component <= POSTER_MID) {
+            return POSTER_MID_VALUE;
+        }
+        return POSTER_HIGH_VALUE;
+    }
+
+    /**
+     * Keep only the alpha and red components.
+     *
+     * @param src    the colours to filter
+     * @param dst    receives the filtered colours, may be {@code src}
+     * @param length the number of pixels to filter
+     */
+    static void red(int[] src, int[] dst, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = src[i] & 0xFFFF0000;
+        }
+    }
+
+    /**
+     * Accumulate the dot products of the red components of two rows: adds
+     * {@code sum(a * b)}, {@code sum(a * a)} and {@code sum(b * b)} to
+     * {@code sums[0]}, {@code sums[1]} and {@code sums[2]}.
+     *
+     * @param first  the first row of colours
+     * @param second the second row of colours
+     * @param length the number of pixels to include
+     * @param sums   the three running sums, updated in place
+     */
+    static void dotProducts(int[] first, int[] second, int length, long[] sums) {
+        dotProducts(first, second, 0, length, sums);
+    }
+
+    /**
+     * Accumulate the dot products of the pixels [from, to) of two rows, as
+     * {@link #dotProducts(int[], int[], int, long[])} does.
+     */
+    static void dotProducts(int[] first, int[] second, int from, int to, long[] sums) {
+        long product = 0;
+        long square1 = 0;
+        long square2 = 0;
+        for (int i = from; i < to; i++) {
+            int a = (first[i] >> 16) & 0xFF;
+            int b = (second[i] >> 16) & 0xFF;
+            product += a * b;
+            square1 += a * a;
+            square2 += b * b;
+        }
+        sums[0] += product;
+        sums[1] += square1;
+        sums[2] += square2;
+    }
+}
@@ -0,0 +1,72 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+/**
+ * This datatype represents an <strong>immutable</strong> estimate of the skew
+ * of the text lines on a page, as produced by a {@link SkewEstimator}.
+ * <p>
+ * The angle <code>degrees</code> is the clockwise rotation of the text lines
+ * from horizontal, in (-90, 90]. The <code>confidence</code>, between 0 and 1,
+ * describes how clearly the estimator could distinguish that angle from others;
+ * a blank or textless page has confidence 0.
+ */
+public final class SkewEstimate {
+    public final double degrees;
+    public final double confidence;
+
+    /*
+        Abstraction Function:
+            Represents a page whose text lines are rotated clockwise by degrees,
+            estimated with the given confidence.
+
+        Representation Invariant:
+            -90 < degrees <= 90
+            0 <= confidence <= 1
+     */
+
+    /**
+     * Create a new SkewEstimate.
+     *
+     * @param _degrees    the clockwise skew of the text lines, -90 < _degrees <= 90
+     * @param _confidence the confidence of the estimate, 0 <= _confidence <= 1
+     */
+    public SkewEstimate(double _degrees, double _confidence) {
+        if (!(_degrees > -90 && _degrees <= 90)) {
+            throw new IllegalArgumentException("skew must be in (-90, 90]");
+        }
+        if (!(_confidence >= 0 && _confidence <= 1)) {
+            throw new IllegalArgumentException("confidence must be in [0, 1]");
+        }
+        degrees = _degrees;
+        confidence = _confidence;
+    }
+
+    /**
+     * Obtain the angle that straightens the page when passed to
+     * {@link ImageTransformer#rotate(double)}.
+     *
+     * @return the correcting rotation in degrees, 0 <= angle < 360
+     */
+    public double correction() {
+        return degrees <= 0 ? -degrees : 360 - degrees;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SkewEstimate)) {
+            return false;
+        }
+        SkewEstimate other = (SkewEstimate) o;
+        return Double.compare(degrees, other.degrees) == 0
+            && Double.compare(confidence, other.confidence) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(degrees) * 31 + Double.hashCode(confidence);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("skew %.2f degrees (confidence %.2f)", degrees, confidence);
+    }
+}
@@ -0,0 +1,19 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+
+/**
+ * A strategy for estimating the skew of the text on a scanned page.
+ * Used by {@link ImageTransformer#estimateSkew(SkewEstimator)} and
+ * {@link ImageTransformer#alignTextImage(SkewEstimator, double)}.
+ */
+public interface SkewEstimator {
+
+    /**
+     * Estimate the skew of the text lines in an image. The image is not changed.
+     *
+     * @param image the page to examine, is not null
+     * @return the estimated skew and its confidence, never null
+     */
+    SkewEstimate estimate(Image image);
+}
@@ -0,0 +1,65 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+/**
+ * This datatype represents an <strong>immutable</strong> position at which a template
+ * was found in a page, as produced by {@code ImageProcessing.matchTemplate}.
+ * <p>
+ * The template's top-left pixel lies on pixel (<code>col</code>, <code>row</code>) of
+ * the page. The <code>score</code> is the normalized cross-correlation of the gray
+ * levels of the template and of the part of the page it covers, between -1 and 1;
+ * 1 is a perfect match up to brightness and contrast.
+ */
+public final class TemplateMatch {
+    public final int col;
+    public final int row;
+    public final double score;
+
+    /*
+        Abstraction Function:
+            Represents the template placed with its top-left pixel on pixel (col, row)
+            of the page, where it matches with the given score.
+
+        Representation Invariant:
+            col >= 0 and row >= 0
+            -1 <= score <= 1
+     */
+
+    /**
+     * Create a new TemplateMatch.
+     *
+     * @param _col   the column of the page under the template's top-left pixel, >= 0
+     * @param _row   the row of the page under the template's top-left pixel, >= 0
+     * @param _score the normalized cross-correlation, -1 <= _score <= 1
+     */
+    public TemplateMatch(int _col, int _row, double _score) {
+        if (_col < 0 || _row < 0) {
+            throw new IllegalArgumentException("position must not be negative");
+        }
+        if (!(_score >= -1 && _score <= 1)) {
+            throw new IllegalArgumentException("score must be in [-1, 1]");
+        }
+        col = _col;
+        row = _row;
+        score = _score;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TemplateMatch)) {
+            return false;
+        }
+        TemplateMatch other = (TemplateMatch) o;
+        return col == other.col && row == other.row
+            && Double.compare(score, other.score) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return (col * 31 + row) * 31 + Double.hashCode(score);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("match at (%d, %d) (score %.3f)", col, row, score);
+    }
+}
@@ -0,0 +1,642 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.PlanarImage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Template matching engine behind {@link ImageProcessing#matchTemplate(Image, Image)}.
+ * <p>
+ * The score of a position is the zero-mean normalized cross-correlation of the gray
+ * levels of the template and of the page under it. Because the zero-mean template
+ * sums to zero, the numerator is the plain cross-correlation of the page with the
+ * zero-mean template, which is computed with FFTs; the variance of the page under
+ * each position comes from summed-area tables of the gray levels and their squares.
+ * <p>
+ * The page is processed in blocks whose sides are powers of two (overlap-save), so
+ * memory stays bounded however large the page is: a block of {@code bw x bh} pixels
+ * yields the correlations of {@code (bw - tw + 1) x (bh - th + 1)} positions for a
+ * {@code tw x th} template. The sides are chosen to minimize the FFT work over the
+ * whole page, which favours few, large blocks. Since a block is real, its spectrum is
+ * symmetric: each row is transformed as a complex FFT of half its length, and only the
+ * {@code bw / 2 + 1} columns of non-negative frequencies are kept and transformed,
+ * a strip of neighbouring columns at a time so that the innermost loops run along
+ * rows. Blocks are processed in parallel. Each block reports the local maxima of its
+ * scores, and the best of them that do not overlap are kept.
+ */
+final class TemplateMatcher {
+    private static final int MIN_BLOCK = 64;
+    private static final int MAX_BLOCK = 2048;
+    private static final int COLUMN_STRIP = 32;
+
+    private final byte[] page;
+    private final int pageWidth;
+    private final int pageHeight;
+    private final int templateWidth;
+    private final int templateHeight;
+    private final double templateNorm;
+    private final int blockWidth;
+    private final int blockHeight;
+    private final int spectrumWidth;
+    private final int stepX;
+    private final int stepY;
+    private final int blocksAcross;
+    private final Fft rowFft;
+    private final Fft columnFft;
+    // exp(-2 pi i k / blockWidth), for combining the halves of a real row transform
+    private final double[] realCos;
+    private final double[] realSin;
+    private final double[] templateRe;
+    private final double[] templateIm;
+
+    private TemplateMatcher(Image pageImage, Image templateImage) {
+        page = PlanarTransformer.grayscale(pageImage).plane(PlanarImage.GRAY);
+        pageWidth = pageImage.width();
+        pageHeight = pageImage.height();
+        byte[] template = PlanarTransformer.grayscale(templateImage).plane(PlanarImage.GRAY);
+        templateWidth = templateImage.width();
+        templateHeight = templateImage.height();
+
+        int[] sizes = blockSizes(pageWidth, pageHeight, templateWidth, templateHeight);
+        blockWidth = sizes[0];
+        blockHeight = sizes[1];
+        spectrumWidth = blockWidth / 2 + 1;
+        stepX = blockWidth - templateWidth + 1;
+        stepY = blockHeight - templateHeight + 1;
+        blocksAcross = (pageWidth - templateWidth + stepX) / stepX;
+        rowFft = new Fft(blockWidth / 2);
+        columnFft = new Fft(blockHeight);
+        realCos = new double[blockWidth / 2 + 1];
+        realSin = new double[blockWidth / 2 + 1];
+        for (int k = 0; k <= blockWidth / 2; k++) {
+            realCos[k] = Math.cos(2 * Math.PI * k / blockWidth);
+            realSin[k] = -Math.sin(2 * Math.PI * k / blockWidth);
+        }
+
+        long sum = 0;
+        for (byte level : template) {
+            sum += level & 0xFF;
+        }
+        double mean = (double) sum / template.length;
+        double squares = 0;
+        templateRe = new double[spectrumWidth * blockHeight];
+        templateIm = new double[spectrumWidth * blockHeight];
+        RowTransform transform = new RowTransform();
+        for (int row = 0; row < templateHeight; row++) {
+            for (int col = 0; col < templateWidth; col++) {
+                double centred = (template[row * templateWidth + col] & 0xFF) - mean;
+                transform.values[col] = centred;
+                squares += centred * centred;
+            }
+            forwardRow(transform, templateRe, templateIm, row * spectrumWidth);
+        }
+        templateNorm = Math.sqrt(squares);
+        transformColumns(templateRe, templateIm, false);
+    }
+
+    /**
+     * Buffers for transforming one row of a block.
+     */
+    private final class RowTransform {
+        final double[] values = new double[blockWidth];
+        final double[] re = new double[blockWidth / 2];
+        final double[] im = new double[blockWidth / 2];
+    }
+
+    /**
+     * Find the best non-overlapping positions of a template in a page.
+     *
+     * @param page         the page, is not null
+     * @param template     the template, is not null and no larger than the page
+     * @param maxMatches   the largest number of matches to return, >= 1
+     * @param minimumScore the smallest score of a match
+     * @return the matches, best first
+     */
+    static List<TemplateMatch> match(Image page, Image template, int maxMatches, double minimumScore) {
+        TemplateMatcher matcher = new TemplateMatcher(page, template);
+        if (matcher.templateNorm == 0) {
+            // a flat template correlates with nothing
+            return List.of();
+        }
+        int blocksDown = (matcher.pageHeight - matcher.templateHeight + matcher.stepY) / matcher.stepY;
+        int blocks = matcher.blocksAcross * blocksDown;
+        Cancellation cancellation = Cancellation.current();
+        List<TemplateMatch> candidates = IntStream.range(0, blocks).parallel()
+            .mapToObj(block -> cancellation.call(() -> matcher.candidates(block, minimumScore)))
+            .flatMap(List::stream)
+            .sorted(Comparator.comparingDouble((TemplateMatch m) -> -m.score)
+                .thenComparingInt(m -> m.row)
+                .thenComparingInt(m -> m.col))
+            .collect(Collectors.toList());
+
+        List<TemplateMatch> matches = new ArrayList<>();
+        for (TemplateMatch candidate : candidates) {
+            if (matches.size() == maxMatches) {
+                break;
+            }
+            boolean overlaps = false;
+            for (TemplateMatch match : matches) {
+                if (Math.abs(match.col - candidate.col) < matcher.templateWidth
+                    && Math.abs(match.row - candidate.row) < matcher.templateHeight) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (!overlaps) {
+                matches.add(candidate);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Choose the sides of the blocks: powers of two, each larger than the template along
+     * it, that minimize the FFT work of covering the page, taken as the number of blocks
+     * times {@code n log n} for the {@code n} pixels of a block. A side is at most
+     * {@code MAX_BLOCK}, unless the template is larger, and no longer than needed to
+     * cover the page.
+     *
+     * @return {width, height} of the blocks
+     */
+    private static int[] blockSizes(int pageWidth, int pageHeight, int templateWidth,
+                                    int templateHeight) {
+        int[] best = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int width : sides(pageWidth, templateWidth)) {
+            for (int height : sides(pageHeight, templateHeight)) {
+                int across = (pageWidth - templateWidth + width - templateWidth + 1)
+                    / (width - templateWidth + 1);
+                int down = (pageHeight - templateHeight + height - templateHeight + 1)
+                    / (height - templateHeight + 1);
+                double pixels = (double) width * height;
+                double cost = (double) across * down * pixels * Math.log(pixels);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = new int[] {width, height};
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the candidate sides of the blocks along a dimension of the page
+     */
+    private static List<Integer> sides(int pageLength, int templateLength) {
+        List<Integer> sides = new ArrayList<>();
+        int size = MIN_BLOCK;
+        while (size <= templateLength) {
+            size *= 2;
+        }
+        do {
+            sides.add(size);
+            size *= 2;
+        } while (size <= MAX_BLOCK && size / 2 < pageLength);
+        return sides;
+    }
+
+    /**
+     * Correlate a block of the page with the template and collect the local maxima of
+     * its scores.
+     */
+    private List<TemplateMatch> candidates(int block, double minimumScore) {
+        int left = (block % blocksAcross) * stepX;
+        int top = (block / blocksAcross) * stepY;
+        int columns = Math.min(blockWidth, pageWidth - left);
+        int rows = Math.min(blockHeight, pageHeight - top);
+        double[] re = new double[spectrumWidth * blockHeight];
+        double[] im = new double[spectrumWidth * blockHeight];
+        RowTransform transform = new RowTransform();
+        for (int row = 0; row < rows; row++) {
+            int from = (top + row) * pageWidth + left;
+            for (int col = 0; col < columns; col++) {
+                transform.values[col] = page[from + col] & 0xFF;
+            }
+            forwardRow(transform, re, im, row * spectrumWidth);
+        }
+        transformColumns(re, im, false);
+        for (int i = 0; i < re.length; i++) {
+            // multiply by the complex conjugate of the template's spectrum
+            double a = re[i];
+            double b = im[i];
+            re[i] = a * templateRe[i] + b * templateIm[i];
+            im[i] = b * templateRe[i] - a * templateIm[i];
+        }
+        transformColumns(re, im, true);
+
+        int positions = Math.min(stepY, pageHeight - templateHeight + 1 - top);
+        double[] correlation = new double[blockWidth * positions];
+        for (int row = 0; row < positions; row++) {
+            inverseRow(re, im, row * spectrumWidth, transform);
+            System.arraycopy(transform.values, 0, correlation, row * blockWidth, blockWidth);
+        }
+        List<TemplateMatch> candidates = new ArrayList<>();
+        localMaxima(block, correlation, minimumScore, candidates);
+        return candidates;
+    }
+
+    /**
+     * Transform the real row in {@code transform.values} and store the {@code bw / 2 + 1}
+     * values of its spectrum at non-negative frequencies from {@code offset}. The even
+     * and odd values are transformed together as the real and imaginary parts of one
+     * complex row, and then told apart by the symmetry of the spectra of real rows.
+     */
+    private void forwardRow(RowTransform transform, double[] re, double[] im, int offset) {
+        int half = blockWidth / 2;
+        double[] zr = transform.re;
+        double[] zi = transform.im;
+        for (int k = 0; k < half; k++) {
+            zr[k] = transform.values[2 * k];
+            zi[k] = transform.values[2 * k + 1];
+        }
+        rowFft.transform(zr, zi, 0, false);
+        for (int k = 0; k <= half; k++) {
+            int a = k % half;
+            int b = (half - k) % half;
+            // the spectra of the even values, e, and of the odd values, o, at k are
+            // (z[k] + conj z[half - k]) / 2 and (z[k] - conj z[half - k]) / 2i
+            double er = (zr[a] + zr[b]) / 2;
+            double ei = (zi[a] - zi[b]) / 2;
+            double or = (zi[a] + zi[b]) / 2;
+            double oi = (zr[b] - zr[a]) / 2;
+            re[offset + k] = er + or * realCos[k] - oi * realSin[k];
+            im[offset + k] = ei + or * realSin[k] + oi * realCos[k];
+        }
+    }
+
+    /**
+     * Invert {@link #forwardRow}: turn the spectrum from {@code offset}, after the inverse
+     * transform of the columns, back into a real row in {@code transform.values}, scaled
+     * by {@code 1 / (bw * bh)} to complete the inverse 2D transform.
+     */
+    private void inverseRow(double[] re, double[] im, int offset, RowTransform transform) {
+        int half = blockWidth / 2;
+        double scale = 1.0 / ((double) blockWidth * blockHeight);
+        double[] zr = transform.re;
+        double[] zi = transform.im;
+        for (int k = 0; k < half; k++) {
+            double ar = re[offset + k];
+            double ai = im[offset + k];
+            double br = re[offset + half - k];
+            double bi = -im[offset + half - k];
+            // twice e and twice o times exp(-2 pi i k / bw), as in forwardRow
+            double er = ar + br;
+            double ei = ai + bi;
+            double dr = ar - br;
+            double di = ai - bi;
+            double or = dr * realCos[k] + di * realSin[k];
+            double oi = di * realCos[k] - dr * realSin[k];
+            zr[k] = (er - oi) * scale;
+            zi[k] = (ei + or) * scale;
+        }
+        rowFft.transform(zr, zi, 0, true);
+        for (int k = 0; k < half; k++) {
+            transform.values[2 * k] = zr[k];
+            transform.values[2 * k + 1] = zi[k];
+        }
+    }
+
+    /**
+     * Turn the correlations of a block into scores and add the positions whose score
+     * is at least {@code minimumScore} and no smaller than any neighbour's.
+     */
+    private void localMaxima(int block, double[] correlation, double minimumScore,
+                             List<TemplateMatch> candidates) {
+        int left = (block % blocksAcross) * stepX;
+        int top = (block / blocksAcross) * stepY;
+        int columns = Math.min(stepX, pageWidth - templateWidth + 1 - left);
+        int rows = Math.min(stepY, pageHeight - templateHeight + 1 - top);
+        score(left, top, columns, rows, correlation, minimumScore);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                double score = correlation[row * blockWidth + col];
+                if (score == Double.NEGATIVE_INFINITY
+                    || !isLocalMaximum(correlation, blockWidth, columns, rows, col, row)) {
+                    continue;
+                }
+                candidates.add(new TemplateMatch(left + col, top + row, score));
+            }
+        }
+    }
+
+    /**
+     * Replace the correlations of the {@code columns x rows} positions from ({@code left},
+     * {@code top}) by their scores, normalizing them with a summed-area table of the page
+     * under them. Scores below {@code minimumScore} are replaced by negative infinity.
+     */
+    private void score(int left, int top, int columns, int rows, double[] correlation,
+                       double minimumScore) {
+        int width = columns + templateWidth - 1;
+        int height = rows + templateHeight - 1;
+        // sums[(r + 1) * (width + 1) + (c + 1)] is the sum over the r + 1 by c + 1
+        // pixels from (left, top), and squares the sum of their squares
+        long[] sums = new long[(width + 1) * (height + 1)];
+        long[] squares = new long[(width + 1) * (height + 1)];
+        for (int r = 0; r < height; r++) {
+            long rowSum = 0;
+            long rowSquares = 0;
+            int base = (top + r) * pageWidth + left;
+            for (int c = 0; c < width; c++) {
+                int level = page[base + c] & 0xFF;
+                rowSum += level;
+                rowSquares += level * level;
+                int at = (r + 1) * (width + 1) + c + 1;
+                sums[at] = sums[at - width - 1] + rowSum;
+                squares[at] = squares[at - width - 1] + rowSquares;
+            }
+        }
+
+        double count = (double) templateWidth * templateHeight;
+        // with a positive minimum, compare squares first and take square roots only of
+        // the scores that pass
+        double threshold = minimumScore > 0 ? minimumScore * minimumScore * templateNorm * templateNorm : 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                int topLeft = row * (width + 1) + col;
+                int topRight = topLeft + templateWidth;
+                int bottomLeft = topLeft + templateHeight * (width + 1);
+                int bottomRight = bottomLeft + templateWidth;
+                long sum = sums[bottomRight] - sums[bottomLeft] - sums[topRight] + sums[topLeft];
+                long square = squares[bottomRight] - squares[bottomLeft] - squares[topRight]
+                    + squares[topLeft];
+                double variance = square - sum * (sum / count);
+                int at = row * blockWidth + col;
+                double product = correlation[at];
+                double score = 0;
+                if (minimumScore > 0 && (product <= 0 || product * product < threshold * variance)) {
+                    score = Double.NEGATIVE_INFINITY;
+                } else if (variance > 0) {
+                    score = Math.max(-1, Math.min(1, product / (Math.sqrt(variance) * templateNorm)));
+                }
+                correlation[at] = score < minimumScore ? Double.NEGATIVE_INFINITY : score;
+            }
+        }
+    }
+
+    private static boolean isLocalMaximum(double[] scores, int stride, int columns, int rows,
+                                          int col, int row) {
+        double score = scores[row * stride + col];
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(columns - 1, col + 1); c++) {
+                if (scores[r * stride + c] > score) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Transform the columns of a block's spectrum, {@code COLUMN_STRIP} at a time so that
+     * a strip stays in cache through all the stages of its transform.
+     */
+    private void transformColumns(double[] re, double[] im, boolean inverse) {
+        for (int first = 0; first < spectrumWidth; first += COLUMN_STRIP) {
+            columnFft.transformColumns(re, im, spectrumWidth, first,
+                Math.min(spectrumWidth, first + COLUMN_STRIP), inverse);
+        }
+    }
+
+    /**
+     * Iterative radix-2 complex FFT of one length, with its twiddle factors and
+     * bit-reversal permutation computed once. The inverse transform is the forward
+     * transform with the real and imaginary parts swapped on the way in and out.
+     */
+    private static final class Fft {
+        private final int n;
+        private final int[] reversed;
+        // the twiddle factors exp(-2 pi i j / size) of the stage that combines
+        // transforms of size / 2 into transforms of size are at [size / 2 + j]
+        private final double[] cos;
+        private final double[] sin;
+
+        Fft(int n) {
+            this.n = n;
+            reversed = new int[n];
+            int bits = Integer.numberOfTrailingZeros(n);
+            for (int i = 0; i < n; i++) {
+                reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+            }
+            cos = new double[Math.max(2, n)];
+            sin = new double[Math.max(2, n)];
+            for (int half = 1; half < n; half *= 2) {
+                for (int j = 0; j < half; j++) {
+                    cos[half + j] = Math.cos(Math.PI * j / half);
+                    sin[half + j] = -Math.sin(Math.PI * j / half);
+                }
+            }
+        }
+
+        /**
+         * Transform the {@code n} values from {@code offset} in place: the forward
+         * transform uses exp(-2 pi i jk / n) and the inverse exp(2 pi i jk / n),
+         * without scaling.
+         */
+        void transform(double[] re, double[] im, int offset, boolean inverse) {
+            if (inverse) {
+                forward(im, re, offset);
+            } else {
+                forward(re, im, offset);
+            }
+        }
+
+        private void forward(double[] re, double[] im, int offset) {
+            for (int i = 0; i < n; i++) {
+                int j = reversed[i];
+                if (j > i) {
+                    double t = re[offset + i];
+                    re[offset + i] = re[offset + j];
+                    re[offset + j] = t;
+                    t = im[offset + i];
+                    im[offset + i] = im[offset + j];
+                    im[offset + j] = t;
+                }
+            }
+            int end = offset + n;
+            if (n >= 4) {
+                // the first two stages, whose twiddle factors are 1 and -i
+                for (int a = offset; a < end; a += 4) {
+                    double r0 = re[a] + re[a + 1];
+                    double i0 = im[a] + im[a + 1];
+                    double r1 = re[a] - re[a + 1];
+                    double i1 = im[a] - im[a + 1];
+                    double r2 = re[a + 2] + re[a + 3];
+                    double i2 = im[a + 2] + im[a + 3];
+                    double r3 = re[a + 2] - re[a + 3];
+                    double i3 = im[a + 2] - im[a + 3];
+                    re[a] = r0 + r2;
+                    im[a] = i0 + i2;
+                    re[a + 2] = r0 - r2;
+                    im[a + 2] = i0 - i2;
+                    re[a + 1] = r1 + i3;
+                    im[a + 1] = i1 - r3;
+                    re[a + 3] = r1 - i3;
+                    im[a + 3] = i1 + r3;
+                }
+            } else if (n == 2) {
+                double r = re[offset + 1];
+                double i = im[offset + 1];
+                re[offset + 1] = re[offset] - r;
+                im[offset + 1] = im[offset] - i;
+                re[offset] += r;
+                im[offset] += i;
+            }
+            int half = 4;
+            // two stages at a time: the stage of half and that of 2 * half, whose
+            // twiddle factors for j + half are those for j times -i
+            for (; 4 * half <= n; half *= 4) {
+                for (int start = offset; start < end; start += 4 * half) {
+                    for (int j = 0; j < half; j++) {
+                        int a0 = start + j;
+                        int a1 = a0 + half;
+                        int a2 = a1 + half;
+                        int a3 = a2 + half;
+                        double w1r = cos[half + j];
+                        double w1i = sin[half + j];
+                        double w2r = cos[2 * half + j];
+                        double w2i = sin[2 * half + j];
+
+                        double tr = re[a1] * w1r - im[a1] * w1i;
+                        double ti = re[a1] * w1i + im[a1] * w1r;
+                        double y0r = re[a0] + tr;
+                        double y0i = im[a0] + ti;
+                        double y1r = re[a0] - tr;
+                        double y1i = im[a0] - ti;
+                        tr = re[a3] * w1r - im[a3] * w1i;
+                        ti = re[a3] * w1i + im[a3] * w1r;
+                        double y2r = re[a2] + tr;
+                        double y2i = im[a2] + ti;
+                        double y3r = re[a2] - tr;
+                        double y3i = im[a2] - ti;
+
+                        tr = y2r * w2r - y2i * w2i;
+                        ti = y2r * w2i + y2i * w2r;
+                        re[a0] = y0r + tr;
+                        im[a0] = y0i + ti;
+                        re[a2] = y0r - tr;
+                        im[a2] = y0i - ti;
+                        // times w2 and then -i
+                        tr = y3r * w2i + y3i * w2r;
+                        ti = -(y3r * w2r - y3i * w2i);
+                        re[a1] = y1r + tr;
+                        im[a1] = y1i + ti;
+                        re[a3] = y1r - tr;
+                        im[a3] = y1i - ti;
+                    }
+                }
+            }
+            if (2 * half == n) {
+                // one stage left over
+                for (int j = 0; j < half; j++) {
+                    double wr = cos[half + j];
+                    double wi = sin[half + j];
+                    int a = offset + j;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+
+        /**
+         * Transform in place, as {@link #transform}, each of the columns {@code from} to
+         * {@code to - 1} of {@code n} rows of {@code stride} values. The butterflies of
+         * every stage are applied to the whole run of columns at once, so the innermost
+         * loop reads consecutive values.
+         */
+        void transformColumns(double[] re, double[] im, int stride, int from, int to,
+                              boolean inverse) {
+            if (inverse) {
+                forwardColumns(im, re, stride, from, to);
+            } else {
+                forwardColumns(re, im, stride, from, to);
+            }
+        }
+
+        private void forwardColumns(double[] re, double[] im, int stride, int from, int to) {
+            int count = to - from;
+            for (int i = 0; i < n; i++) {
+                int j = reversed[i];
+                if (j > i) {
+                    int a = i * stride + from;
+                    int b = j * stride + from;
+                    for (int c = 0; c < count; c++) {
+                        double t = re[a + c];
+                        re[a + c] = re[b + c];
+                        re[b + c] = t;
+                        t = im[a + c];
+                        im[a + c] = im[b + c];
+                        im[b + c] = t;
+                    }
+                }
+            }
+            int half = 1;
+            if (Integer.numberOfTrailingZeros(n) % 2 == 1) {
+                // one stage of twiddle factor 1, so that the rest pair up
+                for (int a = from; a < n * stride; a += 2 * stride) {
+                    int b = a + stride;
+                    for (int c = 0; c < count; c++) {
+                        double tr = re[b + c];
+                        double ti = im[b + c];
+                        re[b + c] = re[a + c] - tr;
+                        im[b + c] = im[a + c] - ti;
+                        re[a + c] += tr;
+                        im[a + c] += ti;
+                    }
+                }
+                half = 2;
+            }
+            // two stages at a time, as in forward
+            for (; 2 * half <= n; half *= 4) {
+                for (int start = 0; start < n; start += 4 * half) {
+                    for (int j = 0; j < half; j++) {
+                        double w1r = cos[half + j];
+                        double w1i = sin[half + j];
+                        double w2r = cos[2 * half + j];
+                        double w2i = sin[2 * half + j];
+                        int a0 = (start + j) * stride + from;
+                        int a1 = a0 + half * stride;
+                        int a2 = a1 + half * stride;
+                        int a3 = a2 + half * stride;
+                        for (int c = 0; c < count; c++) {
+                            double tr = re[a1 + c] * w1r - im[a1 + c] * w1i;
+                            double ti = re[a1 + c] * w1i + im[a1 + c] * w1r;
+                            double y0r = re[a0 + c] + tr;
+                            double y0i = im[a0 + c] + ti;
+                            double y1r = re[a0 + c] - tr;
+                            double y1i = im[a0 + c] - ti;
+                            tr = re[a3 + c] * w1r - im[a3 + c] * w1i;
+                            ti = re[a3 + c] * w1i + im[a3 + c] * w1r;
+                            double y2r = re[a2 + c] + tr;
+                            double y2i = im[a2 + c] + ti;
+                            double y3r = re[a2 + c] - tr;
+                            double y3i = im[a2 + c] - ti;
+
+                            tr = y2r * w2r - y2i * w2i;
+                            ti = y2r * w2i + y2i * w2r;
+                            re[a0 + c] = y0r + tr;
+                            im[a0 + c] = y0i + ti;
+                            re[a2 + c] = y0r - tr;
+                            im[a2 + c] = y0i - ti;
+                            tr = y3r * w2i + y3i * w2r;
+                            ti = -(y3r * w2r - y3i * w2i);
+                            re[a1 + c] = y1r + tr;
+                            im[a1 + c] = y1i + ti;
+                            re[a3 + c] = y1r - tr;
+                            im[a3 + c] = y1i - ti;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
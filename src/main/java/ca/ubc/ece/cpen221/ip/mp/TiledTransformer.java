@@ -0,0 +1,110 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.TiledImage;
+
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Applies {@link ImageTransformer} operations to a {@link TiledImage}, one tile at a time.
+ * <p>
+ * For each tile of the result, the tile and a halo of neighbouring pixels are copied
+ * out of the source into an {@link Image}, the operation is applied to that image, and
+ * the part covering the tile is copied into the result. The halo is as wide as the
+ * neighbourhood the operation reads (one pixel for {@code denoise} and {@code weather};
+ * for {@code blockPaint}, enough to complete the blocks that overlap the tile), so the
+ * result is identical to applying the operation to the whole image. Tiles are
+ * processed in parallel, and at any time only a few tiles per thread are held in
+ * memory in addition to the tile caches of the source and the result.
+ */
+public class TiledTransformer {
+    private final TiledImage image;
+
+    /**
+     * Creates a TiledTransformer with an image. The provided image is
+     * <strong>never</strong> changed by any of the operations.
+     *
+     * @param image is not null
+     */
+    public TiledTransformer(TiledImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image cannot be null");
+        }
+        this.image = image;
+    }
+
+    /**
+     * Denoise the image tile by tile, as {@link ImageTransformer#denoise()} does.
+     *
+     * @return a denoised version of the instance, with the same tiling and memory budget.
+     * @throws IOException if the result cannot be created
+     */
+    public TiledImage denoise() throws IOException {
+        return apply(1, 1, ImageTransformer::denoise);
+    }
+
+    /**
+     * Weather the image tile by tile, as {@link ImageTransformer#weather()} does.
+     *
+     * @return a weathered version of the instance, with the same tiling and memory budget.
+     * @throws IOException if the result cannot be created
+     */
+    public TiledImage weather() throws IOException {
+        return apply(1, 1, ImageTransformer::weather);
+    }
+
+    /**
+     * Block paint the image tile by tile, as {@link ImageTransformer#blockPaint(int)} does.
+     *
+     * @param blockSize the dimension of the square block, > 1.
+     * @return the block paint version of the instance, with the same tiling and memory budget.
+     * @throws IOException if the result cannot be created
+     */
+    public TiledImage blockPaint(int blockSize) throws IOException {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        return apply(0, blockSize, transformer -> transformer.blockPaint(blockSize));
+    }
+
+    /**
+     * Apply an operation tile by tile.
+     *
+     * @param halo      the number of pixels around a tile the operation reads
+     * @param alignment the source region of a tile is widened to multiples of this
+     *                  (clipped to the image) so that grid-based operations see whole cells
+     * @param operation the operation, applied to the source region of each tile
+     * @return the result
+     * @throws IOException if the result cannot be created
+     */
+    private TiledImage apply(int halo, int alignment, Function<ImageTransformer, Image> operation)
+        throws IOException {
+        int width = image.width();
+        int height = image.height();
+        int tileSize = image.tileSize();
+        int tileColumns = image.tileColumns();
+        TiledImage result = new TiledImage(width, height, tileSize, image.memoryBudget());
+        IntStream.range(0, tileColumns * image.tileRows()).parallel().forEach(tile -> {
+            int left = (tile % tileColumns) * tileSize;
+            int top = (tile / tileColumns) * tileSize;
+            int right = Math.min(width, left + tileSize);
+            int bottom = Math.min(height, top + tileSize);
+            int sourceLeft = Math.max(0, left - halo) / alignment * alignment;
+            int sourceTop = Math.max(0, top - halo) / alignment * alignment;
+            int sourceRight = Math.min(width, (right + halo + alignment - 1) / alignment * alignment);
+            int sourceBottom = Math.min(height, (bottom + halo + alignment - 1) / alignment * alignment);
+
+            Image source = image.getRegion(sourceLeft, sourceTop,
+                sourceRight - sourceLeft, sourceBottom - sourceTop);
+            Image transformed = operation.apply(new ImageTransformer(source));
+            int[] rgbs = new int[transformed.width()];
+            for (int row = top; row < bottom; row++) {
+                transformed.getRGBRow(row - sourceTop, rgbs);
+                result.setRGBs(left, row, right - left, rgbs, left - sourceLeft);
+            }
+        });
+        return result;
+    }
+}
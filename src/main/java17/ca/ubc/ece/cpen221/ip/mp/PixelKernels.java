@@ -0,0 +1,80 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+/**
+ * Entry point for the per-pixel colour operations on rows of packed ARGB values.
+ * <p>
+ * This is the Java 17 version of the class. It uses {@link VectorPixelKernels} when
+ * the <code>jdk.incubator.vector</code> module has been added to the boot layer
+ * (<code>--add-modules jdk.incubator.vector</code>) and {@link ScalarPixelKernels}
+ * otherwise. Both give identical results.
+ */
+final class PixelKernels {
+    /* VectorPixelKernels is only loaded, and so only links against the module, if this holds */
+    private static final boolean VECTORIZED =
+        ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private PixelKernels() {
+    }
+
+    /**
+     * @return whether the kernels are vectorized
+     */
+    static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * @see ScalarPixelKernels#grayscale(int[], int[], int)
+     */
+    static void grayscale(int[] src, int[] dst, int length) {
+        if (VECTORIZED) {
+            VectorPixelKernels.grayscale(src, dst, length);
+        } else {
+            ScalarPixelKernels.grayscale(src, dst, length);
+        }
+    }
+
+    /**
+     * @see ScalarPixelKernels#negative(int[], int[], int)
+     */
+    static void negative(int[] src, int[] dst, int length) {
+        if (VECTORIZED) {
+            VectorPixelKernels.negative(src, dst, length);
+        } else {
+            ScalarPixelKernels.negative(src, dst, length);
+        }
+    }
+
+    /**
+     * @see ScalarPixelKernels#posterize(int[], int[], int)
+     */
+    static void posterize(int[] src, int[] dst, int length) {
+        if (VECTORIZED) {
+            VectorPixelKernels.posterize(src, dst, length);
+        } else {
+            ScalarPixelKernels.posterize(src, dst, length);
+        }
+    }
+
+    /**
+     * @see ScalarPixelKernels#red(int[], int[], int)
+     */
+    static void red(int[] src, int[] dst, int length) {
+        if (VECTORIZED) {
+            VectorPixelKernels.red(src, dst, length);
+        } else {
+            ScalarPixelKernels.red(src, dst, length);
+        }
+    }
+
+    /**
+     * @see ScalarPixelKernels#dotProducts(int[], int[], int, long[])
+     */
+    static void dotProducts(int[] first, int[] second, int length, long[] sums) {
+        if (VECTORIZED) {
+            VectorPixelKernels.dotProducts(first, second, length, sums);
+        } else {
+            ScalarPixelKernels.dotProducts(first, second, length, sums);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.LUMA_BLUE;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.LUMA_GREEN;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.LUMA_RED;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.LUMA_SCALE;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.POSTER_HIGH_VALUE;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.POSTER_LOW;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.POSTER_LOW_VALUE;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.POSTER_MID;
+import static ca.ubc.ece.cpen221.ip.mp.ScalarPixelKernels.POSTER_MID_VALUE;
+
+/**
+ * The kernels of {@link ScalarPixelKernels}, vectorized with the Vector API.
+ * <p>
+ * Each method processes as many pixels as fit in the preferred vector shape at a time
+ * and hands the remaining tail of the row to the scalar kernel. Every result is
+ * identical to the scalar one. Only {@link PixelKernels} may refer to this class, and
+ * only once it has checked that <code>jdk.incubator.vector</code> is present.
+ */
+final class VectorPixelKernels {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /*
+        (scaled >>> DIVIDE_PRE_SHIFT) * DIVIDE_MULTIPLIER >>> DIVIDE_SHIFT == scaled / 1000
+        for every scaled luma (at most 255 * 1000 + 500): dividing by 8 first keeps the
+        product within an int. Checked exhaustively.
+     */
+    private static final int DIVIDE_PRE_SHIFT = 3;
+    private static final int DIVIDE_MULTIPLIER = 33555;
+    private static final int DIVIDE_SHIFT = 22;
+
+    /* the most pixels whose squared components can be summed in an int lane, with room to spare */
+    private static final int DOT_BLOCK = 8192;
+
+    private VectorPixelKernels() {
+    }
+
+    static void grayscale(int[] src, int[] dst, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            IntVector rgb = IntVector.fromArray(SPECIES, src, i);
+            IntVector r = rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+            IntVector g = rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+            IntVector b = rgb.and(0xFF);
+            IntVector scaled = r.mul(LUMA_RED).add(g.mul(LUMA_GREEN)).add(b.mul(LUMA_BLUE))
+                .add(LUMA_SCALE / 2);
+            IntVector y = scaled.lanewise(VectorOperators.LSHR, DIVIDE_PRE_SHIFT)
+                .mul(DIVIDE_MULTIPLIER).lanewise(VectorOperators.LSHR, DIVIDE_SHIFT);
+            IntVector gray = y.mul(0x010101).or(0xFF000000);
+
+            // halfway cases are rare; let the scalar kernel round them like Image.intensity
+            VectorMask<Integer> halfway = y.mul(LUMA_SCALE).eq(scaled);
+            if (halfway.anyTrue()) {
+                int[] colours = rgb.toArray();  // dst may be src
+                gray.intoArray(dst, i);
+                for (int lane = halfway.firstTrue(); lane < SPECIES.length(); lane++) {
+                    if (halfway.laneIsSet(lane)) {
+                        dst[i + lane] = ScalarPixelKernels.gray(colours[lane]);
+                    }
+                }
+            } else {
+                gray.intoArray(dst, i);
+            }
+        }
+        for (; i < length; i++) {
+            dst[i] = ScalarPixelKernels.gray(src[i]);
+        }
+    }
+
+    static void negative(int[] src, int[] dst, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, src, i).not().intoArray(dst, i);
+        }
+        for (; i < length; i++) {
+            dst[i] = ~src[i];
+        }
+    }
+
+    static void posterize(int[] src, int[] dst, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            IntVector rgb = IntVector.fromArray(SPECIES, src, i);
+            rgb.and(0xFF000000)
+                .or(posterLevel(rgb, 16).lanewise(VectorOperators.LSHL, 16))
+                .or(posterLevel(rgb, 8).lanewise(VectorOperators.LSHL, 8))
+                .or(posterLevel(rgb, 0))
+                .intoArray(dst, i);
+        }
+        for (; i < length; i++) {
+            dst[i] = ScalarPixelKernels.posterized(src[i]);
+        }
+    }
+
+    private static IntVector posterLevel(IntVector rgb, int shift) {
+        IntVector component = rgb.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+        return IntVector.broadcast(SPECIES, POSTER_HIGH_VALUE)
+            .blend(POSTER_MID_VALUE, component.compare(VectorOperators.LE, POSTER_MID))
+            .blend(POSTER_LOW_VALUE, component.compare(VectorOperators.LE, POSTER_LOW));
+    }
+
+    static void red(int[] src, int[] dst, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, src, i).and(0xFFFF0000).intoArray(dst, i);
+        }
+        for (; i < length; i++) {
+            dst[i] = src[i] & 0xFFFF0000;
+        }
+    }
+
+    static void dotProducts(int[] first, int[] second, int length, long[] sums) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        while (i < bound) {
+            int blockEnd = Math.min(bound, i + DOT_BLOCK);
+            IntVector product = IntVector.zero(SPECIES);
+            IntVector square1 = IntVector.zero(SPECIES);
+            IntVector square2 = IntVector.zero(SPECIES);
+            for (; i < blockEnd; i += SPECIES.length()) {
+                IntVector a = IntVector.fromArray(SPECIES, first, i)
+                    .lanewise(VectorOperators.LSHR, 16).and(0xFF);
+                IntVector b = IntVector.fromArray(SPECIES, second, i)
+                    .lanewise(VectorOperators.LSHR, 16).and(0xFF);
+                product = product.add(a.mul(b));
+                square1 = square1.add(a.mul(a));
+                square2 = square2.add(b.mul(b));
+            }
+            sums[0] += product.reduceLanesToLong(VectorOperators.ADD);
+            sums[1] += square1.reduceLanesToLong(VectorOperators.ADD);
+            sums[2] += square2.reduceLanesToLong(VectorOperators.ADD);
+        }
+        ScalarPixelKernels.dotProducts(first, second, i, length, sums);
+    }
+}
@@ -0,0 +1,78 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BitMaskTests {
+
+    private static BitMask randomMask(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BitMask mask = new BitMask(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                mask.set(col, row, random.nextInt(4) != 0);
+            }
+        }
+        return mask;
+    }
+
+    private static BitMask bruteForce(BitMask mask, int radius, boolean erode) {
+        BitMask result = new BitMask(mask.width(), mask.height());
+        for (int row = 0; row < mask.height(); row++) {
+            for (int col = 0; col < mask.width(); col++) {
+                boolean value = erode;
+                for (int i = row - radius; i <= row + radius; i++) {
+                    for (int j = col - radius; j <= col + radius; j++) {
+                        if (i >= 0 && j >= 0 && i < mask.height() && j < mask.width()) {
+                            value = erode ? value && mask.get(j, i) : value || mask.get(j, i);
+                        }
+                    }
+                }
+                result.set(col, row, value);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void test_ErodeDilate() {
+        BitMask mask = randomMask(130, 21, 221);
+        for (int radius = 0; radius <= 2; radius++) {
+            assertEquals(bruteForce(mask, radius, true), mask.erode(radius));
+            assertEquals(bruteForce(mask, radius, false), mask.dilate(radius));
+        }
+    }
+
+    @Test
+    public void test_BooleanOps() {
+        BitMask a = randomMask(70, 5, 1);
+        BitMask b = randomMask(70, 5, 2);
+        assertEquals(a.or(b).andNot(a.and(b)), a.xor(b));
+        assertEquals(a.not().not(), a);
+        assertEquals(70 * 5, a.count() + a.not().count());
+    }
+
+    @Test
+    public void test_BoundingBoxAndCount() {
+        BitMask mask = new BitMask(200, 50);
+        mask.set(70, 10, true);
+        mask.set(150, 40, true);
+        mask.set(100, 20, true);
+        Rectangle box = mask.boundingBox();
+        assertEquals(70, box.xTopLeft);
+        assertEquals(10, box.yTopLeft);
+        assertEquals(150, box.xBottomRight);
+        assertEquals(40, box.yBottomRight);
+        assertEquals(2, mask.count(new Rectangle(60, 5, 120, 30)));
+        assertNull(new BitMask(10, 10).boundingBox());
+    }
+
+    @Test
+    public void test_ImageRoundTrip() {
+        BitMask mask = randomMask(67, 9, 3);
+        assertEquals(mask, BitMask.fromImage(mask.toImage(), 128));
+    }
+}
@@ -0,0 +1,83 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static org.junit.Assert.*;
+
+public class ColourConversionTests {
+
+    @Test
+    public void test_LumaMatchesToGray() {
+        int[] rgbs = new int[1 << 16];
+        int[] luma = new int[rgbs.length];
+        for (int red = 0; red < 256; red++) {
+            for (int i = 0; i < rgbs.length; i++) {
+                rgbs[i] = (red << 16) | i;
+            }
+            ColourConversion.toLuma(rgbs, luma, rgbs.length);
+            for (int i = 0; i < rgbs.length; i++) {
+                if (Image.toGray(new Color(rgbs[i])).getRed() != luma[i]) {
+                    fail("wrong luma for " + Integer.toHexString(rgbs[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_KnownColours() {
+        assertEquals(0x00FFFF, ColourConversion.toHSV(0xFF0000));
+        assertEquals(120 << 16 | 0xFFFF, ColourConversion.toHSV(0x00FF00));
+        assertEquals(0x80, ColourConversion.toHSV(0x808080));
+        assertEquals(0xFF8080, ColourConversion.toYCbCr(0xFFFFFF));
+        assertEquals(0x008080, ColourConversion.toLab(0x000000));
+        assertEquals(0xFF8080, ColourConversion.toLab(0xFFFFFF));
+    }
+
+    @Test
+    public void test_WithinOneOfFloatingPoint() {
+        for (int r = 0; r < 256; r += 5) {
+            for (int g = 0; g < 256; g += 3) {
+                for (int b = 0; b < 256; b += 7) {
+                    int rgb = (r << 16) | (g << 8) | b;
+                    int ycc = ColourConversion.toYCbCr(rgb);
+                    assertEquals(128 - 0.168736 * r - 0.331264 * g + 0.5 * b, (ycc >> 8) & 0xFF, 1.5);
+                    assertEquals(128 + 0.5 * r - 0.418688 * g - 0.081312 * b, ycc & 0xFF, 1.5);
+
+                    float[] hsb = Color.RGBtoHSB(r, g, b, null);
+                    int hsv = ColourConversion.toHSV(rgb);
+                    double hue = Math.abs(hsb[0] * 360 - (hsv >> 16));
+                    assertTrue(Math.min(hue, 360 - hue) <= 1.5);
+                    assertEquals(hsb[1] * 255, (hsv >> 8) & 0xFF, 1.5);
+                    assertEquals(hsb[2] * 255, hsv & 0xFF, 1.5);
+
+                    double[] lab = lab(r, g, b);
+                    int packed = ColourConversion.toLab(rgb);
+                    assertEquals(lab[0] * 2.55, packed >> 16, 1.5);
+                    assertEquals(lab[1] + 128, (packed >> 8) & 0xFF, 1.5);
+                    assertEquals(lab[2] + 128, packed & 0xFF, 1.5);
+                }
+            }
+        }
+    }
+
+    private static double[] lab(int r, int g, int b) {
+        double lr = linear(r);
+        double lg = linear(g);
+        double lb = linear(b);
+        double fx = f((0.4124564 * lr + 0.3575761 * lg + 0.1804375 * lb) / 0.95047);
+        double fy = f(0.2126729 * lr + 0.7151522 * lg + 0.0721750 * lb);
+        double fz = f((0.0193339 * lr + 0.1191920 * lg + 0.9503041 * lb) / 1.08883);
+        return new double[] {116 * fy - 16, 500 * (fx - fy), 200 * (fy - fz)};
+    }
+
+    private static double linear(int level) {
+        double c = level / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    private static double f(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+}
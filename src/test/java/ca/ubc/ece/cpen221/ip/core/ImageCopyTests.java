@@ -0,0 +1,56 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ImageCopyTests {
+
+    @Test
+    public void test_CopyOnWrite() {
+        Image original = new Image("resources/15088.jpg");
+        Image reference = new Image("resources/15088.jpg");
+        Image copy = new Image(original);
+        Image copyOfCopy = new Image(copy);
+        assertEquals(original, copy);
+
+        copy.setRGB(5, 7, 0x123456);
+        assertEquals(0xFF123456, copy.getRGB(5, 7));
+        assertEquals(reference, original);
+        assertEquals(reference, copyOfCopy);
+
+        original.setRGBRow(0, new int[original.width()]);
+        assertEquals(0xFF000000, original.getRGB(3, 0));
+        assertEquals(reference.getRGB(3, 0), copyOfCopy.getRGB(3, 0));
+        assertEquals(reference.getRGB(3, 0), copy.getRGB(3, 0));
+
+        copyOfCopy.setRGB(1, 1, 0);
+        assertEquals(reference.getRGB(1, 1), copy.getRGB(1, 1));
+        assertEquals(0xFF123456, copy.getRGB(5, 7));
+    }
+
+    @Test
+    public void test_CopyOfGrayAndPaletteImagesHoldsColour() throws IOException {
+        int[] types = {BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_INDEXED};
+        String[] formats = {"png", "gif"};
+        for (int i = 0; i < types.length; i++) {
+            File file = File.createTempFile("copy", "." + formats[i]);
+            file.deleteOnExit();
+            ImageIO.write(new BufferedImage(4, 3, types[i]), formats[i], file);
+
+            Image original = new Image(file);
+            Image copy = new Image(original);
+            original.setRGB(1, 1, 0x00FF00);
+            copy.setRGB(1, 1, 0xFF0000);
+            assertEquals(0xFFFF0000, copy.getRGB(1, 1));
+            copy.setRGB(2, 2, 0x0000FF);
+            assertEquals(0xFF0000FF, copy.getRGB(2, 2));
+            assertEquals(0xFF000000, original.getRGB(2, 2));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ImageLoaderTests {
+
+    @Test
+    public void test_RegionLoader() {
+        File file = new File("resources/15088.jpg");
+        Image full = new Image(file);
+        Image region = new Image(file, new Rectangle(60, 100, 250, 350));
+        assertEquals(191, region.width());
+        assertEquals(251, region.height());
+        for (int row = 0; row < region.height(); row++) {
+            for (int col = 0; col < region.width(); col++) {
+                assertEquals(full.getRGB(60 + col, 100 + row), region.getRGB(col, row));
+            }
+        }
+    }
+
+    @Test
+    public void test_SubsampledLoader() {
+        File file = new File("resources/tests/15088-mirror.png");
+        Image full = new Image(file);
+        Image sampled = new Image(file, new Rectangle(10, 20, 200, 300), 3, 2);
+        assertEquals(64, sampled.width());
+        assertEquals(141, sampled.height());
+        for (int row = 0; row < sampled.height(); row++) {
+            for (int col = 0; col < sampled.width(); col++) {
+                assertEquals(full.getRGB(10 + 3 * col, 20 + 2 * row), sampled.getRGB(col, row));
+            }
+        }
+
+        Image thumbnail = Image.thumbnail(file, 100);
+        assertTrue(thumbnail.width() <= 100 && thumbnail.height() <= 100);
+        assertTrue(thumbnail.width() > 50 || thumbnail.height() > 50);
+    }
+}
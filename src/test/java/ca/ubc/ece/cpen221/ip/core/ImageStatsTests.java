@@ -0,0 +1,63 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImageStatsTests {
+
+    @Test
+    public void test_StatsMatchPixels() {
+        Image image = new Image("resources/15088.jpg");
+        ImageStats stats = image.stats();
+        long pixels = (long) image.width() * image.height();
+        assertEquals(pixels, stats.pixels());
+        for (int ch = ImageStats.RED; ch <= ImageStats.BLUE; ch++) {
+            int shift = 16 - 8 * ch;
+            long[] histogram = new long[256];
+            long sum = 0;
+            long sumOfSquares = 0;
+            int min = 255;
+            int max = 0;
+            for (int row = 0; row < image.height(); row++) {
+                for (int col = 0; col < image.width(); col++) {
+                    int value = (image.getRGB(col, row) >> shift) & 0xFF;
+                    histogram[value]++;
+                    sum += value;
+                    sumOfSquares += value * value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            assertArrayEquals(histogram, stats.histogram(ch));
+            assertEquals(sum, stats.sum(ch));
+            assertEquals(sumOfSquares, stats.sumOfSquares(ch));
+            assertEquals(min, stats.min(ch));
+            assertEquals(max, stats.max(ch));
+            double mean = (double) sum / pixels;
+            assertEquals(mean, stats.mean(ch), 1e-9);
+            assertEquals((double) sumOfSquares / pixels - mean * mean, stats.variance(ch), 1e-6);
+        }
+    }
+
+    @Test
+    public void test_StatsRememberedUntilChanged() {
+        Image image = new Image(3, 2);
+        ImageStats black = image.stats();
+        assertSame(black, image.stats());
+        assertEquals(6, black.count(ImageStats.GREEN, 0));
+        assertEquals(0.0, black.variance(ImageStats.RED), 0.0);
+
+        Image copy = new Image(image);
+        assertSame(black, copy.stats());
+
+        image.setRGB(1, 1, 0x00FF80);
+        ImageStats changed = image.stats();
+        assertNotSame(black, changed);
+        assertEquals(255, changed.max(ImageStats.GREEN));
+        assertEquals(0, changed.max(ImageStats.RED));
+        assertEquals(128, changed.sum(ImageStats.BLUE));
+        assertEquals(5, changed.count(ImageStats.GREEN, 0));
+        assertSame(black, copy.stats());
+    }
+}
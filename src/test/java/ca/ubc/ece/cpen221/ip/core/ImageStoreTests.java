@@ -0,0 +1,77 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class ImageStoreTests {
+
+    @Test
+    public void test_StoreHitsAndInvalidation() throws IOException {
+        File file = Files.createTempFile("store", ".png").toFile();
+        Files.copy(new File("resources/tests/15088-mirror.png").toPath(), file.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+        ImageStore store = new ImageStore(1 << 24);
+
+        Image first = store.get(file);
+        first.setRGB(0, 0, 0x123456);
+        Image second = store.get(file.getPath());
+        assertEquals(1, store.misses());
+        assertEquals(1, store.hits());
+        assertEquals(new Image(file), second);
+
+        Files.copy(new File("resources/tests/15088-negative.png").toPath(), file.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+        file.setLastModified(file.lastModified() + 2000);
+        assertEquals(new Image("resources/tests/15088-negative.png"), store.get(file));
+        assertEquals(1, store.invalidations());
+        assertEquals(2, store.misses());
+    }
+
+    @Test
+    public void test_StoreSingleFlightAndEviction() throws InterruptedException {
+        Image reference = new Image("resources/15088.jpg");
+        ImageStore store = new ImageStore(4L * reference.width() * reference.height() + 1000);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Image> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                Image image = store.get("resources/15088.jpg");
+                synchronized (results) {
+                    results.add(image);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8, results.size());
+        assertEquals(1, store.misses());
+        for (Image image : results) {
+            assertEquals(reference, image);
+        }
+
+        store.get("resources/95006.jpg");
+        assertEquals(1, store.evictions());
+        store.get("resources/15088.jpg");
+        assertEquals(3, store.misses());
+    }
+}
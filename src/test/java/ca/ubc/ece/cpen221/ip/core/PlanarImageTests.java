@@ -0,0 +1,32 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlanarImageTests {
+
+    @Test
+    public void test_RoundTrip() {
+        Image image = new Image("resources/15088.jpg");
+        PlanarImage planar = PlanarImage.of(image);
+        assertEquals(3, planar.channels());
+        int rgb = image.getRGB(17, 42);
+        assertEquals((rgb >> 16) & 0xFF, planar.get(PlanarImage.RED, 17, 42));
+        assertEquals((rgb >> 8) & 0xFF, planar.get(PlanarImage.GREEN, 17, 42));
+        assertEquals(rgb & 0xFF, planar.get(PlanarImage.BLUE, 17, 42));
+        assertEquals(image, planar.toImage());
+
+        planar.set(PlanarImage.GREEN, 17, 42, 0);
+        assertEquals(rgb & 0xFFFF00FF, planar.toImage().getRGB(17, 42));
+    }
+
+    @Test
+    public void test_GrayToImage() {
+        PlanarImage gray = new PlanarImage(3, 2, 1);
+        gray.plane(PlanarImage.GRAY)[4] = (byte) 200;
+        Image image = gray.toImage();
+        assertEquals(0xFFC8C8C8, image.getRGB(1, 1));
+        assertEquals(0xFF000000, image.getRGB(0, 0));
+    }
+}
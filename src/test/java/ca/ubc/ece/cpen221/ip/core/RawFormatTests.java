@@ -0,0 +1,46 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RawFormatTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_RawRoundTrip() throws IOException {
+        File directory = folder.getRoot();
+        Image image = new Image("resources/15088.jpg");
+        File raw = new File(directory, "15088.raw");
+        image.saveRaw(raw);
+        assertEquals(RawFormat.HEADER_BYTES + 4L * image.width() * image.height(), raw.length());
+        assertEquals(image, Image.mapRaw(raw));
+
+        image.setOriginLowerLeft();
+        image.saveRaw(raw);
+        Image mapped = Image.mapRaw(raw);
+        assertEquals(image.getRGB(3, 5), mapped.getRGB(3, 5));
+        assertEquals(image, mapped);
+    }
+
+    @Test
+    public void test_RawConverter() throws IOException {
+        File directory = folder.getRoot();
+        File raw = new File(directory, "mirror.raw");
+        File png = new File(directory, "mirror.png");
+        RawConverter.convert(new File("resources/tests/15088-mirror.png"), raw);
+        RawConverter.convert(raw, png);
+        assertEquals(new Image("resources/tests/15088-mirror.png"), new Image(png));
+    }
+
+    @Test(expected = IOException.class)
+    public void test_NotRaw() throws IOException {
+        Image.mapRaw(new File("resources/tests/15088-mirror.png"));
+    }
+}
@@ -0,0 +1,35 @@
+package ca.ubc.ece.cpen221.ip.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TiledImageTests {
+
+    @Test
+    public void test_TiledRoundTrip() throws IOException {
+        Image image = new Image("resources/15088.jpg");
+        int tileBytes = 4 * 32 * 32;
+        try (TiledImage tiled = TiledImage.fromImage(image, 32, 3 * tileBytes)) {
+            assertEquals(image, tiled.toImage());
+            assertTrue(tiled.tileWrites() > 0);
+            assertEquals(image.getRGB(100, 77), tiled.getRGB(100, 77));
+
+            tiled.setRGB(100, 77, 0x123456);
+            assertEquals(0xFF123456, tiled.getRGB(100, 77));
+            assertEquals(new Image(new File("resources/15088.jpg"), new Rectangle(40, 50, 90, 120)),
+                tiled.getRegion(new Rectangle(40, 50, 90, 120)));
+        }
+    }
+
+    @Test
+    public void test_TiledRead() throws IOException {
+        File file = new File("resources/tests/15088-mirror.png");
+        try (TiledImage tiled = TiledImage.read(file, 48, 1 << 20)) {
+            assertEquals(new Image(file), tiled.toImage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class AsyncTransformerTests {
+
+    @Test
+    public void test_MatchesBlockingCall() throws Exception {
+        Image image = new Image("resources/15088.jpg");
+        AsyncTransformer async = new AsyncTransformer();
+        assertEquals(new ImageTransformer(image).denoise(),
+            async.transform(image, ImageTransformer::denoise).get());
+        assertEquals(1.0, async.submit(() -> ImageProcessing.cosineSimilarity(image, image)).get(),
+            1e-9);
+    }
+
+    @Test
+    public void test_DeadlineAndCancellationStopWork() throws Exception {
+        // a DFT of this size takes minutes; one worker, so a stuck DFT would block the rest
+        Image image = new Image("resources/15088.jpg");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncTransformer async = new AsyncTransformer(executor);
+            CompletableFuture<DFTOutput> timed =
+                async.transform(image, ImageTransformer::dft, 50, TimeUnit.MILLISECONDS);
+            try {
+                timed.get();
+                fail("expected the deadline to pass");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            assertEquals(image, async.transform(image, t -> image).get(10, TimeUnit.SECONDS));
+
+            CompletableFuture<DFTOutput> cancelled = async.transform(image, ImageTransformer::dft);
+            Thread.sleep(50);
+            assertTrue(cancelled.cancel(true));
+            assertEquals(image, async.transform(image, t -> image).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_CancelledRotationStops() throws Exception {
+        // rotating forever only ends if rotate itself notices the cancellation
+        Image image = new Image("resources/15088.jpg");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncTransformer async = new AsyncTransformer(executor);
+            CompletableFuture<Image> timed = async.transform(image, t -> {
+                while (true) {
+                    t.rotate(30);
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+            try {
+                timed.get();
+                fail("expected the deadline to pass");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            assertEquals(image, async.transform(image, t -> image).get(10, TimeUnit.SECONDS));
+
+            CompletableFuture<Image> cancelled = async.transform(image, t -> {
+                while (true) {
+                    t.rotate(45);
+                }
+            });
+            Thread.sleep(50);
+            assertTrue(cancelled.cancel(true));
+            assertEquals(image, async.transform(image, t -> image).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BatchDeskewTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @return a page of black lines of text on white
+     */
+    private static BufferedImage page(int lines) {
+        BufferedImage page = new BufferedImage(120, 90, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = page.createGraphics();
+        g.setColor(java.awt.Color.WHITE);
+        g.fillRect(0, 0, 120, 90);
+        g.setColor(java.awt.Color.BLACK);
+        for (int i = 0; i < lines; i++) {
+            g.fillRect(10, 10 + 12 * i, 100, 4);
+        }
+        g.dispose();
+        return page;
+    }
+
+    private static Image toImage(BufferedImage page) {
+        Image image = new Image(page.getWidth(), page.getHeight());
+        for (int row = 0; row < page.getHeight(); row++) {
+            for (int col = 0; col < page.getWidth(); col++) {
+                image.setRGB(col, row, page.getRGB(col, row));
+            }
+        }
+        return image;
+    }
+
+    private static File writeTiff(File directory, int pages) throws IOException {
+        File file = new File(directory, "scan.tif");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(stream);
+            writer.prepareWriteSequence(null);
+            for (int i = 0; i < pages; i++) {
+                writer.writeToSequence(new IIOImage(page(i + 1), null, null), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    @Test
+    public void test_MultiPageRun() throws IOException {
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        writeTiff(input, 3);
+        ImageIO.write(page(2), "png", new File(input, "single.png"));
+
+        BatchDeskew.Report report = new BatchDeskew(new ProjectionProfileSkewEstimator(), 2, 2, 1)
+            .run(List.of(input), output);
+        assertEquals(4, report.pages);
+        assertEquals(0, report.rotated);
+        assertTrue(report.failures.isEmpty());
+        for (int p = 1; p <= 3; p++) {
+            assertEquals(toImage(page(p)), new Image(new File(output, "scan-p" + p + ".png")));
+        }
+        assertEquals(toImage(page(2)), new Image(new File(output, "single.png")));
+    }
+
+    @Test
+    public void test_FailedWriteIsReported() throws IOException {
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        ImageIO.write(page(1), "png", new File(input, "good.png"));
+        ImageIO.write(page(1), "png", new File(input, "bad.png"));
+        // a non-empty directory where the page should go cannot be replaced by it
+        assertTrue(new File(output, "bad.png/keep").mkdirs());
+
+        BatchDeskew.Report report = new BatchDeskew(new ProjectionProfileSkewEstimator(), 2, 1, 1)
+            .run(List.of(input), output);
+        assertEquals(1, report.pages);
+        assertEquals(1, report.failures.size());
+        assertTrue(report.failures.get(0).startsWith("bad.png"));
+    }
+
+    @Test
+    public void test_ManyPagesThroughOneEncoderFinish() throws Exception {
+        // the workers finish while the encode queue is full, and must still hand the
+        // encoders their end markers
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        writeTiff(input, 12);
+        BatchDeskew batch = new BatchDeskew(new ProjectionProfileSkewEstimator(), 2, 3, 1);
+        BatchDeskew.Report report = CompletableFuture.supplyAsync(() -> {
+            try {
+                return batch.run(List.of(input), output);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }).get(60, TimeUnit.SECONDS);
+        assertEquals(12, report.pages);
+    }
+
+    @Test
+    public void test_SkewedPageIsRotated() throws IOException {
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        Image skewed = new ImageTransformer(SkewTests.textPage(400, 300)).rotate(12);
+        skewed.write(new File(input, "skewed.png"), "png");
+        ImageIO.write(page(2), "png", new File(input, "straight.png"));
+        SkewEstimator estimator = new ProjectionProfileSkewEstimator();
+
+        BatchDeskew.Report report = new BatchDeskew(estimator, 0.5, 2, 1)
+            .run(List.of(input), output);
+        assertEquals(2, report.pages);
+        assertEquals(1, report.rotated);
+        assertTrue(report.failures.isEmpty());
+        assertEquals(new ImageTransformer(skewed).alignTextImage(estimator, 0.5),
+            new Image(new File(output, "skewed.png")));
+    }
+
+    @Test
+    public void test_SameNamesInDifferentDirectories() throws IOException {
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        assertTrue(new File(input, "a").mkdir());
+        assertTrue(new File(input, "b").mkdir());
+        ImageIO.write(page(1), "png", new File(input, "a/x.png"));
+        ImageIO.write(page(2), "png", new File(input, "b/x.png"));
+
+        BatchDeskew.Report report = new BatchDeskew(new ProjectionProfileSkewEstimator(), 2, 2, 1)
+            .run(List.of(input), output);
+        assertEquals(2, report.pages);
+        assertTrue(report.failures.isEmpty());
+        assertEquals(toImage(page(1)), new Image(new File(output, "a/x.png")));
+        assertEquals(toImage(page(2)), new Image(new File(output, "b/x.png")));
+    }
+
+    @Test
+    public void test_TakenOutputNameIsReported() throws IOException {
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        ImageIO.write(page(1), "gif", new File(input, "x.gif"));
+        ImageIO.write(page(2), "png", new File(input, "x.png"));
+
+        BatchDeskew.Report report = new BatchDeskew(new ProjectionProfileSkewEstimator(), 2, 1, 1)
+            .run(List.of(input), output);
+        assertEquals(1, report.pages);
+        assertEquals(1, report.failures.size());
+        assertTrue(report.failures.get(0).contains("x.png is already taken"));
+        assertEquals(toImage(page(1)), new Image(new File(output, "x.png")));
+    }
+
+    @Test
+    public void test_ReaderFailureIsReported() throws Exception {
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        ImageIO.write(page(1), "png", new File(input, "good.png"));
+        // a pixel data offset with its top bit set makes the BMP reader fail outright
+        // rather than with an IOException
+        Path broken = new File(input, "broken.bmp").toPath();
+        ImageIO.write(page(1), "bmp", broken.toFile());
+        byte[] bytes = Files.readAllBytes(broken);
+        bytes[13] = (byte) 0xEF;
+        Files.write(broken, bytes);
+
+        BatchDeskew batch = new BatchDeskew(new ProjectionProfileSkewEstimator(), 2, 1, 1);
+        BatchDeskew.Report report = CompletableFuture.supplyAsync(() -> {
+            try {
+                return batch.run(List.of(input), output);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }).get(60, TimeUnit.SECONDS);
+        assertEquals(1, report.pages);
+        assertEquals(1, report.failures.size());
+        assertTrue(report.failures.get(0).contains("broken.bmp"));
+    }
+}
@@ -0,0 +1,84 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchPipelineTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_PipelineDeadLetters() throws IOException {
+        File output = folder.newFolder("out");
+        List<File> files = Arrays.asList(new File("resources/15088.jpg"),
+            new File("resources/no-such-image.png"), new File("resources/95006.jpg"));
+        BatchPipeline pipeline = new BatchPipeline(
+            Arrays.asList(t -> t.grayscale(), t -> t.mirror()), 1, 2, 1, 1);
+        BatchPipeline.Result result = pipeline.run(files, output);
+
+        assertEquals(2, result.written);
+        assertEquals(1, result.deadLetters.size());
+        assertEquals("decode", result.deadLetters.get(0).stage);
+        assertEquals(files.get(1), result.deadLetters.get(0).file);
+
+        Image expected = new ImageTransformer(
+            new ImageTransformer(new Image("resources/95006.jpg")).grayscale()).mirror();
+        Image written = new Image(new File(output, "95006.jpg"));
+        assertEquals(expected.width(), written.width());
+        assertEquals(expected.height(), written.height());
+    }
+
+    @Test
+    public void test_PipelineWritesTransformedPixels() throws IOException {
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        Image source = new Image("resources/12003.jpg");
+        File png = new File(input, "12003.png");
+        source.write(png, "png");
+
+        BatchPipeline pipeline = new BatchPipeline(
+            Arrays.asList(t -> t.negative(), t -> t.mirror(), t -> t.blockPaint(3)), 1, 1, 1, 1);
+        BatchPipeline.Result result = pipeline.run(Arrays.asList(png), output);
+
+        assertEquals(1, result.written);
+        assertTrue(result.deadLetters.isEmpty());
+        Image expected = new ImageTransformer(new ImageTransformer(
+            new ImageTransformer(source).negative()).mirror()).blockPaint(3);
+        assertEquals(expected, new Image(new File(output, "12003.png")));
+    }
+
+    @Test
+    public void test_SameOutputNameIsDeadLettered() throws IOException {
+        File output = folder.newFolder("out");
+        File a = folder.newFolder("a");
+        File b = folder.newFolder("b");
+        Image first = new Image("resources/12003.jpg");
+        Image second = new Image("resources/15088.jpg");
+        first.write(new File(a, "x.png"), "png");
+        second.write(new File(b, "x.png"), "png");
+        second.write(new File(a, "x.gif"), "gif");
+        List<File> files = Arrays.asList(new File(a, "x.png"), new File(b, "x.png"),
+            new File(a, "x.gif"));
+
+        BatchPipeline.Result result = new BatchPipeline(
+            Arrays.asList(t -> t.mirror()), 1, 1, 1, 1).run(files, output);
+
+        assertEquals(1, result.written);
+        assertEquals(2, result.deadLetters.size());
+        for (BatchPipeline.DeadLetter deadLetter : result.deadLetters) {
+            assertEquals("encode", deadLetter.stage);
+        }
+        assertEquals(files.get(1), result.deadLetters.get(0).file);
+        assertEquals(files.get(2), result.deadLetters.get(1).file);
+        assertEquals(new ImageTransformer(first).mirror(), new Image(new File(output, "x.png")));
+    }
+}
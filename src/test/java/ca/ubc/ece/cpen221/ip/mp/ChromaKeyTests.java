@@ -0,0 +1,129 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.ColourSpace;
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static org.junit.Assert.*;
+
+public class ChromaKeyTests {
+
+    private static final Color KEY = new Color(0, 200, 0);
+
+    /**
+     * @return a white image with a 10 x 6 screen of the key colour at (4, 2)
+     */
+    private static Image screen() {
+        Image image = new Image(20, 12);
+        for (int col = 0; col < 20; col++) {
+            for (int row = 0; row < 12; row++) {
+                image.set(col, row, Color.WHITE);
+            }
+        }
+        for (int col = 4; col < 14; col++) {
+            for (int row = 2; row < 8; row++) {
+                image.set(col, row, KEY);
+            }
+        }
+        return image;
+    }
+
+    private static int alpha(Image matte, int col, int row) {
+        return matte.getRGB(col, row) & 0xFF;
+    }
+
+    @Test
+    public void test_SoftEdgeRamp() {
+        Image image = screen();
+        image.set(5, 3, new Color(0, 195, 0));
+        image.set(6, 3, new Color(0, 185, 0));
+        image.set(7, 3, new Color(0, 175, 0));
+        Image matte = new ImageTransformer(image).chromaKeyMatte(KEY, 10, ColourSpace.RGB);
+
+        assertEquals(255, alpha(matte, 4, 2));
+        assertEquals(255, alpha(matte, 5, 3));
+        // distance 15 is halfway between the tolerance and twice the tolerance
+        assertEquals(128, alpha(matte, 6, 3));
+        assertEquals(0, alpha(matte, 7, 3));
+        assertEquals(0, alpha(matte, 0, 0));
+    }
+
+    @Test
+    public void test_ChromaDistanceIgnoresBrightness() {
+        Image image = screen();
+        // the same hue as the key, in shadow
+        image.set(5, 3, new Color(0, 100, 0));
+        image.set(19, 11, Color.MAGENTA);
+        ImageTransformer t = new ImageTransformer(image);
+
+        assertTrue(alpha(t.chromaKeyMatte(KEY, 60, ColourSpace.RGB), 5, 3) < 255);
+        assertEquals(255, alpha(t.chromaKeyMatte(KEY, 60, ColourSpace.YCBCR), 5, 3));
+        assertEquals(0, alpha(t.chromaKeyMatte(KEY, 60, ColourSpace.YCBCR), 19, 11));
+    }
+
+    @Test
+    public void test_ZeroToleranceMatchesExactly() {
+        Image image = screen();
+        image.set(5, 3, new Color(0, 201, 0));
+        Image background = new Image(3, 2);
+        for (int col = 0; col < 3; col++) {
+            for (int row = 0; row < 2; row++) {
+                background.setRGB(col, row, 0x010203 * (col + 3 * row + 1));
+            }
+        }
+        ImageTransformer t = new ImageTransformer(image);
+        Image exact = t.greenScreen(KEY, background);
+        assertEquals(exact, t.greenScreen(KEY, background, 0, ColourSpace.RGB));
+
+        // keyed pixels show the background tiled from the corner of the screen
+        assertEquals(background.getRGB(0, 0), exact.getRGB(4, 2));
+        assertEquals(background.getRGB(2, 1), exact.getRGB(6, 3));
+        assertEquals(background.getRGB(0, 0), exact.getRGB(7, 4));
+        // a near miss and everything outside the screen keep their colour
+        assertEquals(0xFF00C900, exact.getRGB(5, 3));
+        assertEquals(0xFFFFFFFF, exact.getRGB(0, 0));
+    }
+
+    @Test
+    public void test_CompositeBlendsRamp() {
+        Image image = screen();
+        Color edge = new Color(0, 185, 0);
+        image.set(6, 3, edge);
+        Image background = new Image(1, 1);
+        background.setRGB(0, 0, 0xFF0000);
+        Image composite = new ImageTransformer(image).greenScreen(KEY, background, 10,
+            ColourSpace.RGB);
+
+        assertEquals(0xFFFF0000, composite.getRGB(4, 2));
+        assertEquals(ChromaKey.blend(edge.getRGB(), 0xFFFF0000, 128), composite.getRGB(6, 3));
+        assertEquals(0xFF805C00, composite.getRGB(6, 3));
+        assertEquals(0xFFFFFFFF, composite.getRGB(19, 11));
+        assertEquals(KEY.getRGB(), image.getRGB(4, 2));
+    }
+
+    @Test
+    public void test_NullArguments() {
+        ImageTransformer t = new ImageTransformer(screen());
+        Image background = new Image(2, 2);
+        try {
+            t.greenScreen(null, background, 10, ColourSpace.RGB);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            t.greenScreen(KEY, null, 10, ColourSpace.RGB);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            t.chromaKeyMatte(KEY, 10, null);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.BorderMode;
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.Kernel;
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static org.junit.Assert.*;
+
+public class ConvolutionTests {
+
+    @Test
+    public void test_Separability() {
+        assertTrue(Kernel.box(5).isSeparable());
+        assertTrue(Kernel.gaussian(1.5).isSeparable());
+        assertFalse(Kernel.sharpen().isSeparable());
+        assertTrue(new Kernel(new double[][] {{1, 2, 1}, {2, 4, 2}, {1, 2, 1}}).isSeparable());
+    }
+
+    @Test
+    public void test_BorderMap() {
+        assertEquals(0, BorderMode.CLAMP.map(-2, 4));
+        assertEquals(3, BorderMode.CLAMP.map(5, 4));
+        assertEquals(1, BorderMode.REFLECT.map(-2, 4));
+        assertEquals(2, BorderMode.REFLECT.map(5, 4));
+        assertEquals(2, BorderMode.WRAP.map(-2, 4));
+        assertEquals(1, BorderMode.WRAP.map(5, 4));
+        assertEquals(-1, BorderMode.CONSTANT.map(-1, 4));
+    }
+
+    @Test
+    public void test_IdentityKernel() {
+        Image originalImg = new Image("resources/15088.jpg");
+        ImageTransformer t = new ImageTransformer(originalImg);
+        Kernel identity = new Kernel(new double[][] {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}});
+        assertEquals(originalImg, t.convolve(identity, BorderMode.WRAP));
+    }
+
+    @Test
+    public void test_SeparableMatchesDirect() {
+        Image originalImg = new Image("resources/15088.jpg");
+        ImageTransformer t = new ImageTransformer(originalImg);
+        Kernel gaussian = Kernel.gaussian(1.2);
+        Image outputImage = t.convolve(gaussian, BorderMode.REFLECT);
+
+        int radius = gaussian.rows / 2;
+        for (int row = 0; row < originalImg.height(); row += 37) {
+            for (int col = 0; col < originalImg.width(); col += 29) {
+                double[] sum = new double[3];
+                for (int i = -radius; i <= radius; i++) {
+                    for (int j = -radius; j <= radius; j++) {
+                        int rgb = originalImg.getRGB(
+                            BorderMode.REFLECT.map(col + j, originalImg.width()),
+                            BorderMode.REFLECT.map(row + i, originalImg.height()));
+                        double w = gaussian.get(i + radius, j + radius);
+                        sum[0] += w * ((rgb >> 16) & 0xFF);
+                        sum[1] += w * ((rgb >> 8) & 0xFF);
+                        sum[2] += w * (rgb & 0xFF);
+                    }
+                }
+                Color actual = outputImage.get(col, row);
+                assertEquals(sum[0], actual.getRed(), 1.0);
+                assertEquals(sum[1], actual.getGreen(), 1.0);
+                assertEquals(sum[2], actual.getBlue(), 1.0);
+            }
+        }
+    }
+
+    @Test
+    public void test_ConstantBorder() {
+        Image flat = new Image(20, 10);
+        ImageTransformer t = new ImageTransformer(flat);
+        Image outputImage = t.convolve(Kernel.box(3), BorderMode.CONSTANT, new Color(90, 90, 90));
+        assertEquals(new Color(50, 50, 50), outputImage.get(0, 0));
+        assertEquals(new Color(30, 30, 30), outputImage.get(5, 0));
+        assertEquals(Color.BLACK, outputImage.get(5, 5));
+    }
+}
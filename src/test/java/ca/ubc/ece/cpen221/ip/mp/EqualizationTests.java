@@ -0,0 +1,61 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EqualizationTests {
+
+    @Test
+    public void test_GlobalEqualizationStretchesGrays() {
+        Image image = new Image(64, 16);
+        for (int row = 0; row < image.height(); row++) {
+            for (int col = 0; col < image.width(); col++) {
+                image.setRGB(col, row, (100 + col / 8) * 0x010101);
+            }
+        }
+        Image equalized = new ImageTransformer(image).equalize();
+        int previous = -1;
+        for (int col = 0; col < image.width(); col++) {
+            int rgb = equalized.getRGB(col, 5);
+            int gray = rgb & 0xFF;
+            assertEquals(gray * 0x010101, rgb & 0xFFFFFF);
+            assertTrue(gray >= previous);
+            previous = gray;
+        }
+        assertEquals(32, equalized.getRGB(0, 0) & 0xFF);
+        assertEquals(255, equalized.getRGB(63, 15) & 0xFF);
+        assertEquals(equalized, new ImageTransformer(image).equalize(1, 1, Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void test_AdaptiveEqualizationEvensOutIllumination() {
+        // dim text on a dark left half, bright text on a bright right half
+        Image page = new Image(200, 100);
+        for (int row = 0; row < page.height(); row++) {
+            for (int col = 0; col < page.width(); col++) {
+                boolean ink = row % 10 < 3 && col % 7 < 4;
+                int level = col < 100 ? (ink ? 20 : 40) : (ink ? 200 : 230);
+                page.setRGB(col, row, level * 0x010101);
+            }
+        }
+        ImageTransformer t = new ImageTransformer(page);
+
+        Image unclipped = t.equalize(4, 2, Double.POSITIVE_INFINITY);
+        assertEquals(unclipped.getRGB(10, 41), unclipped.getRGB(190, 41));
+        assertEquals(unclipped.getRGB(10, 45), unclipped.getRGB(190, 45));
+
+        // clipping limits how much the contrast grows
+        Image clipped = t.equalize(4, 2, 40);
+        int darkContrast = (clipped.getRGB(10, 45) & 0xFF) - (clipped.getRGB(10, 41) & 0xFF);
+        int brightContrast = (clipped.getRGB(190, 45) & 0xFF) - (clipped.getRGB(190, 41) & 0xFF);
+        assertTrue(darkContrast > 20 && darkContrast < 255 - 44);
+        assertTrue(brightContrast > 30 && brightContrast < 255 - 44);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_TooManyTiles() {
+        new ImageTransformer(new Image(10, 10)).equalize(11, 1, 2.0);
+    }
+}
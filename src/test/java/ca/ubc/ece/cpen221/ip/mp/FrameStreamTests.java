@@ -0,0 +1,136 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImagePool;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.*;
+
+public class FrameStreamTests {
+
+    /**
+     * Records the frames it receives, returning each to the stream after checking it.
+     */
+    private static final class Viewer implements Flow.Subscriber<Image> {
+        final List<Image> frames = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Image item) {
+            frames.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Counts the frames a FrameStream asks its publisher for.
+     */
+    private static final class Camera implements Flow.Subscription {
+        long requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    @Test
+    public void test_MirrorsFramesIntoPooledImages() {
+        Image frame = new Image("resources/15088.jpg");
+        Image mirrored = new ImageTransformer(frame).mirror();
+        ImagePool pool = new ImagePool();
+        FrameStream stream = new FrameStream(ImageTransformer::mirror, pool);
+        Viewer viewer = new Viewer();
+        Camera camera = new Camera();
+        stream.subscribe(viewer);
+        stream.onSubscribe(camera);
+        assertEquals(1, camera.requested);
+
+        viewer.subscription.request(Long.MAX_VALUE);
+        for (int i = 0; i < 20; i++) {
+            stream.onNext(frame);
+            Image output = viewer.frames.get(i);
+            assertEquals(mirrored, output);
+            stream.release(output);
+        }
+        assertEquals(1, pool.created());
+        assertEquals(19, pool.reused());
+        assertEquals(21, camera.requested);
+        assertEquals(20, stream.framesDelivered());
+        assertEquals(0, stream.framesDropped());
+        assertTrue(stream.maxLatencyNanos() >= stream.meanLatencyNanos());
+        assertTrue(stream.meanLatencyNanos() > 0);
+    }
+
+    @Test
+    public void test_DropsFramesWithoutDemand() {
+        Image frame = new Image("resources/15088.jpg");
+        FrameStream stream = new FrameStream(ImageTransformer::negative);
+        Viewer viewer = new Viewer();
+        Camera camera = new Camera();
+        stream.subscribe(viewer);
+        stream.onSubscribe(camera);
+
+        viewer.subscription.request(2);
+        for (int i = 0; i < 5; i++) {
+            stream.onNext(frame);
+        }
+        assertEquals(2, viewer.frames.size());
+        assertEquals(5, stream.framesReceived());
+        assertEquals(3, stream.framesDropped());
+
+        viewer.subscription.cancel();
+        assertTrue(camera.cancelled);
+    }
+
+    @Test
+    public void test_SecondSubscriberIsRejected() {
+        Image frame = new Image("resources/15088.jpg");
+        FrameStream stream = new FrameStream(ImageTransformer::mirror);
+        Viewer viewer = new Viewer();
+        Viewer intruder = new Viewer();
+        Camera camera = new Camera();
+        stream.subscribe(viewer);
+        stream.onSubscribe(camera);
+        stream.subscribe(intruder);
+        assertTrue(intruder.error instanceof IllegalStateException);
+
+        intruder.subscription.request(5);
+        intruder.subscription.request(0);
+        intruder.subscription.cancel();
+        assertFalse(camera.cancelled);
+        assertNull(viewer.error);
+
+        stream.onNext(frame);
+        assertEquals(0, viewer.frames.size());
+        assertEquals(1, stream.framesDropped());
+        viewer.subscription.request(1);
+        stream.onNext(frame);
+        assertEquals(1, viewer.frames.size());
+        assertEquals(0, intruder.frames.size());
+    }
+}
@@ -0,0 +1,114 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.ColourSpace;
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GreenScreenTests {
+
+    private static final Color SCREEN = new Color(13, 190, 14);
+
+    @Test
+    public void test_SessionMatchesSingleFrame() {
+        Image frame = new Image("resources/clapper-green.jpg");
+        Image background = new Image("resources/15088.jpg");
+        GreenScreenSession session =
+            new GreenScreenSession(SCREEN, background, 40, ColourSpace.YCBCR, 8);
+
+        assertEquals(new ImageTransformer(frame).greenScreen(SCREEN, background, 40,
+            ColourSpace.YCBCR), session.next(frame));
+
+        for (int col = 100; col < 160; col++) {
+            for (int row = 20; row < 80; row++) {
+                frame.set(col, row, Color.RED);
+            }
+        }
+        Image expected = new ImageTransformer(frame).greenScreen(SCREEN, background, 40,
+            ColourSpace.YCBCR);
+        assertEquals(expected, session.next(frame));
+        assertTrue(session.segmentedTiles() <= 9);
+
+        assertEquals(expected, session.next(frame));
+        assertEquals(0, session.segmentedTiles());
+    }
+
+    @Test
+    public void test_SessionKeepsEarlierOutputsAndSmallChanges() {
+        Image frame = new Image("resources/clapper-green.jpg");
+        Image background = new Image("resources/15088.jpg");
+        GreenScreenSession session =
+            new GreenScreenSession(SCREEN, background, 40, ColourSpace.YCBCR, 8);
+        Image first = session.next(frame);
+        Image firstCopy = new Image(first);
+
+        // a foreground pixel changed below the change threshold is not segmented
+        // again, but is shown
+        int col = 0;
+        int row = frame.height() / 2;
+        while (first.getRGB(col, row) != frame.getRGB(col, row)) {
+            col++;
+        }
+        int rgb = frame.getRGB(col, row);
+        frame.setRGB(col, row, rgb ^ 0x030303);
+        Image second = session.next(frame);
+        assertEquals(0, session.segmentedTiles());
+        assertEquals(frame.getRGB(col, row), second.getRGB(col, row));
+        assertEquals(firstCopy, first);
+        assertNotSame(first, second);
+
+        frame.setRGB(col, row, rgb);
+        assertEquals(firstCopy, session.next(frame));
+    }
+
+    @Test
+    public void test_GreenScreenAll() {
+        Image frame = new Image(40, 30);
+        for (int col = 5; col < 30; col++) {
+            for (int row = 3; row < 20; row++) {
+                frame.set(col, row, Color.GREEN);
+            }
+        }
+        Image original = new Image(frame);
+        List<Image> backgrounds = List.of(new Image("resources/15088.jpg"), new Image(7, 5));
+        ImageTransformer t = new ImageTransformer(frame);
+
+        List<Image> outputs = t.greenScreenAll(Color.GREEN, backgrounds);
+        assertEquals(2, outputs.size());
+        for (int i = 0; i < backgrounds.size(); i++) {
+            assertEquals(t.greenScreen(Color.GREEN, backgrounds.get(i)), outputs.get(i));
+        }
+        assertEquals(backgrounds.get(0).get(0, 0), outputs.get(0).get(5, 3));
+        assertEquals(Color.BLACK, outputs.get(1).get(12, 3));
+        assertEquals(original, frame);
+        assertNotSame(outputs.get(0), outputs.get(1));
+    }
+
+    @Test
+    public void test_SessionBreaksTiesInRasterOrder() {
+        // two regions of two pixels; the first in raster order straddles two tiles
+        Image frame = new Image(64, 32);
+        for (int col = 0; col < 64; col++) {
+            for (int row = 0; row < 32; row++) {
+                frame.set(col, row, Color.WHITE);
+            }
+        }
+        frame.set(31, 0, Color.GREEN);
+        frame.set(32, 0, Color.GREEN);
+        frame.set(10, 5, Color.GREEN);
+        frame.set(11, 5, Color.GREEN);
+        Image background = new Image("resources/15088.jpg");
+        GreenScreenSession session =
+            new GreenScreenSession(Color.GREEN, background, 0, ColourSpace.RGB, 0);
+
+        Image expected = new ImageTransformer(frame).greenScreen(Color.GREEN, background, 0,
+            ColourSpace.RGB);
+        assertEquals(expected, session.next(frame));
+        assertNotEquals(Color.GREEN, expected.get(31, 0));
+        assertEquals(Color.GREEN, expected.get(10, 5));
+    }
+}
@@ -0,0 +1,69 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+
+import static org.junit.Assert.*;
+
+public class IncrementalTests {
+
+    @Test
+    public void test_DirtyRegion() {
+        Image image = new Image(50, 40);
+        assertNull(image.dirtyRegion());
+        image.setRGB(10, 20, 0xFFFFFF);
+        image.setRGB(12, 15, 0xFFFFFF);
+        assertEquals(new Rectangle(10, 15, 3, 6), image.dirtyRegion());
+
+        image.clearDirtyRegion();
+        assertNull(image.dirtyRegion());
+        image.setRGBRow(3, new int[50]);
+        assertEquals(new Rectangle(0, 3, 50, 1), image.dirtyRegion());
+        assertNull(new Image(image).dirtyRegion());
+    }
+
+    @Test
+    public void test_DirtyRegionFromSeveralThreads() throws InterruptedException {
+        Image image = new Image(64, 64);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int quadrant = t;
+            writers[t] = new Thread(() -> {
+                int col0 = (quadrant % 2) * 32;
+                int row0 = (quadrant / 2) * 32;
+                for (int row = row0; row < row0 + 32; row++) {
+                    for (int col = col0; col < col0 + 32; col++) {
+                        image.setRGB(col, row, 0xFFFFFF);
+                    }
+                }
+            });
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(new Rectangle(0, 0, 64, 64), image.dirtyRegion());
+    }
+
+    @Test
+    public void test_IncrementalDenoiseAndWeather() {
+        Image image = new Image("resources/15088.jpg");
+        Image denoised = new ImageTransformer(image).denoise();
+        Image weathered = new ImageTransformer(image).weather();
+        image.clearDirtyRegion();
+
+        for (int i = 0; i < 6; i++) {
+            image.setRGB(40 + i, 60 + 2 * i, 0xFFFFFF);
+            image.setRGB(image.width() - 1 - i, image.height() - 1, 0xFF00FF);
+        }
+        ImageTransformer transformer = new ImageTransformer(image);
+        Rectangle dirty = image.dirtyRegion();
+        assertSame(denoised, transformer.denoise(denoised, dirty));
+        assertEquals(transformer.denoise(), denoised);
+        assertEquals(transformer.weather(), transformer.weather(weathered, dirty));
+    }
+}
@@ -1,6 +1,7 @@
 package ca.ubc.ece.cpen221.ip.mp;
 
 import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.ImageProcessingException;
 import ca.ubc.ece.cpen221.ip.core.Rectangle;
 import org.junit.Test;
 
@@ -36,7 +37,7 @@ public class Level1Tests {
     }
 
     @Test
-    public void test_Clip() {
+    public void test_Clip() throws ImageProcessingException {
         Image originalImg = new Image("resources/15088.jpg");
         Image expectedImg = new Image("resources/tests/15088-clip-60-100-250-350.png");
         ImageTransformer t = new ImageTransformer(originalImg);
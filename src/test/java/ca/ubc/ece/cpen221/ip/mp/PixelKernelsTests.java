@@ -0,0 +1,118 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the kernels in use (vectorized when the tests run with the Java 17 classes
+ * and jdk.incubator.vector) against the scalar kernels and the per-pixel formulas.
+ */
+public class PixelKernelsTests {
+
+    private static List<int[]> corpusRows() {
+        File[] files = new File("resources/tests").listFiles((dir, name) -> name.endsWith(".png"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        List<int[]> rows = new ArrayList<>();
+        for (File file : files) {
+            Image image = new Image(file);
+            for (int row = 0; row < image.height(); row++) {
+                rows.add(image.getRGBRow(row, null));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void test_KernelsMatchScalarOnCorpus() {
+        List<int[]> rows = corpusRows();
+        for (int[] rgbs : rows) {
+            int length = rgbs.length;
+            int[] expected = new int[length];
+            int[] actual = rgbs.clone();
+
+            ScalarPixelKernels.grayscale(rgbs, expected, length);
+            PixelKernels.grayscale(actual, actual, length);
+            assertArrayEquals(expected, actual);
+
+            actual = rgbs.clone();
+            ScalarPixelKernels.negative(rgbs, expected, length);
+            PixelKernels.negative(actual, actual, length);
+            assertArrayEquals(expected, actual);
+
+            actual = rgbs.clone();
+            ScalarPixelKernels.posterize(rgbs, expected, length);
+            PixelKernels.posterize(actual, actual, length);
+            assertArrayEquals(expected, actual);
+
+            actual = rgbs.clone();
+            ScalarPixelKernels.red(rgbs, expected, length);
+            PixelKernels.red(actual, actual, length);
+            assertArrayEquals(expected, actual);
+        }
+        for (int i = 1; i < rows.size(); i++) {
+            int length = Math.min(rows.get(i - 1).length, rows.get(i).length);
+            long[] expected = new long[3];
+            long[] actual = new long[3];
+            ScalarPixelKernels.dotProducts(rows.get(i - 1), rows.get(i), length, expected);
+            PixelKernels.dotProducts(rows.get(i - 1), rows.get(i), length, actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void test_ScalarMatchesPerPixelFormulasOnCorpus() {
+        for (int[] rgbs : corpusRows()) {
+            int length = rgbs.length;
+            int[] gray = new int[length];
+            int[] negative = new int[length];
+            int[] poster = new int[length];
+            int[] red = new int[length];
+            ScalarPixelKernels.grayscale(rgbs, gray, length);
+            ScalarPixelKernels.negative(rgbs, negative, length);
+            ScalarPixelKernels.posterize(rgbs, poster, length);
+            ScalarPixelKernels.red(rgbs, red, length);
+            for (int i = 0; i < length; i++) {
+                int rgb = rgbs[i];
+                int[] bytes = {rgb >>> 24, (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
+                int[] inverted = new int[4];
+                int[] levels = bytes.clone();
+                for (int c = 0; c < 4; c++) {
+                    inverted[c] = 255 - bytes[c];
+                    if (c > 0) {
+                        levels[c] = bytes[c] <= 64 ? 32 : bytes[c] <= 128 ? 96 : 222;
+                    }
+                }
+                assertEquals(Image.toGray(new Color(rgb)).getRGB(), gray[i]);
+                assertEquals(ImageTransformer.mergedColor(inverted), negative[i]);
+                assertEquals(ImageTransformer.mergedColor(levels), poster[i]);
+                assertEquals((bytes[0] << 24) | (bytes[1] << 16), red[i]);
+            }
+        }
+    }
+
+    @Test
+    public void test_GrayscaleEveryColour() {
+        int[] rgbs = new int[1 << 16];
+        int[] gray = new int[rgbs.length];
+        for (int red = 0; red < 256; red++) {
+            for (int i = 0; i < rgbs.length; i++) {
+                rgbs[i] = 0xFF000000 | (red << 16) | i;
+            }
+            PixelKernels.grayscale(rgbs, gray, rgbs.length);
+            for (int i = 0; i < rgbs.length; i++) {
+                if (Image.toGray(new Color(rgbs[i])).getRGB() != gray[i]) {
+                    fail("wrong gray level for " + Integer.toHexString(rgbs[i]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.PlanarImage;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlanarTransformerTests {
+
+    @Test
+    public void test_ChainOnPlanes() {
+        Image image = new Image("resources/95006.jpg");
+        Image expected = new ImageTransformer(
+            new ImageTransformer(image).denoise()).blockPaint(4);
+        PlanarImage denoised = new PlanarTransformer(PlanarImage.of(image)).denoise();
+        assertEquals(expected, new PlanarTransformer(denoised).blockPaint(4).toImage());
+
+        assertEquals(new Image("resources/tests/95006-weathered.png"),
+            new PlanarTransformer(PlanarImage.of(image)).weather().toImage());
+    }
+
+    @Test
+    public void test_GrayPlane() {
+        Image image = new Image(7, 5);
+        for (int row = 0; row < 5; row++) {
+            for (int col = 0; col < 7; col++) {
+                image.setRGB(col, row, 0x10305 * (col + 3 * row) + 0x400000 * row);
+            }
+        }
+        PlanarImage gray = new PlanarTransformer(PlanarImage.of(image)).grayscale();
+        assertEquals(1, gray.channels());
+        assertEquals(new ImageTransformer(image).grayscale(), gray.toImage());
+        assertEquals(new ImageTransformer(image).dft(), new PlanarTransformer(gray).dft());
+    }
+}
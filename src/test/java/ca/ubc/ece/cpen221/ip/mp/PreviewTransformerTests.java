@@ -0,0 +1,60 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PreviewTransformerTests {
+
+    @Test
+    public void test_TilesMatchWholeImage() throws Exception {
+        Image image = new Image("resources/15088.jpg");
+        ImageTransformer whole = new ImageTransformer(image);
+        PreviewTransformer transformer = new PreviewTransformer(image, 40, 17, Runnable::run);
+
+        List<PreviewTransformer.Tile> tiles = new ArrayList<>();
+        PreviewTransformer.Preview preview = transformer.denoise(tiles::add);
+        assertEquals(whole.denoise(), preview.result().get());
+        assertEquals(preview.tiles(), preview.refinedTiles());
+        int next = 0;
+        for (PreviewTransformer.Tile tile : tiles) {
+            assertEquals(next, tile.top);
+            next += tile.pixels.height();
+        }
+        assertEquals(image.height(), next);
+
+        assertEquals(whole.blockPaint(7), transformer.blockPaint(7, tile -> { }).result().get());
+        assertEquals(whole.rotate(30), transformer.rotate(30, tile -> { }).result().get());
+    }
+
+    @Test
+    public void test_ProxyIsSmall() {
+        Image image = new Image("resources/15088.jpg");
+        PreviewTransformer.Preview preview =
+            new PreviewTransformer(image, 40, 17, task -> { }).blockPaint(7, tile -> { });
+        assertTrue(preview.proxy().width() <= 40 && preview.proxy().height() <= 40);
+        assertTrue(preview.scale() * preview.proxy().width() >= image.width());
+        assertEquals(0, preview.refinedTiles());
+        assertFalse(preview.result().isDone());
+    }
+
+    @Test
+    public void test_EditsDuringRefinementAreNotSeen() throws Exception {
+        Image image = new Image("resources/15088.jpg");
+        Image denoised = new ImageTransformer(image).denoise();
+        List<Runnable> pending = new ArrayList<>();
+        PreviewTransformer.Preview preview =
+            new PreviewTransformer(image, 40, 17, pending::add).denoise(tile -> { });
+
+        image.setRGBRow(image.height() - 1, new int[image.width()]);
+        image.setRGB(3, 4, 0xFF0000);
+        for (Runnable tile : pending) {
+            tile.run();
+        }
+        assertEquals(denoised, preview.result().get());
+    }
+}
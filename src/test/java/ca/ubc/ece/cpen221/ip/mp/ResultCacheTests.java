@@ -0,0 +1,54 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_Fingerprint() {
+        Image image = new Image("resources/15088.jpg");
+        Image copy = new Image(image);
+        assertEquals(image.fingerprint(), copy.fingerprint());
+
+        copy.setRGB(10, 10, copy.getRGB(10, 10) ^ 1);
+        assertNotEquals(image.fingerprint(), copy.fingerprint());
+        copy.setRGB(10, 10, copy.getRGB(10, 10) ^ 1);
+        assertEquals(image.fingerprint(), copy.fingerprint());
+
+        copy.setOriginLowerLeft();
+        assertNotEquals(image.fingerprint(), copy.fingerprint());
+    }
+
+    @Test
+    public void test_CacheHitsAndDiskTier() throws IOException {
+        File directory = folder.getRoot();
+        Image image = new Image("resources/15088.jpg");
+        long imageBytes = 4L * image.width() * image.height();
+        ResultCache cache = new ResultCache(imageBytes * 3 / 2, directory, imageBytes * 4);
+
+        Image weathered = new ImageTransformer(image, cache).weather();
+        assertEquals(new ImageTransformer(image).weather(), weathered);
+        assertEquals(1, cache.misses());
+
+        weathered.setRGB(0, 0, 0x123456);
+        Image again = new ImageTransformer(new Image("resources/15088.jpg"), cache).weather();
+        assertEquals(1, cache.hits());
+        assertEquals(new ImageTransformer(image).weather(), again);
+
+        new ImageTransformer(image, cache).blockPaint(4);
+        assertEquals(1, cache.evictions());
+        assertEquals(again, new ImageTransformer(image, cache).weather());
+        assertEquals(1, cache.diskHits());
+        assertEquals(2, cache.misses());
+    }
+}
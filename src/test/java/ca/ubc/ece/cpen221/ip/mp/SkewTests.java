@@ -0,0 +1,90 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SkewTests {
+
+    /**
+     * @return a white page with lines of dark, speckled "words"
+     */
+    static Image textPage(int width, int height) {
+        Image page = new Image(width, height);
+        Random random = new Random(221);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                page.setRGB(col, row, 0xFFFFFF);
+            }
+        }
+        for (int line = 60; line < height - 60; line += 36) {
+            for (int col = 60; col < width - 80; ) {
+                int length = 20 + random.nextInt(60);
+                for (int x = col; x < Math.min(width - 60, col + length); x++) {
+                    for (int y = line; y < line + 14; y++) {
+                        if (random.nextInt(3) > 0) {
+                            page.setRGB(x, y, 0x101010);
+                        }
+                    }
+                }
+                col += length + 12;
+            }
+        }
+        return page;
+    }
+
+    @Test
+    public void test_ProjectionProfileSkew() {
+        Image page = textPage(800, 1000);
+        SkewEstimator estimator = new ProjectionProfileSkewEstimator();
+
+        SkewEstimate straight = new ImageTransformer(page).estimateSkew(estimator);
+        assertEquals(0, straight.degrees, 0.1);
+        assertTrue(straight.confidence > 0.8);
+
+        Image tilted = new ImageTransformer(page).rotate(12);
+        SkewEstimate skew = new ImageTransformer(tilted).estimateSkew(estimator);
+        assertEquals(12, skew.degrees, 0.2);
+        assertTrue(skew.confidence > 0.8);
+
+        tilted = new ImageTransformer(page).rotate(360 - 25);
+        assertEquals(-25, new ImageTransformer(tilted).estimateSkew(estimator).degrees, 0.2);
+    }
+
+    @Test
+    public void test_AlignSkipsStraightPages() {
+        Image page = textPage(400, 300);
+        Image aligned = new ImageTransformer(page).alignTextImage(
+            new ProjectionProfileSkewEstimator(), 0.5);
+        assertEquals(page, aligned);
+        assertEquals(0, new ProjectionProfileSkewEstimator()
+            .estimate(new Image(50, 50)).confidence, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_SearchNarrowerThanPeakIsRejected() {
+        new ProjectionProfileSkewEstimator(2, 0.05, 512);
+    }
+
+    @Test
+    public void test_NarrowestSearchMeasuresConfidence() {
+        Image page = textPage(800, 1000);
+        SkewEstimator estimator = new ProjectionProfileSkewEstimator(3, 0.05, 512);
+        SkewEstimate skew = estimator.estimate(new ImageTransformer(page).rotate(2));
+        assertEquals(2, skew.degrees, 0.2);
+        assertTrue(skew.confidence > 0.5 && skew.confidence < 1);
+    }
+
+    @Test
+    public void test_DFTSkewEstimator() {
+        Image page = textPage(800, 1000);
+        SkewEstimator estimator = new DFTSkewEstimator();
+        SkewEstimate skew = estimator.estimate(new ImageTransformer(page).rotate(30));
+        assertEquals(30, skew.degrees, 2);
+        assertTrue(skew.confidence > 0.5);
+        assertEquals(new SkewEstimate(0, 0), estimator.estimate(new Image(20, 20)));
+    }
+}
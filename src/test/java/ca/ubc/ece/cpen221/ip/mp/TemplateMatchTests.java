@@ -0,0 +1,104 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TemplateMatchTests {
+
+    private static Image patch(Image image, int left, int top, int width, int height) {
+        Image patch = new Image(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                patch.setRGB(col, row, image.getRGB(left + col, top + row));
+            }
+        }
+        return patch;
+    }
+
+    private static int gray(Image image, int col, int row) {
+        return Image.toGray(new Color(image.getRGB(col, row))).getRed();
+    }
+
+    @Test
+    public void test_FindsPatchDespiteContrast() {
+        Image page = new Image("resources/15088.jpg");
+        Image logo = patch(page, 211, 97, 60, 45);
+        List<TemplateMatch> matches = ImageProcessing.matchTemplate(page, logo);
+        assertEquals(new TemplateMatch(211, 97, matches.get(0).score), matches.get(0));
+        assertEquals(1.0, matches.get(0).score, 1e-9);
+
+        // halve the contrast of the template and brighten it
+        Image faded = new Image(logo.width(), logo.height());
+        for (int row = 0; row < logo.height(); row++) {
+            for (int col = 0; col < logo.width(); col++) {
+                faded.setRGB(col, row, (gray(logo, col, row) / 2 + 100) * 0x010101);
+            }
+        }
+        TemplateMatch best = ImageProcessing.matchTemplate(page, faded, 1, 0.5).get(0);
+        assertEquals(211, best.col);
+        assertEquals(97, best.row);
+        assertTrue(best.score > 0.95);
+    }
+
+    @Test
+    public void test_ScoresMatchDirectCorrelation() {
+        Random random = new Random(7);
+        int width = 150;
+        int height = 90;
+        Image page = new Image(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int level = (int) (128 + 80 * Math.sin(col * 0.2) * Math.cos(row * 0.15))
+                    + random.nextInt(30);
+                page.setRGB(col, row, Math.min(255, level) * 0x010101);
+            }
+        }
+        int tw = 17;
+        int th = 11;
+        Image template = patch(page, 40, 30, tw, th);
+        double[] t = new double[tw * th];
+        double mean = 0;
+        for (int i = 0; i < t.length; i++) {
+            t[i] = gray(template, i % tw, i / tw);
+            mean += t[i] / t.length;
+        }
+        double norm = 0;
+        for (int i = 0; i < t.length; i++) {
+            t[i] -= mean;
+            norm += t[i] * t[i];
+        }
+
+        List<TemplateMatch> matches = ImageProcessing.matchTemplate(page, template, 50, 0.3);
+        assertEquals(40, matches.get(0).col);
+        assertEquals(30, matches.get(0).row);
+        for (TemplateMatch match : matches) {
+            double product = 0;
+            double sum = 0;
+            double squares = 0;
+            for (int i = 0; i < t.length; i++) {
+                int level = gray(page, match.col + i % tw, match.row + i / tw);
+                product += level * t[i];
+                sum += level;
+                squares += level * level;
+            }
+            double expected = product / Math.sqrt((squares - sum * sum / t.length) * norm);
+            assertEquals(expected, match.score, 1e-9);
+            assertTrue(match.score >= 0.3);
+        }
+        for (int i = 0; i < matches.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                assertTrue(matches.get(j).score >= matches.get(i).score);
+                assertTrue(Math.abs(matches.get(j).col - matches.get(i).col) >= tw
+                    || Math.abs(matches.get(j).row - matches.get(i).row) >= th);
+            }
+        }
+
+        assertTrue(ImageProcessing.matchTemplate(page, new Image(5, 5)).isEmpty());
+    }
+}
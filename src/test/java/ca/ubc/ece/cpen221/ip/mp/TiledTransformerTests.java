@@ -0,0 +1,28 @@
+package ca.ubc.ece.cpen221.ip.mp;
+
+import ca.ubc.ece.cpen221.ip.core.Image;
+import ca.ubc.ece.cpen221.ip.core.TiledImage;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TiledTransformerTests {
+
+    @Test
+    public void test_TiledMatchesWholeImage() throws IOException {
+        Image image = new Image("resources/15088.jpg");
+        ImageTransformer whole = new ImageTransformer(image);
+        try (TiledImage tiled = TiledImage.fromImage(image, 48, 6 * 4 * 48 * 48)) {
+            TiledTransformer transformer = new TiledTransformer(tiled);
+            try (TiledImage denoised = transformer.denoise();
+                 TiledImage weathered = transformer.weather();
+                 TiledImage painted = transformer.blockPaint(7)) {
+                assertEquals(whole.denoise(), denoised.toImage());
+                assertEquals(whole.weather(), weathered.toImage());
+                assertEquals(whole.blockPaint(7), painted.toImage());
+            }
+        }
+    }
+}